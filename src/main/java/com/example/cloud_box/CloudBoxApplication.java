@@ -1,8 +1,10 @@
 package com.example.cloud_box;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.session.SessionRepository;
@@ -10,6 +12,7 @@ import org.springframework.session.data.redis.config.annotation.web.http.EnableR
 import org.springframework.session.web.http.CookieSerializer;
 import org.springframework.session.web.http.DefaultCookieSerializer;
 
+@Slf4j
 @SpringBootApplication
 @EnableRedisHttpSession
 public class CloudBoxApplication {
@@ -18,15 +21,18 @@ public class CloudBoxApplication {
 		SpringApplication.run(CloudBoxApplication.class, args);
 	}
 
+	// diagnostics of the session setup; off by default, they only add to startup
 	@Bean
+	@ConditionalOnProperty(name = "startup.log-infrastructure", havingValue = "true")
 	public CommandLineRunner checkSessionRepo(SessionRepository<?> repo) {
-		return args -> System.out.println("SessionRepository class: " + repo.getClass().getName());
+		return args -> log.info("SessionRepository class: " + repo.getClass().getName());
 	}
 
 	@Bean
+	@ConditionalOnProperty(name = "startup.log-infrastructure", havingValue = "true")
 	public CommandLineRunner checkRedis(RedisConnectionFactory factory) {
 		return args -> {
-			System.out.println("RedisConnectionFactory class: " + factory.getClass().getName());
+			log.info("RedisConnectionFactory class: " + factory.getClass().getName());
 		};
 	}
 
@@ -0,0 +1,18 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+    // limits heavy operations: folder zips, folder moves and deletes, searches
+    private boolean enabled = true;
+    private int globalConcurrency = 16;
+    private int perUserConcurrency = 2;
+    private int queueCapacity = 64;
+    // one user cannot take the whole queue
+    private int perUserQueueCapacity = 8;
+    private long queueTimeoutMillis = 10000;
+    private int retryAfterSeconds = 5;
+}
@@ -0,0 +1,11 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "archive-cache")
+public class ArchiveCacheProperties {
+    private boolean enabled = true;
+    private int ttlDays = 7;
+}
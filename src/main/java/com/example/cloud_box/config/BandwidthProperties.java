@@ -0,0 +1,28 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "bandwidth")
+public class BandwidthProperties {
+    private boolean enabled = false;
+    // plan used for users without one; a plan missing from the map is unlimited
+    private String defaultPlan = "free";
+    private double burstSeconds = 1.0;
+    // node-wide caps shared by all users, 0 = unlimited
+    private long globalDownloadBytesPerSecond = 0;
+    private long globalUploadBytesPerSecond = 0;
+    private int idleEvictSeconds = 300;
+    private Map<String, Plan> plans = new HashMap<>();
+
+    @Data
+    public static class Plan {
+        // 0 = unlimited
+        private long downloadBytesPerSecond = 0;
+        private long uploadBytesPerSecond = 0;
+    }
+}
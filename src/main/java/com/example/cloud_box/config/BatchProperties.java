@@ -0,0 +1,12 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "batch")
+public class BatchProperties {
+    private int maxOperations = 1000;
+    private int workerThreads = 8;
+    private int queueCapacity = 500;
+}
@@ -0,0 +1,9 @@
+package com.example.cloud_box.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChangeLogProperties.class)
+public class ChangeLogConfig {
+}
@@ -0,0 +1,13 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "changes")
+public class ChangeLogProperties {
+    private int maxEntries = 10000;
+    private int retentionDays = 30;
+    private int defaultPageSize = 500;
+    private int maxPageSize = 1000;
+}
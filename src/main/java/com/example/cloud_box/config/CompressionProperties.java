@@ -0,0 +1,20 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "storage-compression")
+public class CompressionProperties {
+    private boolean enabled = false;
+    private List<String> contentTypes = new ArrayList<>(List.of(
+            "text/*", "application/json", "application/x-ndjson", "application/xml", "application/javascript",
+            "application/csv", "application/x-yaml", "application/sql"));
+    private long minSize = 4 * 1024;
+    private int sampleBytes = 64 * 1024;
+    private int minSavingsPercent = 10;
+    private int level = 6;
+}
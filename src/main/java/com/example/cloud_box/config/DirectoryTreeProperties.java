@@ -0,0 +1,11 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "directory-tree")
+public class DirectoryTreeProperties {
+    private int maxDepth = 32;
+    private int maxNodes = 10000;
+}
@@ -0,0 +1,13 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "disk-cache")
+public class DiskCacheProperties {
+    private boolean enabled = false;
+    private String directory = System.getProperty("java.io.tmpdir") + "/cloudbox-object-cache";
+    private long maxBytes = 1024L * 1024 * 1024;
+    private long maxObjectBytes = 64L * 1024 * 1024;
+}
@@ -0,0 +1,15 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "extract")
+public class ExtractProperties {
+    private int maxEntries = 50000;
+    private long maxTotalBytes = 10L * 1024 * 1024 * 1024;
+    private int workerThreads = 8;
+    private int queueCapacity = 64;
+    private int bufferedEntryBytes = 8 * 1024 * 1024;
+    private int maxBufferedBytes = 64 * 1024 * 1024;
+}
@@ -0,0 +1,22 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "jobs")
+public class JobProperties {
+    private int workerThreads = 4;
+    private int queueCapacity = 100;
+    private int retentionSeconds = 24 * 60 * 60;
+    private int progressUpdateMillis = 250;
+    private int ssePollMillis = 500;
+    private int sseTimeoutSeconds = 30 * 60;
+    private int retryAfterSeconds = 30;
+    // progress streams share one poller thread; clients over the limit poll the status instead
+    private int maxSseSubscribers = 256;
+    // the node running a job refreshes its updatedAt this often
+    private int heartbeatSeconds = 30;
+    // queued or running jobs without a heartbeat for this long are failed, their node is gone
+    private int staleAfterSeconds = 120;
+}
@@ -0,0 +1,18 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "auth.login")
+public class LoginProtectionProperties {
+    // BCrypt runs on its own pool so a login burst cannot take every core from request threads
+    private int hashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int hashQueueCapacity = 64;
+    private int hashTimeoutSeconds = 10;
+    private int usernameAttemptsPerMinute = 10;
+    private int usernameBurst = 5;
+    private int ipAttemptsPerMinute = 60;
+    private int ipBurst = 20;
+    private int maxTrackedKeys = 100_000;
+}
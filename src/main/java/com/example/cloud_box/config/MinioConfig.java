@@ -1,28 +1,59 @@
 package com.example.cloud_box.config;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.observation.ObservationRegistry;
 import io.minio.MinioClient;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
-@EnableConfigurationProperties(MinioProperties.class)
+@EnableConfigurationProperties({MinioProperties.class, ArchiveCacheProperties.class})
 public class MinioConfig {
 
+    public static final String APP_NAME = "cloud-box";
+    public static final String APP_VERSION = "1";
+
     @Bean
-    public MinioClient minioClient(MinioProperties properties) {
+    public MinioClient minioClient(MinioProperties properties, ObservationRegistry observationRegistry) {
         OkHttpClient httpClient = new OkHttpClient.Builder()
+                .dispatcher(new Dispatcher(contextPropagatingExecutor()))
+                .addInterceptor(new MinioTracingInterceptor(observationRegistry))
                 .connectTimeout(Duration.ofSeconds(properties.getConnectTimeout()))
                 .writeTimeout(Duration.ofSeconds(properties.getWriteTimeout()))
                 .readTimeout(Duration.ofSeconds(properties.getReadTimeout()))
                 .build();
 
-        return MinioClient.builder()
+        MinioClient client = MinioClient.builder()
                 .endpoint(properties.getUrl())
                 .credentials(properties.getAccessKey(), properties.getSecretKey())
                 .httpClient(httpClient)
                 .build();
+        // tags our own requests, so bucket notifications caused by the app can be told apart
+        client.setAppInfo(APP_NAME, APP_VERSION);
+        return client;
+    }
+
+    // the MinIO client sends requests asynchronously; carry the caller's trace context onto OkHttp's threads
+    private ExecutorService contextPropagatingExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "minio-http-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ContextSnapshotFactory snapshotFactory = ContextSnapshotFactory.builder().build();
+        return ContextExecutorService.wrap(executor, snapshotFactory::captureAll);
     }
 }
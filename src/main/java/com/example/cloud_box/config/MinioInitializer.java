@@ -1,36 +1,152 @@
 package com.example.cloud_box.config;
 
+import com.example.cloud_box.service.ArchiveCacheService;
+import com.example.cloud_box.service.ShardRouter;
+import com.example.cloud_box.service.ThumbnailService;
 import io.minio.BucketExistsArgs;
+import io.minio.GetBucketLifecycleArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
+import io.minio.SetBucketLifecycleArgs;
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes sure the bucket and the shard buckets exist, and that the bucket has its lifecycle rules.
+ * With minio.async-init the check runs on a background thread and is retried until MinIO answers,
+ * so startup does not wait for MinIO; as a health indicator it keeps the readiness probe down
+ * until the buckets are in place.
+ */
+@Slf4j
 @Component
-public class MinioInitializer {
+public class MinioInitializer implements HealthIndicator {
+
+    private static final String RULE_ID_PREFIX = "cloudbox-";
 
     private final MinioClient minioClient;
     private final MinioProperties properties;
+    private final ArchiveCacheProperties archiveCacheProperties;
+    private final ThumbnailProperties thumbnailProperties;
+    private final ShardRouter shardRouter;
+    private volatile boolean ready;
+    private volatile String lastError;
 
-    public MinioInitializer(MinioClient minioClient, MinioProperties properties) {
+    public MinioInitializer(MinioClient minioClient, MinioProperties properties,
+                            ArchiveCacheProperties archiveCacheProperties, ThumbnailProperties thumbnailProperties,
+                            ShardRouter shardRouter) {
         this.minioClient = minioClient;
         this.properties = properties;
+        this.archiveCacheProperties = archiveCacheProperties;
+        this.thumbnailProperties = thumbnailProperties;
+        this.shardRouter = shardRouter;
     }
 
     @PostConstruct
     public void init() {
+        if (!properties.isAsyncInit()) {
+            initBucket();
+            return;
+        }
+        Thread thread = new Thread(this::initUntilReady, "minio-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (ready) {
+            return Health.up().withDetail("buckets", shardRouter.buckets()).build();
+        }
+        Health.Builder health = Health.outOfService().withDetail("buckets", shardRouter.buckets());
+        return lastError == null ? health.build() : health.withDetail("error", lastError).build();
+    }
+
+    private void initUntilReady() {
+        while (!ready) {
+            try {
+                initBucket();
+            } catch (RuntimeException e) {
+                lastError = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                log.warn("[MinioInitializer.initUntilReady] Bucket not ready, retrying in "
+                        + properties.getInitRetrySeconds() + "s: " + lastError);
+                try {
+                    TimeUnit.SECONDS.sleep(properties.getInitRetrySeconds());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void initBucket() {
         try {
-            String bucketName = properties.getBucket();
-            boolean bucketExists = minioClient.bucketExists(
-                    BucketExistsArgs.builder().bucket(bucketName).build()
-            );
-            if (!bucketExists) {
-                minioClient.makeBucket(
-                        MakeBucketArgs.builder().bucket(bucketName).build()
+            for (String bucketName : shardRouter.buckets()) {
+                boolean bucketExists = minioClient.bucketExists(
+                        BucketExistsArgs.builder().bucket(bucketName).build()
                 );
+                if (!bucketExists) {
+                    minioClient.makeBucket(
+                            MakeBucketArgs.builder().bucket(bucketName).build()
+                    );
+                }
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize MinIO bucket", e);
         }
+        configureLifecycle();
+        ready = true;
+        lastError = null;
+    }
+
+    // temporary objects under the system prefix expire on their own; failures are not fatal
+    private void configureLifecycle() {
+        try {
+            // rules added by operators are kept, only the cloudbox-* rules are replaced
+            LifecycleConfiguration existing = minioClient.getBucketLifecycle(GetBucketLifecycleArgs.builder()
+                    .bucket(properties.getBucket())
+                    .build());
+            List<LifecycleRule> rules = new ArrayList<>();
+            if (existing != null) {
+                existing.rules().stream()
+                        .filter(rule -> rule.id() == null || !rule.id().startsWith(RULE_ID_PREFIX))
+                        .forEach(rules::add);
+            }
+            rules.add(expirationRule(RULE_ID_PREFIX + "archives",
+                    ArchiveCacheService.ARCHIVES_FOLDER, archiveCacheProperties.getTtlDays()));
+            rules.add(expirationRule(RULE_ID_PREFIX + "renditions",
+                    ThumbnailService.RENDITIONS_FOLDER, thumbnailProperties.getTtlDays()));
+            minioClient.setBucketLifecycle(SetBucketLifecycleArgs.builder()
+                    .bucket(properties.getBucket())
+                    .config(new LifecycleConfiguration(rules))
+                    .build());
+        } catch (Exception e) {
+            log.warn("[MinioInitializer] Failed to configure bucket lifecycle: " + e.getMessage());
+        }
+    }
+
+    private LifecycleRule expirationRule(String id, String folder, int days) {
+        return new LifecycleRule(
+                Status.ENABLED,
+                null,
+                new Expiration((ZonedDateTime) null, days, null),
+                new RuleFilter(properties.getSystemPrefix() + folder),
+                id,
+                null,
+                null,
+                null);
     }
 }
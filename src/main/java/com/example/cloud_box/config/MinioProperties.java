@@ -13,4 +13,11 @@ public class MinioProperties {
     private int connectTimeout = 10;
     private int writeTimeout = 30;
     private int readTimeout = 30;
+    private String systemPrefix = ".cloudbox/";
+    // follow changes made outside the app (mc mirror, admin cleanup) through bucket notifications
+    private boolean notificationsEnabled = true;
+    private int notificationRetrySeconds = 5;
+    // check the bucket in the background instead of during startup; readiness stays down until it is done
+    private boolean asyncInit = true;
+    private int initRetrySeconds = 5;
 }
@@ -0,0 +1,56 @@
+package com.example.cloud_box.config;
+
+import com.example.cloud_box.jfr.MinioCallEvent;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * One span and one {@link MinioCallEvent} per HTTP request the MinIO client sends, so list pages, multipart parts and
+ * bulk deletes show up individually under the service span that issued them.
+ */
+public class MinioTracingInterceptor implements Interceptor {
+
+    private final ObservationRegistry observationRegistry;
+
+    public MinioTracingInterceptor(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Observation observation = Observation.createNotStarted("minio.request", observationRegistry)
+                .contextualName("minio " + request.method())
+                .lowCardinalityKeyValue("http.method", request.method())
+                .highCardinalityKeyValue("minio.path", request.url().encodedPath())
+                .highCardinalityKeyValue("bytes.sent",
+                        String.valueOf(request.body() == null ? 0 : request.body().contentLength()))
+                .start();
+        MinioCallEvent event = new MinioCallEvent();
+        event.begin();
+        event.key = request.url().encodedPath();
+        event.method = request.method();
+        event.bytes = request.body() == null ? 0 : Math.max(0, request.body().contentLength());
+        try (Observation.Scope scope = observation.openScope()) {
+            Response response = chain.proceed(request);
+            observation.lowCardinalityKeyValue("http.status_code", String.valueOf(response.code()));
+            event.status = response.code();
+            if (response.body() != null) {
+                observation.highCardinalityKeyValue("bytes.received", String.valueOf(response.body().contentLength()));
+                event.bytes += Math.max(0, response.body().contentLength());
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "packing")
+public class PackingProperties {
+    private boolean enabled = false;
+    private long maxFileBytes = 64 * 1024;
+    private long segmentBytes = 16 * 1024 * 1024;
+    private int compactionIntervalSeconds = 300;
+    private int compactionMinDeadPercent = 50;
+    private int retiredSegmentGraceSeconds = 600;
+}
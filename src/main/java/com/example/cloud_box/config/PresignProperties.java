@@ -0,0 +1,21 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "presign")
+public class PresignProperties {
+    // hand out short-lived MinIO URLs so clients move file bytes without passing through the app
+    private boolean enabled = false;
+    // MinIO endpoint as seen by clients; the signature covers the host, so it must match what clients call.
+    // Falls back to minio.url
+    private String publicUrl;
+    // region used for signing; set explicitly so that signing never needs a round trip to MinIO
+    private String region = "us-east-1";
+    private int expirySeconds = 300;
+    // answer file downloads with a redirect to a presigned URL instead of streaming them
+    private boolean redirectDownloads = false;
+    // a presigned PUT cannot cap the size, so larger objects are removed when the upload is completed
+    private long maxUploadBytes = 5L * 1024 * 1024 * 1024;
+}
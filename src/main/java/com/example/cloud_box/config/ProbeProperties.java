@@ -0,0 +1,10 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "probe")
+public class ProbeProperties {
+    private int maxFiles = 10000;
+}
@@ -0,0 +1,12 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "profiling")
+public class ProfilingProperties {
+    // a forgotten recording stops on its own after this long
+    private int maxDurationSeconds = 600;
+    private String directory = System.getProperty("java.io.tmpdir");
+}
@@ -0,0 +1,25 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "minio-read")
+public class ReadResilienceProperties {
+    // retries, hedging and a circuit breaker around statObject and getObject
+    private boolean enabled = true;
+    private int maxAttempts = 3;
+    // full jitter: the n-th retry waits a random time up to base * 2^(n-1), capped
+    private long retryBaseMillis = 50;
+    private long retryMaxMillis = 1000;
+    private boolean hedgeEnabled = true;
+    // a duplicate request is sent once the first has been running longer than this latency percentile
+    private double hedgePercentile = 0.95;
+    private long hedgeMinDelayMillis = 20;
+    private long hedgeMaxDelayMillis = 1000;
+    // at most this share of reads is hedged, so a slow MinIO does not get twice the load
+    private int hedgeBudgetPercent = 10;
+    private int threads = 64;
+    private int circuitFailureThreshold = 5;
+    private int circuitOpenSeconds = 10;
+}
@@ -0,0 +1,13 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "session-cache")
+public class SessionCacheProperties {
+    private boolean enabled = true;
+    private int ttlSeconds = 5;
+    private int maxEntries = 10_000;
+    private boolean configureKeyspaceNotifications = true;
+}
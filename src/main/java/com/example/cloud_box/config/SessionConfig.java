@@ -0,0 +1,75 @@
+package com.example.cloud_box.config;
+
+import com.example.cloud_box.security.CachingSecurityContextRepository;
+import com.example.cloud_box.security.SessionRedisSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Properties;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SessionCacheProperties.class)
+public class SessionConfig implements BeanClassLoaderAware {
+
+    private static final String NOTIFY_KEYSPACE_EVENTS = "notify-keyspace-events";
+    // K: keyspace channel, g: del/rename, x: expired, e: evicted
+    private static final String REQUIRED_FLAGS = "Kgxe";
+
+    private ClassLoader classLoader;
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    // picked up by name by Spring Session
+    @Bean
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
+        return new SessionRedisSerializer(classLoader);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer sessionEventsListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        CachingSecurityContextRepository securityContextRepository,
+                                                                        SessionCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (properties.isEnabled()) {
+            if (properties.isConfigureKeyspaceNotifications()) {
+                enableKeyspaceNotifications(connectionFactory);
+            }
+            container.addMessageListener(securityContextRepository,
+                    new PatternTopic("__keyspace@*__:" + securityContextRepository.getSessionKeyPrefix() + "*"));
+        }
+        return container;
+    }
+
+    // managed Redis often forbids CONFIG; the near-cache then relies on its TTL alone
+    private void enableKeyspaceNotifications(RedisConnectionFactory connectionFactory) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Properties config = connection.serverCommands().getConfig(NOTIFY_KEYSPACE_EVENTS);
+            String current = config == null ? "" : config.getProperty(NOTIFY_KEYSPACE_EVENTS, "");
+            StringBuilder flags = new StringBuilder(current);
+            for (char flag : REQUIRED_FLAGS.toCharArray()) {
+                boolean coveredByAll = flag != 'K' && current.indexOf('A') >= 0;
+                if (current.indexOf(flag) < 0 && !coveredByAll) {
+                    flags.append(flag);
+                }
+            }
+            if (!flags.toString().equals(current)) {
+                connection.serverCommands().setConfig(NOTIFY_KEYSPACE_EVENTS, flags.toString());
+            }
+        } catch (Exception e) {
+            log.warn("[SessionConfig] Could not enable Redis keyspace notifications: " + e.getMessage());
+        }
+    }
+}
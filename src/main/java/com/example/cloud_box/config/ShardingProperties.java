@@ -0,0 +1,24 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+    // new users are placed in one of the buckets below; existing users move with the migration endpoint.
+    // Do not switch it off again while users are sharded, their objects would no longer be found
+    private boolean enabled = false;
+    // shard buckets, created at startup; the system prefix and legacy users stay in minio.bucket
+    private List<String> buckets = new ArrayList<>();
+    // how long a node trusts its cached copy of a user's layout
+    private int layoutCacheSeconds = 5;
+    // pause between layout switches during a migration, so every node has seen the switch;
+    // at least layout-cache-seconds, and the presign expiry when presigned uploads are used
+    private int drainSeconds = 10;
+    // writes of a user are rejected with 429 while the last changes are copied
+    private int retryAfterSeconds = 5;
+}
@@ -0,0 +1,33 @@
+package com.example.cloud_box.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs JVM uptime once all singletons are created and again when the app is ready. The first line
+ * is also printed by refresh-only runs (spring.context.exit=onRefresh), such as the CDS training
+ * run and the startup measurement of the "startup" Maven profile.
+ */
+@Slf4j
+@Component
+public class StartupTimeLogger implements SmartInitializingSingleton {
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        log.info("[StartupTimeLogger] Beans initialized after " + uptimeMillis() + " ms of JVM uptime");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        log.info("[StartupTimeLogger] Application ready after " + uptimeMillis() + " ms of JVM uptime");
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
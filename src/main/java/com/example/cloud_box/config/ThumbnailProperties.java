@@ -0,0 +1,21 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "thumbnails")
+public class ThumbnailProperties {
+    private boolean enabled = true;
+    private List<Integer> sizes = List.of(128, 512);
+    private int workerThreads = 2;
+    private int queueCapacity = 200;
+    private int ttlDays = 30;
+    private long maxSourceBytes = 50L * 1024 * 1024;
+    private long maxSourcePixels = 50_000_000L;
+    private float quality = 0.8f;
+    private int generateTimeoutSeconds = 30;
+    private int cacheMaxAgeSeconds = 24 * 60 * 60;
+}
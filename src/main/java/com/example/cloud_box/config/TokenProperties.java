@@ -0,0 +1,16 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "auth.token")
+public class TokenProperties {
+    private boolean enabled = false;
+    // base64-encoded HMAC key, at least 32 bytes
+    private String secret;
+    private String issuer = "cloud-box";
+    private long accessTokenTtlSeconds = 15 * 60;
+    private long refreshTokenTtlSeconds = 14 * 24 * 60 * 60;
+    private long denyListSyncSeconds = 60;
+}
@@ -0,0 +1,29 @@
+package com.example.cloud_box.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(TracingProperties.class)
+public class TracingConfig {
+
+    // turns @Observed classes into spans
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    // picked up by the OpenTelemetry auto-configuration next to the OTLP exporter
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing", name = "file-export-enabled", havingValue = "true")
+    public JsonFileSpanExporter jsonFileSpanExporter(TracingProperties properties) throws IOException {
+        return new JsonFileSpanExporter(Path.of(properties.getFilePath()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.cloud_box.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+    // writes finished spans as JSON lines for offline analysis; OTLP export is configured by management.otlp.tracing.*
+    private boolean fileExportEnabled = false;
+    private String filePath = "logs/spans.jsonl";
+}
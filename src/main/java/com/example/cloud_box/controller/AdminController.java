@@ -0,0 +1,137 @@
+package com.example.cloud_box.controller;
+
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.dto.RecordingDTO;
+import com.example.cloud_box.dto.StorageLayoutDTO;
+import com.example.cloud_box.service.ProfilingService;
+import com.example.cloud_box.service.ShardMigrationService;
+import com.example.cloud_box.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final ProfilingService profilingService;
+    private final ShardMigrationService shardMigrationService;
+    private final SecurityUtils securityUtils;
+
+    @PostMapping("/profiling/start")
+    @Operation(summary = "Start a Flight Recorder recording",
+            description = "Starts a JFR recording of this node with the JDK's default or profile settings, "
+                    + "including the app's upload, download, zip entry, move step, search scan and MinIO call events. "
+                    + "Only for admin users.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recording started",
+                    content = @Content(schema = @Schema(implementation = RecordingDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Unknown settings or invalid duration", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A recording is already running", content = @Content)
+    })
+    public ResponseEntity<RecordingDTO> start(
+            @Parameter(description = "JFR settings: default or profile", example = "profile")
+            @RequestParam(required = false) String settings,
+            @Parameter(description = "Seconds after which the recording stops on its own", example = "120")
+            @RequestParam(required = false) Integer durationSeconds) {
+        return ResponseEntity.ok(profilingService.start(settings, durationSeconds));
+    }
+
+    @GetMapping("/profiling")
+    @Operation(summary = "Get the current recording")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recording state",
+                    content = @Content(schema = @Schema(implementation = RecordingDTO.class))),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "No recording", content = @Content)
+    })
+    public ResponseEntity<RecordingDTO> status() {
+        return ResponseEntity.ok(profilingService.status());
+    }
+
+    @PostMapping("/profiling/stop")
+    @Operation(summary = "Stop the recording and download it",
+            description = "Stops the recording if it is still running and returns it as a .jfr file, "
+                    + "to be opened with JDK Mission Control or the jfr tool.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recording returned"),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "No recording", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> stop() throws IOException {
+        Path file = profilingService.stop();
+        StreamingResponseBody body = outputStream -> {
+            try {
+                Files.copy(file, outputStream);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(file.getFileName().toString())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @GetMapping("/sharding/users/{username}")
+    @Operation(summary = "Get the storage layout of a user",
+            description = "Tells whether the user's objects are in the default bucket, being migrated, "
+                    + "or in a shard bucket.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Layout returned",
+                    content = @Content(schema = @Schema(implementation = StorageLayoutDTO.class))),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "User not found", content = @Content)
+    })
+    public ResponseEntity<StorageLayoutDTO> layout(@PathVariable String username) {
+        return ResponseEntity.ok(shardMigrationService.layout(username));
+    }
+
+    @PostMapping("/sharding/users/{username}/migrate")
+    @Operation(summary = "Move a user to their shard bucket",
+            description = "Starts a background job that copies the user's objects to the shard bucket while "
+                    + "the user keeps working, rejects the user's writes with 429 during the final pass, "
+                    + "switches the user over and removes the objects from the default bucket. "
+                    + "Progress is reported under /api/jobs/{id} of the calling admin.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Migration started",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Sharding is disabled", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "User not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "User is already sharded or being migrated", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many background jobs", content = @Content)
+    })
+    public ResponseEntity<JobDTO> migrate(
+            @PathVariable String username,
+            @Parameter(description = "Take over a migration left unfinished by a node that stopped", example = "false")
+            @RequestParam(defaultValue = "false") boolean force) {
+        return ResponseEntity.accepted()
+                .body(shardMigrationService.migrate(securityUtils.getCurrentUserId(), username, force));
+    }
+}
@@ -3,8 +3,13 @@ package com.example.cloud_box.controller;
 import com.example.cloud_box.dto.LoginRequestDTO;
 import com.example.cloud_box.dto.LoginResponseDTO;
 import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.dto.RefreshTokenRequestDTO;
 import com.example.cloud_box.dto.RegisterResponseDTO;
+import com.example.cloud_box.dto.TokenResponseDTO;
+import com.example.cloud_box.exception.InvalidInputException;
 import com.example.cloud_box.model.User;
+import com.example.cloud_box.security.TokenAuthenticationFilter;
+import com.example.cloud_box.security.TokenService;
 import com.example.cloud_box.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,15 +18,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
-import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -32,9 +37,14 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     private final AuthService authService;
+    private final SecurityContextRepository securityContextRepository;
+    private final TokenService tokenService;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, SecurityContextRepository securityContextRepository,
+                          TokenService tokenService) {
         this.authService = authService;
+        this.securityContextRepository = securityContextRepository;
+        this.tokenService = tokenService;
     }
 
     @Operation(summary = "Register a new user")
@@ -43,18 +53,15 @@ public class AuthController {
                     content = @Content(schema = @Schema(implementation = RegisterResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
             @ApiResponse(responseCode = "409", description = "Username already exists", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many sign-up attempts", content = @Content),
             @ApiResponse(responseCode = "500", description = "Server error during registration", content = @Content)
     })
     @PostMapping("/sign-up")
-    public ResponseEntity<RegisterResponseDTO> register(@Valid @RequestBody RegisterRequestDTO dto, HttpServletRequest request) {
-        User user = authService.registerUser(dto.username(), dto.password());
+    public ResponseEntity<RegisterResponseDTO> register(@Valid @RequestBody RegisterRequestDTO dto,
+                                                        HttpServletRequest request, HttpServletResponse response) {
+        User user = authService.registerUser(dto.username(), dto.password(), request.getRemoteAddr());
         Authentication authentication = authService.authenticateUser(dto.username(), dto.password());
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        HttpSession session = request.getSession(true);
-        session.setAttribute(
-                HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
-                SecurityContextHolder.getContext()
-        );
+        saveAuthentication(authentication, request, response);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(new RegisterResponseDTO(user.getUsername()));
@@ -65,17 +72,58 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "User logged in successfully",
                     content = @Content(schema = @Schema(implementation = LoginResponseDTO.class))),
             @ApiResponse(responseCode = "401", description = "Invalid credentials", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many sign-in attempts", content = @Content),
             @ApiResponse(responseCode = "500", description = "Server error during login", content = @Content)
     })
     @PostMapping("/sign-in")
-    public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO dto, HttpServletRequest request) {
-        Authentication authentication = authService.authenticateUser(dto.username(), dto.password());
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        HttpSession session = request.getSession(true);
-        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, SecurityContextHolder.getContext());
+    public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO dto,
+                                                  HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = authService.authenticateUser(dto.username(), dto.password(), request.getRemoteAddr());
+        saveAuthentication(authentication, request, response);
         return ResponseEntity.ok(new LoginResponseDTO(authentication.getName()));
     }
 
+    @Operation(summary = "Login a user and receive signed tokens instead of a session")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tokens issued",
+                    content = @Content(schema = @Schema(implementation = TokenResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Token authentication is disabled", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Invalid credentials", content = @Content)
+    })
+    @PostMapping(value = "/sign-in", params = "token=true")
+    public ResponseEntity<TokenResponseDTO> loginWithToken(@Valid @RequestBody LoginRequestDTO dto,
+                                                           HttpServletRequest request) {
+        if (!tokenService.isEnabled()) {
+            throw new InvalidInputException("Token authentication is disabled");
+        }
+        Authentication authentication = authService.authenticateUser(dto.username(), dto.password(), request.getRemoteAddr());
+        return ResponseEntity.ok(tokenService.issue(authentication.getName()));
+    }
+
+    @Operation(summary = "Exchange a refresh token for a new token pair")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tokens issued",
+                    content = @Content(schema = @Schema(implementation = TokenResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Token authentication is disabled", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Refresh token is invalid, expired or revoked", content = @Content)
+    })
+    @PostMapping("/token/refresh")
+    public ResponseEntity<TokenResponseDTO> refreshToken(@Valid @RequestBody RefreshTokenRequestDTO dto) {
+        return ResponseEntity.ok(tokenService.refresh(dto.refreshToken()));
+    }
+
+    @Operation(summary = "Revoke a refresh token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Token revoked"),
+            @ApiResponse(responseCode = "400", description = "Token authentication is disabled", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Refresh token is invalid, expired or already revoked", content = @Content)
+    })
+    @PostMapping("/token/revoke")
+    public ResponseEntity<Void> revokeToken(@Valid @RequestBody RefreshTokenRequestDTO dto) {
+        tokenService.revoke(dto.refreshToken(), TokenService.REFRESH);
+        return ResponseEntity.noContent().build();
+    }
+
 
     @Operation(summary = "Log out the current user")
     @ApiResponses(value = {
@@ -85,11 +133,26 @@ public class AuthController {
     })
     @PostMapping("/sign-out")
     public ResponseEntity<Void> logout(HttpServletRequest request, HttpServletResponse response) {
+        String bearerToken = TokenAuthenticationFilter.extractBearerToken(request);
+        if (bearerToken != null && tokenService.isEnabled()) {
+            tokenService.revoke(bearerToken, TokenService.ACCESS);
+            return ResponseEntity.noContent().build();
+        }
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null) {
-            new SecurityContextLogoutHandler().logout(request, response, auth);
+            SecurityContextLogoutHandler logoutHandler = new SecurityContextLogoutHandler();
+            logoutHandler.setSecurityContextRepository(securityContextRepository);
+            logoutHandler.logout(request, response, auth);
         }
         return ResponseEntity.noContent().build();
     }
 
+    // stores the context in the session through the repository, so its near-cache sees the change
+    private void saveAuthentication(Authentication authentication, HttpServletRequest request, HttpServletResponse response) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.cloud_box.controller;
+
+import com.example.cloud_box.dto.ChangesResponseDTO;
+import com.example.cloud_box.service.ChangeLogService;
+import com.example.cloud_box.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    private final ChangeLogService changeLogService;
+    private final SecurityUtils securityUtils;
+
+    @GetMapping
+    @Operation(summary = "Get changes since a cursor",
+            description = "Returns uploads, moves, deletes and new directories after the cursor, oldest first. "
+                    + "Without a cursor, returns the cursor of the latest change to start from after a full listing. "
+                    + "When the cursor is older than the retained log, resyncRequired is set and the tree has to be listed again.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes returned successfully",
+                    content = @Content(schema = @Schema(implementation = ChangesResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    public ResponseEntity<ChangesResponseDTO> getChanges(
+            @Parameter(description = "Cursor returned by the previous request", example = "1718035200000-0")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of changes to return", example = "500")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(changeLogService.changesSince(securityUtils.getCurrentUserId(), cursor, limit));
+    }
+}
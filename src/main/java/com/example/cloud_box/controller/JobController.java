@@ -0,0 +1,73 @@
+package com.example.cloud_box.controller;
+
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.service.JobService;
+import com.example.cloud_box.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+    private final SecurityUtils securityUtils;
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get background job status",
+            description = "Returns the status and progress of a background job owned by the current user.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status returned successfully",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    public ResponseEntity<JobDTO> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(jobService.get(securityUtils.getCurrentUserId(), id));
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow background job progress",
+            description = "Streams job state as Server-Sent Events named 'progress' until the job finishes.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    public SseEmitter followJob(@PathVariable String id) {
+        return jobService.subscribe(securityUtils.getCurrentUserId(), id);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel a background job",
+            description = "Requests cancellation. The job stops after the object it is currently processing.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Cancellation requested",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    public ResponseEntity<JobDTO> cancelJob(@PathVariable String id) {
+        return ResponseEntity.accepted().body(jobService.cancel(securityUtils.getCurrentUserId(), id));
+    }
+
+    @GetMapping("/{id}/result")
+    @Operation(summary = "Download the archive produced by a job",
+            description = "Streams the zip archive of a completed ARCHIVE job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archive downloaded successfully"),
+            @ApiResponse(responseCode = "404", description = "Job not found or has no result"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public void downloadResult(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) {
+        jobService.downloadResult(securityUtils.getCurrentUserId(), id, request, response);
+    }
+}
@@ -1,7 +1,18 @@
 package com.example.cloud_box.controller;
 
+import com.example.cloud_box.dto.BatchRequestDTO;
+import com.example.cloud_box.dto.BatchResponseDTO;
+import com.example.cloud_box.dto.DirectoryTreeDTO;
+import com.example.cloud_box.dto.ExtractResultDTO;
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.dto.PresignedUrlDTO;
+import com.example.cloud_box.dto.ProbeRequestDTO;
+import com.example.cloud_box.dto.ProbeResponseDTO;
+import com.example.cloud_box.dto.ResourceColumnsDTO;
 import com.example.cloud_box.dto.ResourceDTO;
 import com.example.cloud_box.service.ResourceService;
+import com.example.cloud_box.util.MimeTypes;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,19 +23,29 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api")
+@Observed(name = "cloudbox.controller")
 public class ResourceController {
 
     private final ResourceService resourceService;
@@ -75,6 +96,28 @@ public class ResourceController {
         return ResponseEntity.status(HttpStatus.CREATED).body(uploaded);
     }
 
+    // upload an archive and unpack it on the server
+    @PostMapping(value = "/resource", params = "extract=true")
+    @Operation(summary = "Upload an archive and extract it",
+            description = "The request body is a raw zip, tar or tar.gz stream. Entries are written into the folder "
+                    + "while the body is received; nothing is staged. Entry count, extracted size and entry paths are limited.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = {
+                    @Content(mediaType = "application/zip", schema = @Schema(type = "string", format = "binary")),
+                    @Content(mediaType = "application/x-tar", schema = @Schema(type = "string", format = "binary")),
+                    @Content(mediaType = "application/gzip", schema = @Schema(type = "string", format = "binary"))
+            }))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Archive extracted",
+                    content = @Content(schema = @Schema(implementation = ExtractResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Unsupported or corrupt archive, unsafe entry path or limit exceeded"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<ExtractResultDTO> uploadArchive(
+            @RequestParam(value = "path", required = false) String path,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(resourceService.extract(path, request.getInputStream()));
+    }
+
     // rename/move a resource
     @Operation(
             summary = "Move or rename a resource",
@@ -94,21 +137,114 @@ public class ResourceController {
         return ResponseEntity.ok(result);
     }
 
+    // rename/move a resource in the background
+    @Operation(
+            summary = "Move or rename a resource in the background",
+            description = "Starts a background job that moves a file or folder. Progress is available under /api/jobs/{id}."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Move job accepted",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input: source and destination paths are required"),
+            @ApiResponse(responseCode = "429", description = "Too many queued jobs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/resource/move", params = "async=true")
+    public ResponseEntity<JobDTO> moveAsync(
+            @RequestParam String from,
+            @RequestParam String to
+    ) {
+        return accepted(resourceService.moveResourceAsync(from, to));
+    }
+
+    // run several operations at once
+    @Operation(
+            summary = "Run a batch of operations",
+            description = "Runs move, delete and mkdir operations of a multi-select action in one request. "
+                    + "Operations on overlapping paths run in request order, independent ones run concurrently. "
+                    + "Each operation reports its own status."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-operation results",
+                    content = @Content(schema = @Schema(implementation = BatchResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Empty batch or too many operations"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/resource/batch")
+    public ResponseEntity<BatchResponseDTO> batch(@Valid @RequestBody BatchRequestDTO request) {
+        return ResponseEntity.ok(resourceService.batch(request));
+    }
+
+    // compare many local files with the stored ones at once
+    @Operation(
+            summary = "Probe which files exist unchanged",
+            description = "Compares local files, given by path and optionally size, ETag and SHA-256, with the stored ones. "
+                    + "Files are resolved with one listing per folder. Attributes that are left out are not compared."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Per-file results",
+                    content = @Content(schema = @Schema(implementation = ProbeResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Empty request, directory path or too many files"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/resource/probe")
+    public ResponseEntity<ProbeResponseDTO> probe(@Valid @RequestBody ProbeRequestDTO request) {
+        return ResponseEntity.ok(resourceService.probe(request));
+    }
+
     // get list of resources
     @Operation(summary = "Get contents of a directory",
             description = "Returns the list of files and folders inside the specified directory path.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Directory contents returned successfully",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResourceDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Directory has not changed since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "400", description = "Invalid path parameter",
                     content = @Content(schema = @Schema(type = "string"))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(type = "string")))
     })
     @GetMapping("/directory")
-    public ResponseEntity<List<ResourceDTO>> listDirectory(@RequestParam(required = false) String path) {
-        List<ResourceDTO> contents = resourceService.listDirectory(path);
-        return ResponseEntity.ok(contents);
+    public ResponseEntity<List<ResourceDTO>> listDirectory(@RequestParam(required = false) String path,
+                                                           WebRequest webRequest, HttpServletResponse response) {
+        return conditionalListing(path, webRequest, response, () -> resourceService.listDirectory(path));
+    }
+
+    @Operation(summary = "Get contents of a directory in columnar form",
+            description = "Same as the plain listing, but the parent path and type of the entries are stored once. "
+                    + "Selected with Accept: " + MimeTypes.RESOURCE_COLUMNS_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Directory contents returned successfully",
+                    content = @Content(schema = @Schema(implementation = ResourceColumnsDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Directory has not changed since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid path parameter"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/directory", produces = MimeTypes.RESOURCE_COLUMNS_JSON)
+    public ResponseEntity<ResourceColumnsDTO> listDirectoryColumns(@RequestParam(required = false) String path,
+                                                                   WebRequest webRequest, HttpServletResponse response) {
+        return conditionalListing(path, webRequest, response,
+                () -> ResourceColumnsDTO.of(resourceService.listDirectory(path)));
+    }
+
+    @Operation(summary = "Get the subtree of a directory",
+            description = "Returns all files and folders below the directory down to the given depth as a flat list, "
+                    + "read with a single recursive listing. Stops at the node limit and sets truncated.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Subtree returned successfully",
+                    content = @Content(schema = @Schema(implementation = DirectoryTreeDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Subtree has not changed since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid path or depth"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/directory/tree")
+    public ResponseEntity<DirectoryTreeDTO> listTree(
+            @RequestParam(required = false) String path,
+            @Parameter(description = "Levels to include; 1 lists direct children only", example = "3")
+            @RequestParam(required = false) Integer depth,
+            WebRequest webRequest, HttpServletResponse response) {
+        // the version of a directory changes with every write anywhere below it
+        return conditionalListing(path, webRequest, response, () -> resourceService.listTree(path, depth));
     }
 
     // delete a resource
@@ -124,11 +260,28 @@ public class ResourceController {
     public ResponseEntity<Void> deleteResource(
             @Parameter(description = "Path to the resource in MinIO", required = true, example = "folder/file.txt")
             @RequestParam String path) {
-        System.out.println("Delete resource controller called with path: " + path);
+        log.info("Delete resource controller called with path: " + path);
         resourceService.delete(path);
         return ResponseEntity.noContent().build();
     }
 
+    // delete a resource in the background
+    @Operation(summary = "Delete a resource in the background",
+            description = "Starts a background job that deletes the resource. Progress is available under /api/jobs/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Delete job accepted",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path parameter"),
+            @ApiResponse(responseCode = "429", description = "Too many queued jobs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping(value = "/resource", params = "async=true")
+    public ResponseEntity<JobDTO> deleteResourceAsync(
+            @Parameter(description = "Path to the resource in MinIO", required = true, example = "folder/")
+            @RequestParam String path) {
+        return accepted(resourceService.deleteAsync(path));
+    }
+
     // download a resource
     @GetMapping("/resource/download")
     @Operation(summary = "Download a resource from MinIO",
@@ -141,9 +294,105 @@ public class ResourceController {
     })
     public void download(
             @Parameter(description = "Path to the resource in MinIO", required = true, example = "folder/file.txt")
-            @RequestParam String path, HttpServletResponse response) {
-        System.out.println("[MinioController.download] Downloading resource at path: " + path);
-        resourceService.download(path, response);
+            @RequestParam String path, HttpServletRequest request, HttpServletResponse response) {
+        log.info("[MinioController.download] Downloading resource at path: " + path);
+        resourceService.download(path, request, response);
+    }
+
+    // build a folder archive in the background
+    @GetMapping(value = "/resource/download", params = "async=true")
+    @Operation(summary = "Prepare a folder archive in the background",
+            description = "Starts a background job that zips the folder. When the job completes, "
+                    + "the archive is available from the job's download link.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Archive job accepted",
+                    content = @Content(schema = @Schema(implementation = JobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path parameter"),
+            @ApiResponse(responseCode = "429", description = "Too many queued jobs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<JobDTO> downloadAsync(
+            @Parameter(description = "Path to the folder in MinIO", required = true, example = "folder/")
+            @RequestParam String path) {
+        return accepted(resourceService.archiveAsync(path));
+    }
+
+    // presigned URL for downloading a file directly from MinIO
+    @GetMapping("/resource/download-url")
+    @Operation(summary = "Get a presigned download URL",
+            description = "Returns a short-lived URL that reads the file directly from storage. "
+                    + "Only available when presigned URLs are enabled; packed files are downloaded through the app.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "URL signed",
+                    content = @Content(schema = @Schema(implementation = PresignedUrlDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path, packed file or presigned URLs disabled"),
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<PresignedUrlDTO> downloadUrl(
+            @Parameter(description = "Path to the file", required = true, example = "folder/file.txt")
+            @RequestParam String path) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(resourceService.downloadUrl(path));
+    }
+
+    // presigned URL for uploading a file directly to MinIO
+    @PostMapping("/resource/upload-url")
+    @Operation(summary = "Get a presigned upload URL",
+            description = "Returns a short-lived URL to PUT the file body to storage. "
+                    + "After the upload, call /resource/upload-complete with the same path.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "URL signed",
+                    content = @Content(schema = @Schema(implementation = PresignedUrlDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path or presigned URLs disabled"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<PresignedUrlDTO> uploadUrl(
+            @Parameter(description = "Path of the file to create", required = true, example = "folder/file.txt")
+            @RequestParam String path) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(resourceService.uploadUrl(path));
+    }
+
+    // register a file uploaded through a presigned URL
+    @PostMapping("/resource/upload-complete")
+    @Operation(summary = "Complete a presigned upload",
+            description = "Registers a file uploaded through a presigned URL. Files over the upload limit are removed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload registered",
+                    content = @Content(schema = @Schema(implementation = ResourceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path, file too large or presigned URLs disabled"),
+            @ApiResponse(responseCode = "404", description = "Uploaded file not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<ResourceDTO> completeUpload(
+            @Parameter(description = "Path the file was uploaded to", required = true, example = "folder/file.txt")
+            @RequestParam String path) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(resourceService.completeUpload(path));
+    }
+
+    // get a thumbnail of an image
+    @GetMapping("/resource/thumbnail")
+    @Operation(summary = "Get a thumbnail of an image",
+            description = "Returns a JPEG rendition of the image that fits into a square of the given size. "
+                    + "Renditions are generated on upload or on first request and cached.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thumbnail returned successfully"),
+            @ApiResponse(responseCode = "304", description = "Thumbnail not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid path, unsupported size or not an image"),
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "429", description = "Thumbnail generation is busy"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public void thumbnail(
+            @Parameter(description = "Path to the image in MinIO", required = true, example = "photos/cat.jpg")
+            @RequestParam String path,
+            @Parameter(description = "Longest side of the thumbnail in pixels", example = "128")
+            @RequestParam(defaultValue = "128") int size,
+            HttpServletRequest request, HttpServletResponse response) {
+        resourceService.thumbnail(path, size, request, response);
     }
 
     // find by name
@@ -163,6 +412,20 @@ public class ResourceController {
         return ResponseEntity.ok(results);
     }
 
+    @Operation(summary = "Search resources, columnar form",
+            description = "Same as the plain search, but parent paths and types are stored once. "
+                    + "Selected with Accept: " + MimeTypes.RESOURCE_COLUMNS_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search results returned successfully",
+                    content = @Content(schema = @Schema(implementation = ResourceColumnsDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid search query"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/resource/search", produces = MimeTypes.RESOURCE_COLUMNS_JSON)
+    public ResponseEntity<ResourceColumnsDTO> searchColumns(@RequestParam String query) {
+        return ResponseEntity.ok(ResourceColumnsDTO.of(resourceService.search(query)));
+    }
+
     // get info about a resource
     @GetMapping("/resource")
     @Operation(summary = "Get information about a resource in MinIO",
@@ -179,4 +442,30 @@ public class ResourceController {
         return ResponseEntity.ok(resource);
     }
 
+    // the version is read before listing, so a concurrent write can only make the ETag older, never newer
+    private <T> ResponseEntity<T> conditionalListing(String path, WebRequest webRequest, HttpServletResponse response,
+                                                     Supplier<T> listing) {
+        String version = resourceService.directoryVersion(path);
+        // one URL has several encodings, each needs its own ETag
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        String etag = version == null ? null
+                : "\"" + version + "-" + Integer.toHexString(accept == null ? 0 : accept.hashCode()) + "\"";
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        T body = listing.get();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        return builder.body(body);
+    }
+
+    private ResponseEntity<JobDTO> accepted(JobDTO job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.id()))
+                .body(job);
+    }
+
 }
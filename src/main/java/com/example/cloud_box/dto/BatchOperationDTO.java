@@ -0,0 +1,18 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.BatchOperationType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Single operation of a batch request")
+public record BatchOperationDTO(
+        @NotNull(message = "Operation type must not be null")
+        @Schema(description = "Kind of operation: DELETE, MOVE or MKDIR", example = "MOVE")
+        BatchOperationType type,
+
+        @Schema(description = "Path of the resource, directories end with '/'", example = "folder1/file.txt")
+        String path,
+
+        @Schema(description = "Destination path, required for MOVE", example = "folder2/file.txt", nullable = true)
+        String to
+) {}
@@ -0,0 +1,30 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.BatchOperationType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a single batch operation")
+public record BatchOperationResultDTO(
+        @Schema(description = "Position of the operation in the request", example = "0")
+        int index,
+
+        @Schema(description = "Kind of operation", example = "DELETE")
+        BatchOperationType type,
+
+        @Schema(description = "Path of the resource", example = "folder1/file.txt")
+        String path,
+
+        @Schema(description = "Destination path of a move", example = "folder2/file.txt", nullable = true)
+        String to,
+
+        @Schema(description = "HTTP status the operation would have returned on its own", example = "204")
+        int status,
+
+        @Schema(description = "Resulting resource of a move or mkdir", nullable = true)
+        ResourceDTO resource,
+
+        @Schema(description = "Error message of a failed operation", nullable = true)
+        String error
+) {}
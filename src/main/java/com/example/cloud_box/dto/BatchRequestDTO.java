@@ -0,0 +1,14 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Schema(description = "Batch of resource operations")
+public record BatchRequestDTO(
+        @NotEmpty(message = "Operations must not be empty")
+        @Schema(description = "Operations in the order they were selected")
+        List<@Valid BatchOperationDTO> operations
+) {}
@@ -0,0 +1,17 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Results of a batch request")
+public record BatchResponseDTO(
+        @Schema(description = "Number of operations that succeeded", example = "298")
+        int succeeded,
+
+        @Schema(description = "Number of operations that failed", example = "2")
+        int failed,
+
+        @Schema(description = "Per-operation results in request order")
+        List<BatchOperationResultDTO> results
+) {}
@@ -0,0 +1,24 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.ChangeType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "One entry of the user's change log")
+public record ChangeDTO(
+        @Schema(description = "Position of the change in the log, usable as a cursor", example = "1718035200000-0")
+        String id,
+
+        @Schema(description = "Kind of change: UPLOAD, MKDIR, MOVE or DELETE", example = "MOVE")
+        ChangeType type,
+
+        @Schema(description = "Path of the resource; directories end with '/'", example = "folder1/file.txt")
+        String path,
+
+        @Schema(description = "Destination path of a move", example = "folder2/file.txt", nullable = true)
+        String to,
+
+        @Schema(description = "Time of the change in epoch milliseconds", example = "1718035200000")
+        long timestamp
+) {}
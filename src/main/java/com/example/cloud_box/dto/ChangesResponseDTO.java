@@ -0,0 +1,21 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "A page of the user's change log")
+public record ChangesResponseDTO(
+        @Schema(description = "Changes after the given cursor, oldest first")
+        List<ChangeDTO> changes,
+
+        @Schema(description = "Cursor to send with the next request", example = "1718035200000-0")
+        String cursor,
+
+        @Schema(description = "Whether more changes are available right away", example = "false")
+        boolean hasMore,
+
+        @Schema(description = "The cursor is older than the retained log; list the tree again and continue from the returned cursor",
+                example = "false")
+        boolean resyncRequired
+) {}
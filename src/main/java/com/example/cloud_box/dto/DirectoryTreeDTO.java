@@ -0,0 +1,14 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Flat listing of a directory subtree")
+public record DirectoryTreeDTO(
+        @Schema(description = "Files and folders of the subtree in key order; the path of each entry is its parent folder")
+        List<ResourceDTO> resources,
+
+        @Schema(description = "Whether the listing stopped at the node limit", example = "false")
+        boolean truncated
+) {}
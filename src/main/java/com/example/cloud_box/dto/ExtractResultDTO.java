@@ -0,0 +1,18 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of an archive extraction")
+public record ExtractResultDTO(
+        @Schema(description = "Folder the archive was extracted into", example = "projects/app/")
+        String path,
+
+        @Schema(description = "Number of files written", example = "30000")
+        int files,
+
+        @Schema(description = "Number of folders created", example = "1200")
+        int directories,
+
+        @Schema(description = "Uncompressed bytes written", example = "524288000")
+        long bytes
+) {}
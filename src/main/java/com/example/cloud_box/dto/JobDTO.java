@@ -0,0 +1,37 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.JobStatus;
+import com.example.cloud_box.model.JobType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Background job state")
+public record JobDTO(
+        @Schema(description = "Job identifier", example = "3f1c9a4e-6a0e-4d7b-9d0e-2b1f7c1e5a11")
+        String id,
+
+        @Schema(description = "Kind of operation: DELETE, MOVE, ARCHIVE or MIGRATE", example = "MOVE")
+        JobType type,
+
+        @Schema(description = "Current status of the job", example = "RUNNING")
+        JobStatus status,
+
+        @Schema(description = "Number of objects processed so far", example = "120")
+        long processed,
+
+        @Schema(description = "Total number of objects, 0 while unknown", example = "500")
+        long total,
+
+        @Schema(description = "Source path of the operation", example = "folder1/")
+        String path,
+
+        @Schema(description = "Destination path for moves, archive name or shard bucket of a migration", example = "folder2/", nullable = true)
+        String target,
+
+        @Schema(description = "Download link of the produced archive", example = "/api/jobs/3f1c.../result", nullable = true)
+        String downloadUrl,
+
+        @Schema(description = "Error message of a failed job", nullable = true)
+        String error
+) {}
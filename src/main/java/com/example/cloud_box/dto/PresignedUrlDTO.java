@@ -0,0 +1,17 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Short-lived URL for moving file bytes directly to or from storage")
+public record PresignedUrlDTO(
+        @Schema(description = "HTTP method to use with the URL", example = "PUT")
+        String method,
+
+        @Schema(description = "Presigned storage URL", example = "https://files.example.com/user-files/user-1-files/docs/report.pdf?X-Amz-Signature=...")
+        String url,
+
+        @Schema(description = "Moment the URL stops being accepted", example = "2025-01-01T12:05:00Z")
+        Instant expiresAt
+) {}
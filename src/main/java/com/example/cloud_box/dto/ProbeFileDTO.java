@@ -0,0 +1,21 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+@Schema(description = "Local file to probe; attributes that are left out are not compared")
+public record ProbeFileDTO(
+        @NotBlank(message = "Path must not be blank")
+        @Schema(description = "Path of the file relative to the user root", example = "folder1/file.txt")
+        String path,
+
+        @Schema(description = "Size in bytes", example = "1024", nullable = true)
+        Long size,
+
+        @Schema(description = "ETag previously returned by the server", example = "5d41402abc4b2a76b9719d911017c592", nullable = true)
+        String etag,
+
+        @Schema(description = "Hex SHA-256 of the content",
+                example = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", nullable = true)
+        String sha256
+) {}
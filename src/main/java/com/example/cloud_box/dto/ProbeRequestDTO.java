@@ -0,0 +1,14 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Schema(description = "Local files to compare with the stored ones")
+public record ProbeRequestDTO(
+        @NotEmpty(message = "Files must not be empty")
+        @Schema(description = "Files with the attributes known locally")
+        List<@Valid ProbeFileDTO> files
+) {}
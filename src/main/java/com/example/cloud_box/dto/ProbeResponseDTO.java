@@ -0,0 +1,20 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Results of a probe request")
+public record ProbeResponseDTO(
+        @Schema(description = "Number of files not stored", example = "12")
+        int missing,
+
+        @Schema(description = "Number of files stored with different content", example = "3")
+        int different,
+
+        @Schema(description = "Number of files stored unchanged", example = "9985")
+        int identical,
+
+        @Schema(description = "Per-file results in request order")
+        List<ProbeResultDTO> results
+) {}
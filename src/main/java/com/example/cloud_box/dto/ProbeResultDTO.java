@@ -0,0 +1,24 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.ProbeStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Comparison of one local file with the stored one")
+public record ProbeResultDTO(
+        @Schema(description = "Path as sent in the request", example = "folder1/file.txt")
+        String path,
+
+        @Schema(description = "MISSING, DIFFERENT or IDENTICAL", example = "IDENTICAL")
+        ProbeStatus status,
+
+        @Schema(description = "Size of the stored file", example = "1024", nullable = true)
+        Long size,
+
+        @Schema(description = "ETag of the stored file", example = "5d41402abc4b2a76b9719d911017c592", nullable = true)
+        String etag,
+
+        @Schema(description = "SHA-256 of the stored file, if recorded at upload", nullable = true)
+        String sha256
+) {}
@@ -0,0 +1,23 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Flight Recorder recording of this node")
+public record RecordingDTO(
+        @Schema(description = "Recording identifier", example = "3")
+        long id,
+
+        @Schema(description = "JFR settings the recording uses: default or profile", example = "profile")
+        String settings,
+
+        @Schema(description = "State of the recording", example = "RUNNING")
+        String state,
+
+        @Schema(description = "When the recording started", example = "2025-01-01T12:00:00Z")
+        Instant startedAt,
+
+        @Schema(description = "Moment the recording stops on its own", example = "2025-01-01T12:10:00Z")
+        Instant stopsAt
+) {}
@@ -0,0 +1,11 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+@Schema(description = "Refresh token request")
+public record RefreshTokenRequestDTO(
+        @NotBlank(message = "Refresh token must not be blank")
+        @Schema(description = "Refresh token issued at sign-in or by the last refresh")
+        String refreshToken
+) {}
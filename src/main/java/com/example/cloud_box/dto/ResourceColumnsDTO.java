@@ -0,0 +1,59 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.ResourceType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "List of resources in columnar form. Entry i consists of parents[parent[i]], name[i], size[i] "
+        + "and types[type[i]]; every parent path and type is stored only once.")
+public record ResourceColumnsDTO(
+        @Schema(description = "Distinct parent paths", example = "[\"folder1/\"]")
+        List<String> parents,
+
+        @Schema(description = "Index into parents for every entry", example = "[0, 0]")
+        int[] parent,
+
+        @Schema(description = "Name of every entry", example = "[\"file.txt\", \"docs/\"]")
+        List<String> name,
+
+        @Schema(description = "Size of every entry; null for directories", example = "[1024, null]")
+        List<Long> size,
+
+        @Schema(description = "Distinct resource types", example = "[\"FILE\", \"DIRECTORY\"]")
+        List<ResourceType> types,
+
+        @Schema(description = "Index into types for every entry", example = "[0, 1]")
+        int[] type
+) {
+
+    public static ResourceColumnsDTO of(List<ResourceDTO> resources) {
+        List<String> parents = new ArrayList<>();
+        Map<String, Integer> parentIndex = new HashMap<>();
+        List<ResourceType> types = new ArrayList<>();
+        Map<ResourceType, Integer> typeIndex = new HashMap<>();
+
+        int[] parent = new int[resources.size()];
+        int[] type = new int[resources.size()];
+        List<String> name = new ArrayList<>(resources.size());
+        List<Long> size = new ArrayList<>(resources.size());
+
+        for (int i = 0; i < resources.size(); i++) {
+            ResourceDTO resource = resources.get(i);
+            parent[i] = parentIndex.computeIfAbsent(resource.getPath(), path -> {
+                parents.add(path);
+                return parents.size() - 1;
+            });
+            type[i] = typeIndex.computeIfAbsent(resource.getType(), resourceType -> {
+                types.add(resourceType);
+                return types.size() - 1;
+            });
+            name.add(resource.getName());
+            size.add(resource.getSize());
+        }
+        return new ResourceColumnsDTO(parents, parent, name, size, types, type);
+    }
+}
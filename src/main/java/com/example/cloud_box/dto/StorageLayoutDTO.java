@@ -0,0 +1,16 @@
+package com.example.cloud_box.dto;
+
+import com.example.cloud_box.model.StorageLayout;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Where the objects of a user are stored")
+public record StorageLayoutDTO(
+        @Schema(description = "Username", example = "alice")
+        String username,
+
+        @Schema(description = "Layout of the user's objects: LEGACY, COPYING, SYNCING or SHARDED", example = "SHARDED")
+        StorageLayout layout,
+
+        @Schema(description = "Bucket the user's objects are read from", example = "user-files-2")
+        String bucket
+) {}
@@ -0,0 +1,21 @@
+package com.example.cloud_box.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Signed tokens for stateless authentication")
+public record TokenResponseDTO(
+        @Schema(description = "Logged in username", example = "john_week")
+        String username,
+
+        @Schema(description = "Short-lived access token, sent as 'Authorization: Bearer <token>'")
+        String accessToken,
+
+        @Schema(description = "Long-lived token used once to obtain a new token pair")
+        String refreshToken,
+
+        @Schema(description = "Token type", example = "Bearer")
+        String tokenType,
+
+        @Schema(description = "Lifetime of the access token in seconds", example = "900")
+        long expiresIn
+) {}
@@ -0,0 +1,7 @@
+package com.example.cloud_box.exception;
+
+public class OperationCancelledException extends RuntimeException {
+    public OperationCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.Download")
+@Label("Download")
+@Description("File download to a client")
+public class DownloadEvent extends StorageEvent {
+}
@@ -0,0 +1,17 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.MinioCall")
+@Label("MinIO Call")
+@Description("One HTTP request to MinIO")
+public class MinioCallEvent extends StorageEvent {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Status")
+    public int status;
+}
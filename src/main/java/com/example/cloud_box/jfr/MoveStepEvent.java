@@ -0,0 +1,11 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.MoveStep")
+@Label("Move Step")
+@Description("One object copied while moving a file or folder")
+public class MoveStepEvent extends StorageEvent {
+}
@@ -0,0 +1,14 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.SearchScan")
+@Label("Search Scan")
+@Description("Listing of a user's tree scanned for a search query")
+public class SearchScanEvent extends StorageEvent {
+
+    @Label("Objects Scanned")
+    public long objects;
+}
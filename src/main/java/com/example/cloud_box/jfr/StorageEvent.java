@@ -0,0 +1,25 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the app's Flight Recorder events: an object key and a byte count, with the duration
+ * between {@code begin()} and {@code commit()}. Events cost next to nothing while no recording runs.
+ */
+@Category({"CloudBox", "Storage"})
+@StackTrace(false)
+public abstract class StorageEvent extends Event {
+
+    @Label("Key")
+    @Description("Object key or path the operation worked on")
+    public String key;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,11 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.Upload")
+@Label("Upload")
+@Description("File upload into storage, standalone or packed")
+public class UploadEvent extends StorageEvent {
+}
@@ -0,0 +1,11 @@
+package com.example.cloud_box.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cloudbox.ZipEntry")
+@Label("Zip Entry")
+@Description("One file written into a folder archive")
+public class ZipEntryEvent extends StorageEvent {
+}
@@ -0,0 +1,7 @@
+package com.example.cloud_box.model;
+
+public enum BatchOperationType {
+    DELETE,
+    MOVE,
+    MKDIR
+}
@@ -0,0 +1,8 @@
+package com.example.cloud_box.model;
+
+public enum ChangeType {
+    UPLOAD,
+    MKDIR,
+    MOVE,
+    DELETE
+}
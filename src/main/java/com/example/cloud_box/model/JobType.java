@@ -0,0 +1,8 @@
+package com.example.cloud_box.model;
+
+public enum JobType {
+    DELETE,
+    MOVE,
+    ARCHIVE,
+    MIGRATE
+}
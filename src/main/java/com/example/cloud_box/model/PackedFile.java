@@ -0,0 +1,52 @@
+package com.example.cloud_box.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A small file stored as a byte range of a segment object instead of an object of its own.
+ */
+@Entity
+@Table(name = "packed_files", indexes = @Index(name = "idx_packed_files_segment", columnList = "segmentKey"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PackedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 768)
+    private String objectName; // full key the file would have as an object of its own
+
+    @Column(nullable = false, length = 255)
+    private String segmentKey;
+
+    @Column(name = "segment_offset", nullable = false)
+    private long offset;
+
+    @Column(nullable = false)
+    private long length;
+
+    @Column(length = 255)
+    private String contentType;
+
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Version
+    private Long version; // compaction and uploads may rewrite the same row concurrently
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
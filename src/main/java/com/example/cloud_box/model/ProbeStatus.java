@@ -0,0 +1,7 @@
+package com.example.cloud_box.model;
+
+public enum ProbeStatus {
+    MISSING,
+    DIFFERENT,
+    IDENTICAL
+}
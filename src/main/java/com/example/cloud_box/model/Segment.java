@@ -0,0 +1,42 @@
+package com.example.cloud_box.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only object holding the content of packed files back to back.
+ */
+@Entity
+@Table(name = "segments")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Segment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 255)
+    private String objectKey;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private long liveBytes; // bytes still referenced by packed files
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime retiredAt; // compacted away; deleted once readers had time to finish
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.cloud_box.model;
+
+/**
+ * Where the objects of a user live. LEGACY users are in the default bucket, SHARDED users in
+ * their shard bucket. COPYING and SYNCING are the steps of a migration: reads still go to the
+ * default bucket, and while SYNCING the user's writes are rejected.
+ */
+public enum StorageLayout {
+    LEGACY,
+    COPYING,
+    SYNCING,
+    SHARDED
+}
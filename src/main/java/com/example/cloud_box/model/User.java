@@ -23,6 +23,19 @@ public class User {
     @Column(nullable = false, length = 100)
     private String password; // hashed password
 
+    @Column(length = 20)
+    private String plan; // bandwidth plan, null means the default plan
+
+    @Column(nullable = false)
+    private boolean admin; // granted by an operator in the database, never through the API
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private StorageLayout storageLayout; // null means LEGACY
+
+    @Column(length = 63)
+    private String storageBucket; // shard bucket, set once a migration starts
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,30 @@
+package com.example.cloud_box.repository;
+
+import com.example.cloud_box.model.PackedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PackedFileRepository extends JpaRepository<PackedFile, Long> {
+    Optional<PackedFile> findByObjectName(String objectName);
+
+    List<PackedFile> findByObjectNameIn(Collection<String> objectNames);
+
+    List<PackedFile> findByObjectNameStartingWithOrderByObjectName(String prefix);
+
+    boolean existsByObjectNameStartingWith(String prefix);
+
+    List<PackedFile> findBySegmentKey(String segmentKey);
+
+    // the pattern is a LIKE prefix escaped with '!'; start is the 1-based position right after the prefix
+    @Query("SELECT p FROM PackedFile p WHERE p.objectName LIKE :pattern ESCAPE '!' "
+            + "AND LOCATE('/', p.objectName, :start) = 0 ORDER BY p.objectName")
+    List<PackedFile> findDirectChildren(String pattern, int start);
+
+    @Query("SELECT DISTINCT SUBSTRING(p.objectName, 1, LOCATE('/', p.objectName, :start)) FROM PackedFile p "
+            + "WHERE p.objectName LIKE :pattern ESCAPE '!' AND LOCATE('/', p.objectName, :start) > 0")
+    List<String> findChildFolders(String pattern, int start);
+}
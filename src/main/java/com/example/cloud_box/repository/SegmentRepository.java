@@ -0,0 +1,24 @@
+package com.example.cloud_box.repository;
+
+import com.example.cloud_box.model.Segment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SegmentRepository extends JpaRepository<Segment, Long> {
+    Optional<Segment> findByObjectKey(String objectKey);
+
+    @Query("SELECT s FROM Segment s WHERE s.retiredAt IS NULL AND s.createdAt < :createdBefore "
+            + "AND s.liveBytes * 100 <= s.size * :maxLivePercent")
+    List<Segment> findCompactionCandidates(LocalDateTime createdBefore, long maxLivePercent);
+
+    List<Segment> findByRetiredAtBefore(LocalDateTime retiredBefore);
+
+    @Modifying
+    @Query("UPDATE Segment s SET s.liveBytes = s.liveBytes + :delta WHERE s.objectKey = :objectKey")
+    void addLiveBytes(String objectKey, long delta);
+}
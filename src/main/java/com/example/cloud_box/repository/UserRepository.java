@@ -1,11 +1,13 @@
 package com.example.cloud_box.repository;
 
+import com.example.cloud_box.model.StorageLayout;
 import com.example.cloud_box.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User,Long> {
@@ -17,4 +19,16 @@ public interface UserRepository extends JpaRepository<User,Long> {
     @Query("DELETE FROM User u WHERE u.username = :username")
     void deleteByUsername(String username);
 
+    // null layouts are legacy users, created before sharding existed
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.storageLayout = com.example.cloud_box.model.StorageLayout.COPYING, u.storageBucket = :bucket "
+            + "WHERE u.id = :id AND (u.storageLayout IS NULL OR u.storageLayout IN :from)")
+    int claimForMigration(Long id, Collection<StorageLayout> from, String bucket);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.storageLayout = :layout WHERE u.id = :id")
+    void updateStorageLayout(Long id, StorageLayout layout);
+
 }
@@ -0,0 +1,163 @@
+package com.example.cloud_box.security;
+
+import com.example.cloud_box.config.SessionCacheProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.session.web.http.CookieHttpSessionIdResolver;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.session.web.http.DefaultCookieSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Near-cache for the authentication stored in the Redis session.
+ * A request whose session id was seen within the TTL is authenticated from memory and never loads the
+ * session, which saves the Redis round trip and the deserialization. Once an entry is older than the TTL
+ * the session is loaded again, which also refreshes its expiry in Redis.
+ * Entries are dropped when the session is deleted, expires or is evicted in Redis (keyspace notifications),
+ * and when a context is saved through this repository. Other changes made on another instance become
+ * visible after the TTL at the latest.
+ */
+@Component
+public class CachingSecurityContextRepository implements SecurityContextRepository, MessageListener {
+
+    private static final Set<String> REMOVAL_EVENTS = Set.of("del", "expired", "evicted", "rename_from");
+
+    private final SecurityContextRepository delegate = new DelegatingSecurityContextRepository(
+            new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository());
+    private final CookieHttpSessionIdResolver sessionIdResolver = new CookieHttpSessionIdResolver();
+    private final SessionCacheProperties properties;
+    private final String sessionKeyPrefix;
+    private final ConcurrentMap<String, CachedAuthentication> cache = new ConcurrentHashMap<>();
+
+    public CachingSecurityContextRepository(SessionCacheProperties properties,
+                                            ObjectProvider<CookieSerializer> cookieSerializer,
+                                            @Value("${spring.session.redis.namespace:spring:session}") String namespace) {
+        this.properties = properties;
+        this.sessionKeyPrefix = namespace + ":sessions:";
+        this.sessionIdResolver.setCookieSerializer(cookieSerializer.getIfAvailable(DefaultCookieSerializer::new));
+    }
+
+    public String getSessionKeyPrefix() {
+        return sessionKeyPrefix;
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        String sessionId = properties.isEnabled() ? requestedSessionId(request) : null;
+        if (sessionId == null) {
+            return delegate.loadDeferredContext(request);
+        }
+
+        CachedAuthentication cached = cache.get(sessionId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            SecurityContext context = new SecurityContextImpl(cached.authentication());
+            return new DeferredSecurityContext() {
+                @Override
+                public SecurityContext get() {
+                    return context;
+                }
+
+                @Override
+                public boolean isGenerated() {
+                    return false;
+                }
+            };
+        }
+
+        DeferredSecurityContext loaded = delegate.loadDeferredContext(request);
+        return new DeferredSecurityContext() {
+            @Override
+            public SecurityContext get() {
+                SecurityContext context = loaded.get();
+                if (!loaded.isGenerated()) {
+                    put(sessionId, context.getAuthentication());
+                }
+                return context;
+            }
+
+            @Override
+            public boolean isGenerated() {
+                return loaded.isGenerated();
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return delegate.loadContext(requestResponseHolder);
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        delegate.saveContext(context, request, response);
+        sessionIdResolver.resolveSessionIds(request).forEach(cache::remove);
+        HttpSession session = request.getSession(false);
+        if (session != null && properties.isEnabled()) {
+            cache.remove(session.getId());
+            put(session.getId(), context.getAuthentication());
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return delegate.containsContext(request);
+    }
+
+    // keyspace notification: channel "__keyspace@<db>__:<key>", body is the event name
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String event = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (!REMOVAL_EVENTS.contains(event)) {
+            return;
+        }
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int keyStart = channel.indexOf(sessionKeyPrefix);
+        if (keyStart >= 0) {
+            cache.remove(channel.substring(keyStart + sessionKeyPrefix.length()));
+        }
+    }
+
+    private String requestedSessionId(HttpServletRequest request) {
+        List<String> sessionIds = sessionIdResolver.resolveSessionIds(request);
+        return sessionIds.isEmpty() ? null : sessionIds.get(0);
+    }
+
+    private void put(String sessionId, Authentication authentication) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken || !authentication.isAuthenticated()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (cache.size() >= properties.getMaxEntries()) {
+            cache.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (cache.size() >= properties.getMaxEntries()) {
+                return;
+            }
+        }
+        cache.put(sessionId, new CachedAuthentication(authentication, now + properties.getTtlSeconds() * 1000L));
+    }
+
+    private record CachedAuthentication(Authentication authentication, long expiresAt) {
+    }
+}
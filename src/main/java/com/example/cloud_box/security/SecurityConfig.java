@@ -1,31 +1,47 @@
 package com.example.cloud_box.security;
 
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
+    private final CachingSecurityContextRepository securityContextRepository;
+    private final TokenAuthenticationFilter tokenAuthenticationFilter;
+    private final UserRepository userRepository;
 
-    public SecurityConfig(UserDetailsService userDetailsService) {
+    public SecurityConfig(UserDetailsService userDetailsService,
+                          CachingSecurityContextRepository securityContextRepository,
+                          TokenAuthenticationFilter tokenAuthenticationFilter,
+                          UserRepository userRepository) {
         this.userDetailsService = userDetailsService;
+        this.securityContextRepository = securityContextRepository;
+        this.tokenAuthenticationFilter = tokenAuthenticationFilter;
+        this.userRepository = userRepository;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
                 )
@@ -40,10 +56,19 @@ public class SecurityConfig {
                                 "/assets/**",
                                 "/api/auth/sign-in",
                                 "/api/auth/sign-up",
+                                "/api/auth/token/refresh",
+                                "/api/auth/token/revoke",
+                                "/actuator/health",
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**").permitAll()
+                        // the admin flag is read on every admin request, so revoking it takes effect at once;
+                        // sessions and bearer tokens both carry the username
+                        .requestMatchers("/api/admin/**").access((authentication, context) ->
+                                new AuthorizationDecision(isAdmin(authentication.get())))
                         .anyRequest().authenticated()
                 )
+                // bearer tokens override the session context for the request; a no-op when tokens are disabled
+                .addFilterAfter(tokenAuthenticationFilter, SecurityContextHolderFilter.class)
                 .formLogin(AbstractHttpConfigurer::disable)
                 .httpBasic(AbstractHttpConfigurer::disable);
 
@@ -51,6 +76,13 @@ public class SecurityConfig {
     }
 
 
+    private boolean isAdmin(Authentication authentication) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)
+                && userRepository.findByUsername(authentication.getName()).map(User::isAdmin).orElse(false);
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
         AuthenticationManagerBuilder builder = http.getSharedObject(AuthenticationManagerBuilder.class);
@@ -0,0 +1,45 @@
+package com.example.cloud_box.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+
+/**
+ * Writes session attributes as JSON using the Spring Security Jackson modules, which is smaller and
+ * much cheaper to read than JDK serialization. Values written by JDK serialization before the switch
+ * are still readable, so existing sessions survive a deployment.
+ */
+public class SessionRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte JDK_STREAM_MAGIC_0 = (byte) 0xAC;
+    private static final byte JDK_STREAM_MAGIC_1 = (byte) 0xED;
+
+    private final GenericJackson2JsonRedisSerializer json;
+    private final JdkSerializationRedisSerializer jdk;
+
+    public SessionRedisSerializer(ClassLoader classLoader) {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModules(SecurityJackson2Modules.getModules(classLoader));
+        this.json = new GenericJackson2JsonRedisSerializer(mapper);
+        this.jdk = new JdkSerializationRedisSerializer(classLoader);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        return json.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length > 1 && bytes[0] == JDK_STREAM_MAGIC_0 && bytes[1] == JDK_STREAM_MAGIC_1) {
+            return jdk.deserialize(bytes);
+        }
+        return json.deserialize(bytes);
+    }
+}
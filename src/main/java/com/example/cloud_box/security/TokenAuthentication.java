@@ -0,0 +1,38 @@
+package com.example.cloud_box.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+import java.util.List;
+
+/**
+ * Authentication built from a verified access token. It carries the user id,
+ * so the request needs neither a session nor a user lookup.
+ */
+public class TokenAuthentication extends AbstractAuthenticationToken {
+
+    private final TokenClaims claims;
+
+    public TokenAuthentication(TokenClaims claims) {
+        super(List.of());
+        this.claims = claims;
+        setAuthenticated(true);
+    }
+
+    public Long getUserId() {
+        return claims.userId();
+    }
+
+    public TokenClaims getClaims() {
+        return claims;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return claims.username();
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.cloud_box.security;
+
+public record TokenClaims(Long userId, String username, String type, String id, long expiresAt) {
+}
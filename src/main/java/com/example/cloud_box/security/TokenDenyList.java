@@ -0,0 +1,135 @@
+package com.example.cloud_box.security;
+
+import com.example.cloud_box.config.TokenProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ids of revoked tokens that have not expired yet. Every node keeps the list in memory, so checking
+ * a token never leaves the process. Revocations are stored in Redis with the remaining token lifetime
+ * as TTL and broadcast over pub/sub; a periodic resync covers messages missed during a reconnect.
+ */
+@Slf4j
+@Component
+public class TokenDenyList implements MessageListener {
+
+    public static final String CHANNEL = "cloudbox:token:revoked";
+    private static final String KEY_PREFIX = "cloudbox:token:denied:";
+    private static final String SEPARATOR = ":";
+
+    private final StringRedisTemplate redisTemplate;
+    private final TokenProperties properties;
+    private final ConcurrentMap<String, Long> denied = new ConcurrentHashMap<>();
+    private ScheduledExecutorService syncExecutor;
+
+    public TokenDenyList(StringRedisTemplate redisTemplate, TokenProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-deny-list-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::sync, 0, properties.getDenyListSyncSeconds(), TimeUnit.SECONDS);
+    }
+
+    public void deny(String tokenId, long expiresAt) {
+        long remaining = expiresAt - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return;
+        }
+        denied.put(tokenId, expiresAt);
+        redisTemplate.opsForValue().set(KEY_PREFIX + tokenId, String.valueOf(expiresAt), Duration.ofMillis(remaining));
+        redisTemplate.convertAndSend(CHANNEL, tokenId + SEPARATOR + expiresAt);
+    }
+
+    /**
+     * Revokes the token only if nobody has revoked it before, atomically across nodes.
+     * Returns false when the token was already revoked or consumed.
+     */
+    public boolean consume(String tokenId, long expiresAt) {
+        long remaining = expiresAt - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        Boolean first = redisTemplate.opsForValue()
+                .setIfAbsent(KEY_PREFIX + tokenId, String.valueOf(expiresAt), Duration.ofMillis(remaining));
+        if (!Boolean.TRUE.equals(first)) {
+            return false;
+        }
+        denied.put(tokenId, expiresAt);
+        redisTemplate.convertAndSend(CHANNEL, tokenId + SEPARATOR + expiresAt);
+        return true;
+    }
+
+    public boolean isDenied(String tokenId) {
+        Long expiresAt = denied.get(tokenId);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            denied.remove(tokenId, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(SEPARATOR);
+        if (separator > 0) {
+            try {
+                denied.put(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                log.warn("[TokenDenyList.onMessage] Ignoring malformed revocation: " + body);
+            }
+        }
+    }
+
+    private void sync() {
+        long now = System.currentTimeMillis();
+        denied.values().removeIf(expiresAt -> expiresAt <= now);
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(500).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String expiresAt = redisTemplate.opsForValue().get(key);
+                if (expiresAt != null) {
+                    denied.put(key.substring(KEY_PREFIX.length()), Long.parseLong(expiresAt));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[TokenDenyList.sync] Failed to sync revoked tokens: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+}
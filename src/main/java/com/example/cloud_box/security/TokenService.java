@@ -0,0 +1,186 @@
+package com.example.cloud_box.security;
+
+import com.example.cloud_box.config.TokenProperties;
+import com.example.cloud_box.dto.TokenResponseDTO;
+import com.example.cloud_box.exception.InvalidCredentialsException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Issues and verifies HS256-signed tokens (JWT compact form).
+ * Access tokens are short-lived and verified by signature alone; refresh tokens are single-use
+ * and rotated on every refresh. Revoked tokens are rejected through {@link TokenDenyList}.
+ */
+@Service
+public class TokenService {
+
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+    public static final String TOKEN_TYPE = "Bearer";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {
+    };
+
+    private final TokenProperties properties;
+    private final TokenDenyList denyList;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecretKeySpec key;
+
+    public TokenService(TokenProperties properties, TokenDenyList denyList, UserRepository userRepository) {
+        this.properties = properties;
+        this.denyList = denyList;
+        this.userRepository = userRepository;
+        this.key = properties.isEnabled() ? signingKey(properties.getSecret()) : null;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public TokenResponseDTO issue(String username) {
+        requireEnabled();
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new InvalidCredentialsException("User not found"));
+        return issue(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair. The presented refresh token is consumed in Redis
+     * with SET NX, so of concurrent refreshes with the same token, on any nodes, only one succeeds,
+     * and a stolen refresh token stops working as soon as either party uses it.
+     */
+    public TokenResponseDTO refresh(String refreshToken) {
+        requireEnabled();
+        TokenClaims claims = verify(refreshToken, REFRESH);
+        if (!denyList.consume(claims.id(), claims.expiresAt())) {
+            throw new InvalidCredentialsException("Token revoked");
+        }
+        User user = userRepository.findById(claims.userId())
+                .orElseThrow(() -> new InvalidCredentialsException("User not found"));
+        return issue(user.getId(), user.getUsername());
+    }
+
+    public void revoke(String token, String expectedType) {
+        requireEnabled();
+        TokenClaims claims = verify(token, expectedType);
+        denyList.deny(claims.id(), claims.expiresAt());
+    }
+
+    public TokenClaims verify(String token, String expectedType) {
+        String[] parts = token == null ? new String[0] : token.split("\\.");
+        if (parts.length != 3 || !HEADER.equals(parts[0])) {
+            throw new InvalidCredentialsException("Malformed token");
+        }
+        byte[] expected = sign(parts[0] + "." + parts[1]);
+        byte[] actual;
+        try {
+            actual = Base64.getUrlDecoder().decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCredentialsException("Malformed token");
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new InvalidCredentialsException("Invalid token signature");
+        }
+
+        Map<String, Object> payload;
+        try {
+            payload = objectMapper.readValue(Base64.getUrlDecoder().decode(parts[1]), CLAIMS_TYPE);
+        } catch (Exception e) {
+            throw new InvalidCredentialsException("Malformed token");
+        }
+        long expiresAt = ((Number) payload.getOrDefault("exp", 0)).longValue() * 1000;
+        TokenClaims claims = new TokenClaims(
+                Long.valueOf(String.valueOf(payload.get("sub"))),
+                String.valueOf(payload.get("name")),
+                String.valueOf(payload.get("typ")),
+                String.valueOf(payload.get("jti")),
+                expiresAt);
+
+        if (!properties.getIssuer().equals(payload.get("iss")) || !expectedType.equals(claims.type())) {
+            throw new InvalidCredentialsException("Invalid token");
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            throw new InvalidCredentialsException("Token expired");
+        }
+        // refresh tokens are checked against Redis when they are consumed, the local list may lag behind
+        if (ACCESS.equals(claims.type()) && denyList.isDenied(claims.id())) {
+            throw new InvalidCredentialsException("Token revoked");
+        }
+        return claims;
+    }
+
+    private TokenResponseDTO issue(Long userId, String username) {
+        String accessToken = token(userId, username, ACCESS, properties.getAccessTokenTtlSeconds());
+        String refreshToken = token(userId, username, REFRESH, properties.getRefreshTokenTtlSeconds());
+        return new TokenResponseDTO(username, accessToken, refreshToken, TOKEN_TYPE, properties.getAccessTokenTtlSeconds());
+    }
+
+    private String token(Long userId, String username, String type, long ttlSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", properties.getIssuer());
+        claims.put("sub", userId.toString());
+        claims.put("name", username);
+        claims.put("typ", type);
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iat", now);
+        claims.put("exp", now + ttlSeconds);
+        try {
+            String payload = base64Url(objectMapper.writeValueAsBytes(claims));
+            String unsigned = HEADER + "." + payload;
+            return unsigned + "." + base64Url(sign(unsigned));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create token", e);
+        }
+    }
+
+    private byte[] sign(String data) {
+        requireEnabled();
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign token", e);
+        }
+    }
+
+    private void requireEnabled() {
+        if (!properties.isEnabled()) {
+            throw new InvalidInputException("Token authentication is disabled");
+        }
+    }
+
+    private static SecretKeySpec signingKey(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("auth.token.secret must be set when token authentication is enabled");
+        }
+        byte[] bytes = Base64.getDecoder().decode(secret);
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("auth.token.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        return new SecretKeySpec(bytes, HMAC_ALGORITHM);
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.AdmissionProperties;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for heavy operations. At most a global number of them run at once, and each
+ * user at most a few. Requests over the limits wait in per-user FIFO queues, and freed slots go to
+ * the waiting users in turn, so a user with many requests queued does not delay everybody else.
+ * A request that cannot be queued, or is not admitted before its deadline, fails with 429.
+ */
+@Slf4j
+@Service
+public class AdmissionService {
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, UserQueue> users = new HashMap<>();
+    // users with waiting requests, in the order their next request is admitted
+    private final ArrayDeque<UserQueue> turns = new ArrayDeque<>();
+    private int running;
+    private int waiting;
+
+    public AdmissionService(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.running", this, service -> service.count(true))
+                .description("Heavy operations running")
+                .register(meterRegistry);
+        Gauge.builder("admission.waiting", this, service -> service.count(false))
+                .description("Heavy operations waiting for admission")
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Long userId, String operation, Supplier<T> task) {
+        if (!properties.isEnabled()) {
+            return task.get();
+        }
+        UserQueue queue = acquire(userId, operation);
+        try {
+            return task.get();
+        } finally {
+            release(queue);
+        }
+    }
+
+    public void run(Long userId, String operation, Runnable task) {
+        call(userId, operation, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private UserQueue acquire(Long userId, String operation) {
+        lock.lock();
+        try {
+            UserQueue queue = users.computeIfAbsent(userId, UserQueue::new);
+            // slots are handed out as soon as they free up, so while there is room nobody eligible is waiting
+            if (running < properties.getGlobalConcurrency() && queue.running < properties.getPerUserConcurrency()) {
+                admit(queue);
+                return queue;
+            }
+            if (waiting >= properties.getQueueCapacity() || queue.waiters.size() >= properties.getPerUserQueueCapacity()) {
+                throw reject(queue, operation, "Too many heavy operations are running, try again later");
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            if (queue.waiters.isEmpty()) {
+                turns.addLast(queue);
+            }
+            queue.waiters.addLast(waiter);
+            waiting++;
+            long remaining = TimeUnit.MILLISECONDS.toNanos(properties.getQueueTimeoutMillis());
+            try {
+                while (!waiter.admitted) {
+                    if (remaining <= 0) {
+                        withdraw(queue, waiter);
+                        throw reject(queue, operation, "Timed out waiting for a slot, try again later");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.admitted) {
+                    release(queue);
+                } else {
+                    withdraw(queue, waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new InternalServerException("Interrupted while waiting for admission", e);
+            }
+            return queue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(UserQueue queue) {
+        lock.lock();
+        try {
+            running--;
+            queue.running--;
+            dispatch();
+            forgetIfIdle(queue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // gives free slots to waiting users in turn, skipping users already at their own limit
+    private void dispatch() {
+        int skipped = 0;
+        while (running < properties.getGlobalConcurrency() && skipped < turns.size()) {
+            UserQueue queue = turns.pollFirst();
+            if (queue.running >= properties.getPerUserConcurrency()) {
+                turns.addLast(queue);
+                skipped++;
+                continue;
+            }
+            Waiter waiter = queue.waiters.pollFirst();
+            waiting--;
+            waiter.admitted = true;
+            admit(queue);
+            waiter.condition.signal();
+            if (!queue.waiters.isEmpty()) {
+                turns.addLast(queue);
+            }
+            skipped = 0;
+        }
+    }
+
+    private void admit(UserQueue queue) {
+        running++;
+        queue.running++;
+    }
+
+    private void withdraw(UserQueue queue, Waiter waiter) {
+        queue.waiters.remove(waiter);
+        waiting--;
+        if (queue.waiters.isEmpty()) {
+            turns.remove(queue);
+        }
+        forgetIfIdle(queue);
+    }
+
+    private void forgetIfIdle(UserQueue queue) {
+        if (queue.running == 0 && queue.waiters.isEmpty()) {
+            users.remove(queue.userId);
+        }
+    }
+
+    private TooManyRequestsException reject(UserQueue queue, String operation, String message) {
+        forgetIfIdle(queue);
+        Counter.builder("admission.rejected")
+                .description("Heavy operations rejected by admission control")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+        log.warn("[AdmissionService.acquire] Rejected " + operation + " of user " + queue.userId
+                + " (running " + running + ", waiting " + waiting + ")");
+        return new TooManyRequestsException(message, properties.getRetryAfterSeconds());
+    }
+
+    private int count(boolean active) {
+        lock.lock();
+        try {
+            return active ? running : waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class UserQueue {
+        private final Long userId;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int running;
+
+        private UserQueue(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean admitted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
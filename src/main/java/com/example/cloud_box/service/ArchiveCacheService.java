@@ -0,0 +1,271 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ArchiveCacheProperties;
+import com.example.cloud_box.config.MinioProperties;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.model.PackedFile;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps generated folder archives under the hidden system prefix.
+ * An archive is keyed by a fingerprint of the folder contents (relative keys, sizes, and ETags or,
+ * for packed files, SHA-256s), so any write under the folder yields a new key and old archives
+ * simply expire by lifecycle rule.
+ */
+@Slf4j
+@Service
+public class ArchiveCacheService {
+
+    public static final String ARCHIVES_FOLDER = "archives/";
+
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
+    private static final String ATTACHMENT_FILENAME_FORMAT = "attachment; filename=\"%s\"";
+    private static final String RANGE_UNIT_BYTES = "bytes";
+    private static final int MAX_BUILD_ATTEMPTS = 2;
+
+    private final MinioService minioService;
+    private final ArchiveCacheProperties properties;
+    private final String archivePrefix;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public ArchiveCacheService(MinioService minioService, ArchiveCacheProperties properties, MinioProperties minioProperties) {
+        this.minioService = minioService;
+        this.properties = properties;
+        this.archivePrefix = minioProperties.getSystemPrefix() + ARCHIVES_FOLDER;
+    }
+
+    @FunctionalInterface
+    public interface ArchiveWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String archiveKey(String folderPath, List<Item> items, List<PackedFile> packedFiles) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Item item : items) {
+                String relativeName = item.objectName().substring(folderPath.length());
+                digest.update(relativeName.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(item.etag()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Long.toString(item.size()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            for (PackedFile file : packedFiles) {
+                String relativeName = file.getObjectName().substring(folderPath.length());
+                digest.update(relativeName.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(file.getSha256()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Long.toString(file.getLength()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return archivePrefix + HexFormat.of().formatHex(digest.digest()) + ".zip";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Optional<StatObjectResponse> find(String archiveKey) {
+        return minioService.findFileStat(archiveKey);
+    }
+
+    /**
+     * Returns the key of the cached archive, building and storing it first when missing.
+     * Concurrent callers for the same archive wait for a single build.
+     */
+    public String getOrCreate(String archiveKey, ArchiveWriter writer) {
+        for (int attempt = 1; ; attempt++) {
+            if (find(archiveKey).isPresent()) {
+                return archiveKey;
+            }
+            CompletableFuture<String> build = new CompletableFuture<>();
+            CompletableFuture<String> running = inFlight.putIfAbsent(archiveKey, build);
+            if (running == null) {
+                try {
+                    buildAndStore(archiveKey, null, writer);
+                    build.complete(archiveKey);
+                    return archiveKey;
+                } catch (RuntimeException e) {
+                    build.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(archiveKey, build);
+                }
+            }
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                // the other build may have been a download aborted by its client; build it ourselves
+                if (attempt >= MAX_BUILD_ATTEMPTS) {
+                    throw new InternalServerException("Failed to build folder archive", e.getCause());
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams a freshly generated archive to the client and, unless another request is already
+     * storing the same archive, keeps a copy that is uploaded to the cache once the stream completes.
+     */
+    public void streamAndStore(String archiveKey, OutputStream clientStream, ArchiveWriter writer) throws IOException {
+        CompletableFuture<String> build = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(archiveKey, build) != null) {
+            writer.write(clientStream);
+            return;
+        }
+        try {
+            buildAndStore(archiveKey, clientStream, writer);
+            build.complete(archiveKey);
+        } catch (RuntimeException e) {
+            build.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(archiveKey, build);
+        }
+    }
+
+    public void serve(String archiveKey, String fileName, HttpServletRequest request, HttpServletResponse response) {
+        StatObjectResponse stat = minioService.getFileStat(archiveKey);
+        long length = stat.size();
+        String etag = "\"" + stat.etag() + "\"";
+
+        response.setContentType(ZIP_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ATTACHMENT_FILENAME_FORMAT.formatted(fileName));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, RANGE_UNIT_BYTES);
+        response.setHeader(HttpHeaders.ETAG, etag);
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        long offset = 0;
+        long count = length;
+
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    offset = ranges.get(0).getRangeStart(length);
+                    count = ranges.get(0).getRangeEnd(length) - offset + 1;
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            RANGE_UNIT_BYTES + " " + offset + "-" + (offset + count - 1) + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, RANGE_UNIT_BYTES + " */" + length);
+                return;
+            }
+        }
+        response.setContentLengthLong(count);
+
+        if (count == 0) {
+            return;
+        }
+        try (InputStream inputStream = minioService.downloadFile(archiveKey, offset, count)) {
+            inputStream.transferTo(response.getOutputStream());
+            response.flushBuffer();
+        } catch (IOException e) {
+            throw new InternalServerException("I/O error during archive download", e);
+        } catch (Exception e) {
+            throw new InternalServerException("Failed to download cached archive", e);
+        }
+    }
+
+    private void buildAndStore(String archiveKey, OutputStream clientStream, ArchiveWriter writer) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("cloudbox-archive-", ".zip");
+            try (OutputStream fileStream = Files.newOutputStream(tempFile)) {
+                writer.write(clientStream == null ? fileStream : new TeeOutputStream(clientStream, fileStream));
+            }
+            try (InputStream in = Files.newInputStream(tempFile)) {
+                minioService.uploadFile(archiveKey, in, ZIP_CONTENT_TYPE);
+            } catch (RuntimeException e) {
+                if (clientStream == null) {
+                    throw e;
+                }
+                // the client already has the whole archive, only the cached copy is lost
+                log.warn("[ArchiveCacheService] Failed to store archive " + archiveKey + ": " + e.getMessage());
+            }
+        } catch (IOException e) {
+            throw new InternalServerException("Failed to build folder archive", e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("[ArchiveCacheService] Failed to delete temp file: " + tempFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes to the client and to the local copy. Closing it closes both, so the client
+     * receives the complete response before the copy is uploaded.
+     */
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream client;
+        private final OutputStream copy;
+
+        TeeOutputStream(OutputStream client, OutputStream copy) {
+            this.client = client;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            client.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            client.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            client.flush();
+            copy.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                client.close();
+            } finally {
+                copy.close();
+            }
+        }
+    }
+}
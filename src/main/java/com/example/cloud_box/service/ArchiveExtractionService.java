@@ -0,0 +1,392 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ExtractProperties;
+import com.example.cloud_box.dto.ExtractResultDTO;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.exception.InvalidPathException;
+import com.example.cloud_box.exception.MinioOperationException;
+import com.example.cloud_box.model.ChangeType;
+import com.example.cloud_box.util.MimeTypes;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Extracts a zip or tar(.gz) stream into a folder while it is being received.
+ * Small entries are read into memory and written to MinIO on a worker pool, so the next entries
+ * are read while earlier ones are still uploading; the memory held by pending entries is bounded.
+ * Entries too large to buffer are streamed straight from the archive. Limits on entry count,
+ * total size and entry paths are checked as the archive is read, so a rejection can come after
+ * earlier entries were written; those are deleted again, except the ones that overwrote an existing
+ * file, whose previous content is gone. Changes are recorded once the extraction has ended.
+ */
+@Slf4j
+@Lazy
+@Service
+public class ArchiveExtractionService {
+
+    private static final int MAGIC_BYTES = 512;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+    private static final byte[] TAR_MAGIC = "ustar".getBytes(StandardCharsets.US_ASCII);
+
+    private final MinioService minioService;
+    private final ThumbnailService thumbnailService;
+    private final ChangeLogService changeLogService;
+    private final ExtractProperties properties;
+    private final PackedFileService packedFileService;
+    private final ThreadPoolExecutor executor;
+
+    public ArchiveExtractionService(MinioService minioService, ThumbnailService thumbnailService,
+                                    ChangeLogService changeLogService, ExtractProperties properties,
+                                    PackedFileService packedFileService) {
+        this.minioService = minioService;
+        this.thumbnailService = thumbnailService;
+        this.changeLogService = changeLogService;
+        this.properties = properties;
+        this.packedFileService = packedFileService;
+        AtomicInteger counter = new AtomicInteger();
+        // a saturated pool makes the reading thread upload too, which slows reading down
+        this.executor = new ThreadPoolExecutor(
+                properties.getWorkerThreads(),
+                properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "extract-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param targetPath normalized folder path ending with '/'
+     */
+    public ExtractResultDTO extract(Long userId, String targetPath, InputStream body) {
+        Extraction extraction = new Extraction(userId, existingFiles(targetPath));
+        try (ArchiveInputStream<? extends ArchiveEntry> archive = open(body)) {
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                extraction.failIfUploadFailed();
+                if (++extraction.entries > properties.getMaxEntries()) {
+                    throw new InvalidInputException("Archive has too many entries, max: " + properties.getMaxEntries());
+                }
+                String relativePath = safeRelativePath(entry.getName());
+                if (entry.isDirectory()) {
+                    extraction.directories.add(targetPath + relativePath + "/");
+                } else if (isRegularFile(entry) && archive.canReadEntryData(entry)) {
+                    extraction.addFile(targetPath + relativePath, new LimitedInputStream(archive, extraction));
+                } else if (!isRegularFile(entry)) {
+                    log.info("[ArchiveExtractionService.extract] Skipping non-regular entry " + entry.getName());
+                } else {
+                    throw new InvalidInputException("Unsupported compression or encryption in entry " + entry.getName());
+                }
+            }
+            extraction.awaitUploads();
+            extraction.failIfUploadFailed();
+        } catch (IOException e) {
+            extraction.rollback();
+            throw new InvalidInputException("Failed to read archive: " + e.getMessage());
+        } catch (RuntimeException e) {
+            extraction.rollback();
+            throw e;
+        }
+        extraction.commit();
+
+        List<String> directories = new ArrayList<>(extraction.directories);
+        if (!directories.isEmpty()) {
+            minioService.createDirectoryPlaceholders(directories);
+            directories.forEach(directory -> changeLogService.record(userId, ChangeType.MKDIR, directory, null));
+        }
+        log.info("[ArchiveExtractionService.extract] user " + userId + ": " + extraction.files.get() + " files, "
+                + directories.size() + " folders, " + extraction.totalBytes + " bytes into " + targetPath);
+        return new ExtractResultDTO(targetPath, extraction.files.get(), directories.size(), extraction.totalBytes);
+    }
+
+    // one recursive listing instead of a stat per entry; a rollback must not delete files that were there before
+    private Set<String> existingFiles(String targetPath) {
+        Set<String> existing = new HashSet<>();
+        try {
+            for (Result<Item> result : minioService.listObjects(targetPath, true)) {
+                existing.add(result.get().objectName());
+            }
+        } catch (MinioOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to list objects in: " + targetPath, e);
+        }
+        return existing;
+    }
+
+    private ArchiveInputStream<? extends ArchiveEntry> open(InputStream body) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(body);
+        byte[] head = peek(input, MAGIC_BYTES);
+        if (startsWith(head, 0, ZIP_MAGIC)) {
+            // stored entries followed by a data descriptor are what most streaming zip writers produce
+            return new ZipArchiveInputStream(input, StandardCharsets.UTF_8.name(), true, true);
+        }
+        if (startsWith(head, 0, GZIP_MAGIC)) {
+            BufferedInputStream tar = new BufferedInputStream(new GzipCompressorInputStream(input));
+            if (!startsWith(peek(tar, MAGIC_BYTES), TAR_MAGIC_OFFSET, TAR_MAGIC)) {
+                throw new InvalidInputException("Compressed upload is not a tar archive");
+            }
+            return new TarArchiveInputStream(tar);
+        }
+        if (startsWith(head, TAR_MAGIC_OFFSET, TAR_MAGIC)) {
+            return new TarArchiveInputStream(input);
+        }
+        throw new InvalidInputException("Unsupported archive format, expected zip, tar or tar.gz");
+    }
+
+    private static byte[] peek(BufferedInputStream input, int length) throws IOException {
+        input.mark(length);
+        byte[] head = input.readNBytes(length);
+        input.reset();
+        return head;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] magic) {
+        return data.length >= offset + magic.length
+                && Arrays.equals(data, offset, offset + magic.length, magic, 0, magic.length);
+    }
+
+    private static boolean isRegularFile(ArchiveEntry entry) {
+        return !(entry instanceof TarArchiveEntry tarEntry) || tarEntry.isFile();
+    }
+
+    // entry names come from the client: no absolute paths, no way out of the target folder
+    private static String safeRelativePath(String name) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : name.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..") || segment.indexOf(':') >= 0 || segment.chars().anyMatch(Character::isISOControl)) {
+                throw new InvalidPathException("Archive entry is not allowed: " + name);
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty() || name.startsWith("/") || name.startsWith("\\")) {
+            throw new InvalidPathException("Archive entry is not allowed: " + name);
+        }
+        return String.join("/", segments);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private class Extraction {
+        private final Long userId;
+        private final Set<String> existing;
+        private final Set<String> directories = new LinkedHashSet<>();
+        private final List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        private final Semaphore bufferedBytes = new Semaphore(properties.getMaxBufferedBytes());
+        private final AtomicInteger files = new AtomicInteger();
+        private final Queue<WrittenFile> written = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private int entries;
+        private long totalBytes;
+
+        Extraction(Long userId, Set<String> existing) {
+            this.userId = userId;
+            this.existing = existing;
+        }
+
+        void addFile(String objectName, InputStream content) throws IOException {
+            String contentType = URLConnection.guessContentTypeFromName(objectName);
+            String type = contentType != null ? contentType : MimeTypes.CONTENT_TYPE_OCTET_STREAM;
+            int threshold = Math.min(properties.getBufferedEntryBytes(), properties.getMaxBufferedBytes());
+            byte[] head = content.readNBytes(threshold + 1);
+            if (head.length <= threshold) {
+                acquire(head.length);
+                try {
+                    uploads.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            upload(objectName, new ByteArrayInputStream(head), type, head.length,
+                                    Map.of(MinioService.SHA256_METADATA, sha256(head)));
+                        } finally {
+                            bufferedBytes.release(head.length);
+                        }
+                    }, executor));
+                } catch (RuntimeException e) {
+                    bufferedBytes.release(head.length);
+                    throw e;
+                }
+            } else {
+                // the rest of the entry can only be read from the archive stream, so this one is written inline
+                upload(objectName, new SequenceInputStream(new ByteArrayInputStream(head), content), type, -1, Map.of());
+            }
+        }
+
+        private void upload(String objectName, InputStream content, String contentType, long size,
+                            Map<String, String> metadata) {
+            try {
+                minioService.uploadContent(objectName, content, contentType, size, metadata);
+                files.incrementAndGet();
+                written.add(new WrittenFile(objectName, contentType, existing.contains(objectName)));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+        }
+
+        private void acquire(int bytes) {
+            try {
+                bufferedBytes.acquire(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerException("Extraction interrupted", e);
+            }
+        }
+
+        void countBytes(long bytes) {
+            totalBytes += bytes;
+            if (totalBytes > properties.getMaxTotalBytes()) {
+                throw new InvalidInputException("Archive is too large when extracted, max bytes: " + properties.getMaxTotalBytes());
+            }
+        }
+
+        void failIfUploadFailed() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw new InternalServerException("Failed to write extracted file to storage", e);
+            }
+        }
+
+        // uploads already started finish either way, so no worker writes after the request has returned
+        void awaitUploads() {
+            for (CompletableFuture<Void> upload : uploads) {
+                try {
+                    upload.join();
+                } catch (CompletionException e) {
+                    // recorded in failure
+                }
+            }
+        }
+
+        void commit() {
+            keep(List.copyOf(written));
+        }
+
+        // deletes the files this extraction created; a packed file under the same name becomes visible again
+        void rollback() {
+            awaitUploads();
+            List<WrittenFile> kept = new ArrayList<>();
+            List<String> created = new ArrayList<>();
+            for (WrittenFile file : written) {
+                if (file.replaced()) {
+                    kept.add(file);
+                } else {
+                    created.add(file.objectName());
+                }
+            }
+            try {
+                Set<String> failed = minioService.deleteObjects(created);
+                if (!failed.isEmpty()) {
+                    log.warn("[ArchiveExtractionService.rollback] Failed to delete " + failed.size() + " extracted files");
+                }
+            } catch (RuntimeException e) {
+                log.warn("[ArchiveExtractionService.rollback] Failed to delete extracted files: " + e.getMessage());
+            }
+            keep(kept);
+        }
+
+        // files written under names that were packed replace the packed ones
+        private void keep(List<WrittenFile> files) {
+            packedFileService.removeAll(files.stream().map(WrittenFile::objectName).toList());
+            for (WrittenFile file : files) {
+                changeLogService.record(userId, ChangeType.UPLOAD, file.objectName(), null);
+                thumbnailService.enqueue(file.objectName(), file.contentType());
+            }
+        }
+    }
+
+    private record WrittenFile(String objectName, String contentType, boolean replaced) {
+    }
+
+    /**
+     * Reads the current entry of the archive, counting the uncompressed bytes against the limit
+     * and leaving the archive open when the uploader closes it.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final Extraction extraction;
+
+        LimitedInputStream(InputStream in, Extraction extraction) {
+            super(in);
+            this.extraction = extraction;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                extraction.countBytes(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                extraction.countBytes(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -3,51 +3,59 @@ package com.example.cloud_box.service;
 import com.example.cloud_box.exception.UserAlreadyExistsException;
 import com.example.cloud_box.model.User;
 import com.example.cloud_box.repository.UserRepository;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class AuthService {
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottleService loginThrottleService;
     private final UserFolderService userFolderService;
-    private final AuthenticationManager authenticationManager;
+    private final ShardRouter shardRouter;
 
 
-    public AuthService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, UserFolderService userFolderService, AuthenticationManager authenticationManager) {
+    public AuthService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       LoginThrottleService loginThrottleService, UserFolderService userFolderService,
+                       ShardRouter shardRouter) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.loginThrottleService = loginThrottleService;
         this.userFolderService = userFolderService;
-        this.authenticationManager = authenticationManager;
+        this.shardRouter = shardRouter;
     }
 
-    public User registerUser(String username, String password) {
+    public User registerUser(String username, String password, String clientAddress) {
+        loginThrottleService.acquire(null, clientAddress);
         if (userRepository.findByUsername(username).isPresent()) {
             throw new UserAlreadyExistsException("Username already taken");
         }
 
-        String encodedPassword = passwordEncoder.encode(password);
+        String encodedPassword = passwordHashingService.encode(password);
         User user = new User();
         user.setUsername(username);
         user.setPassword(encodedPassword);
-        User savedUser = userRepository.save(user);
+        User savedUser = shardRouter.placeNewUser(userRepository.save(user));
 
         try {
             userFolderService.createUserRootFolder(savedUser.getId());
         } catch (Exception e) {
-            System.err.println("Error creating folder in MinIO: " + e.getMessage());
+            log.warn("Error creating folder in MinIO: " + e.getMessage());
         }
         return savedUser;
     }
 
+    public Authentication authenticateUser(String username, String password, String clientAddress) {
+        loginThrottleService.acquire(username, clientAddress);
+        return authenticateUser(username, password);
+    }
+
+    // for the sign-in right after a sign-up, which registerUser has already charged
     public Authentication authenticateUser(String username, String password) {
-        UsernamePasswordAuthenticationToken authToken =
-                new UsernamePasswordAuthenticationToken(username, password);
-        Authentication authentication = authenticationManager.authenticate(authToken);
+        Authentication authentication = passwordHashingService.authenticate(username, password);
         SecurityContextHolder.getContext().setAuthentication(authentication);
         return authentication;
     }
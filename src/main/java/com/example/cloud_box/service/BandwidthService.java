@@ -0,0 +1,310 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.BandwidthProperties;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.example.cloud_box.util.ByteRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shapes upload and download streams to the user's plan and to the node-wide caps.
+ * Limiters are lock-free, so concurrent transfers only ever race on a CAS, and a transfer
+ * that is over its limit sleeps on its own thread instead of holding a shared lock.
+ */
+@Service
+public class BandwidthService {
+
+    private static final String DOWNLOAD = "download";
+    private static final String UPLOAD = "upload";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final BandwidthProperties properties;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+    private final ByteRateLimiter globalDownload;
+    private final ByteRateLimiter globalUpload;
+    private final ConcurrentMap<Long, UserBandwidth> users = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PlanMeters> plans = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictionExecutor;
+
+    public BandwidthService(BandwidthProperties properties, UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.userRepository = userRepository;
+        this.meterRegistry = meterRegistry;
+        this.globalDownload = new ByteRateLimiter(properties.getGlobalDownloadBytesPerSecond(), properties.getBurstSeconds());
+        this.globalUpload = new ByteRateLimiter(properties.getGlobalUploadBytesPerSecond(), properties.getBurstSeconds());
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bandwidth-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, properties.getIdleEvictSeconds() / 2);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Wraps the response so that everything written to its output stream counts against
+     * the user's download limit.
+     */
+    public HttpServletResponse throttleDownload(Long userId, HttpServletResponse response) {
+        if (!properties.isEnabled()) {
+            return response;
+        }
+        UserBandwidth user = userBandwidth(userId);
+        return new ThrottledResponse(response, new Throttle(user.download, globalDownload, user));
+    }
+
+    public InputStream throttleUpload(Long userId, InputStream inputStream) {
+        if (!properties.isEnabled()) {
+            return inputStream;
+        }
+        UserBandwidth user = userBandwidth(userId);
+        return new ThrottledInputStream(inputStream, new Throttle(user.upload, globalUpload, user));
+    }
+
+    private UserBandwidth userBandwidth(Long userId) {
+        UserBandwidth user = users.computeIfAbsent(userId, this::createUserBandwidth);
+        user.lastUsed = System.nanoTime();
+        return user;
+    }
+
+    private UserBandwidth createUserBandwidth(Long userId) {
+        String planName = userRepository.findById(userId)
+                .map(User::getPlan)
+                .orElse(null);
+        if (planName == null) {
+            planName = properties.getDefaultPlan();
+        }
+        BandwidthProperties.Plan plan = properties.getPlans().getOrDefault(planName, new BandwidthProperties.Plan());
+        UserBandwidth user = new UserBandwidth(
+                new ByteRateLimiter(plan.getDownloadBytesPerSecond(), properties.getBurstSeconds()),
+                new ByteRateLimiter(plan.getUploadBytesPerSecond(), properties.getBurstSeconds()),
+                plans.computeIfAbsent(planName, this::createPlanMeters));
+
+        return user;
+    }
+
+    // meters are tagged by plan rather than by user, so their number stays bounded by the configured plans
+    private PlanMeters createPlanMeters(String planName) {
+        PlanMeters meters = new PlanMeters();
+        Gauge.builder("bandwidth.plan.throughput", meters.downloadWindow, ThroughputWindow::bytesPerSecond)
+                .description("Bytes per second transferred by users of the plan over the last second")
+                .baseUnit("bytes")
+                .tags("plan", planName, "direction", DOWNLOAD)
+                .register(meterRegistry);
+        Gauge.builder("bandwidth.plan.throughput", meters.uploadWindow, ThroughputWindow::bytesPerSecond)
+                .description("Bytes per second transferred by users of the plan over the last second")
+                .baseUnit("bytes")
+                .tags("plan", planName, "direction", UPLOAD)
+                .register(meterRegistry);
+        FunctionCounter.builder("bandwidth.plan.bytes", meters.downloadWindow, ThroughputWindow::total)
+                .description("Bytes transferred by users of the plan")
+                .baseUnit("bytes")
+                .tags("plan", planName, "direction", DOWNLOAD)
+                .register(meterRegistry);
+        FunctionCounter.builder("bandwidth.plan.bytes", meters.uploadWindow, ThroughputWindow::total)
+                .description("Bytes transferred by users of the plan")
+                .baseUnit("bytes")
+                .tags("plan", planName, "direction", UPLOAD)
+                .register(meterRegistry);
+        return meters;
+    }
+
+    // drops limiters of users without transfers, so they stay bounded by active users
+    private void evictIdle() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleEvictSeconds());
+        long now = System.nanoTime();
+        // every chunk refreshes lastUsed, so a user with a running transfer is never idle
+        users.values().removeIf(user -> now - user.lastUsed > idleNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictionExecutor.shutdownNow();
+    }
+
+    private static class UserBandwidth {
+        final ByteRateLimiter download;
+        final ByteRateLimiter upload;
+        final PlanMeters plan;
+        volatile long lastUsed = System.nanoTime();
+
+        UserBandwidth(ByteRateLimiter download, ByteRateLimiter upload, PlanMeters plan) {
+            this.download = download;
+            this.upload = upload;
+            this.plan = plan;
+        }
+    }
+
+    private static class PlanMeters {
+        final ThroughputWindow downloadWindow = new ThroughputWindow();
+        final ThroughputWindow uploadWindow = new ThroughputWindow();
+    }
+
+    /**
+     * Bytes counted in one-second windows; the gauge reports the last complete window
+     * and drops to zero once a transfer stops.
+     */
+    private static class ThroughputWindow {
+        private final LongAdder windowBytes = new LongAdder();
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+        private final LongAdder total = new LongAdder();
+        private volatile double lastRate;
+
+        void record(int bytes) {
+            windowBytes.add(bytes);
+            total.add(bytes);
+            long now = System.nanoTime();
+            long start = windowStart.get();
+            long elapsed = now - start;
+            if (elapsed >= NANOS_PER_SECOND && windowStart.compareAndSet(start, now)) {
+                lastRate = windowBytes.sumThenReset() * (double) NANOS_PER_SECOND / elapsed;
+            }
+        }
+
+        double bytesPerSecond() {
+            return System.nanoTime() - windowStart.get() > 2 * NANOS_PER_SECOND ? 0 : lastRate;
+        }
+
+        double total() {
+            return total.sum();
+        }
+    }
+
+    private class Throttle {
+        private final ByteRateLimiter userLimiter;
+        private final ByteRateLimiter globalLimiter;
+        private final UserBandwidth user;
+        private final ThroughputWindow window;
+
+        Throttle(ByteRateLimiter userLimiter, ByteRateLimiter globalLimiter, UserBandwidth user) {
+            this.userLimiter = userLimiter;
+            this.globalLimiter = globalLimiter;
+            this.user = user;
+            this.window = userLimiter == user.download ? user.plan.downloadWindow : user.plan.uploadWindow;
+        }
+
+        void acquire(int bytes) throws InterruptedIOException {
+            if (bytes <= 0) {
+                return;
+            }
+            long waitNanos = Math.max(userLimiter.reserve(bytes), globalLimiter.reserve(bytes));
+            window.record(bytes);
+            user.lastUsed = System.nanoTime();
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Transfer interrupted while throttled");
+                }
+            }
+        }
+    }
+
+    private static class ThrottledInputStream extends FilterInputStream {
+        private final Throttle throttle;
+
+        ThrottledInputStream(InputStream in, Throttle throttle) {
+            super(in);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                throttle.acquire(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            throttle.acquire(read);
+            return read;
+        }
+    }
+
+    private static class ThrottledOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final Throttle throttle;
+
+        ThrottledOutputStream(ServletOutputStream delegate, Throttle throttle) {
+            this.delegate = delegate;
+            this.throttle = throttle;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throttle.acquire(1);
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            throttle.acquire(len);
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    // download code keeps using the servlet API and never sees the throttle
+    private static class ThrottledResponse extends HttpServletResponseWrapper {
+        private final Throttle throttle;
+        private ThrottledOutputStream outputStream;
+
+        ThrottledResponse(HttpServletResponse response, Throttle throttle) {
+            super(response);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new ThrottledOutputStream(super.getOutputStream(), throttle);
+            }
+            return outputStream;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.BatchProperties;
+import com.example.cloud_box.dto.BatchOperationDTO;
+import com.example.cloud_box.dto.BatchOperationResultDTO;
+import com.example.cloud_box.dto.BatchResponseDTO;
+import com.example.cloud_box.dto.ResourceDTO;
+import com.example.cloud_box.exception.*;
+import com.example.cloud_box.model.BatchOperationType;
+import com.example.cloud_box.model.ChangeType;
+import com.example.cloud_box.model.ResourceType;
+import com.example.cloud_box.util.ResourcePathUtils;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the multi-select operations of one user.
+ * Operations are validated together, operations touching overlapping paths run in request order,
+ * independent ones run concurrently and independent deletes share DeleteObjects calls.
+ */
+@Slf4j
+@Service
+public class BatchService {
+
+    private final FileService fileService;
+    private final FolderService folderService;
+    private final MinioService minioService;
+    private final BatchProperties properties;
+    private final ChangeLogService changeLogService;
+    private final PackedFileService packedFileService;
+    private final AdmissionService admissionService;
+    private final ThreadPoolExecutor executor;
+
+    public BatchService(FileService fileService, FolderService folderService, MinioService minioService,
+                        BatchProperties properties, ChangeLogService changeLogService,
+                        PackedFileService packedFileService, AdmissionService admissionService) {
+        this.fileService = fileService;
+        this.folderService = folderService;
+        this.minioService = minioService;
+        this.properties = properties;
+        this.changeLogService = changeLogService;
+        this.packedFileService = packedFileService;
+        this.admissionService = admissionService;
+        AtomicInteger counter = new AtomicInteger();
+        // a saturated pool slows a batch down instead of failing half of it
+        this.executor = new ThreadPoolExecutor(
+                properties.getWorkerThreads(),
+                properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "batch-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public BatchResponseDTO execute(Long userId, List<BatchOperationDTO> operations) {
+        if (operations.size() > properties.getMaxOperations()) {
+            throw new InvalidInputException("Too many operations in one batch, max: " + properties.getMaxOperations());
+        }
+
+        List<PlannedOperation> planned = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            planned.add(plan(i, operations.get(i), userId));
+        }
+        rejectConflictingTargets(planned);
+
+        List<List<PlannedOperation>> groups = groupByPrefix(planned.stream().filter(op -> !op.isDone()).toList());
+        checkExistence(groups);
+
+        List<PlannedOperation> deletes = new ArrayList<>();
+        List<PlannedOperation> folderDeletes = new ArrayList<>();
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (List<PlannedOperation> group : groups) {
+            PlannedOperation first = group.get(0);
+            if (group.size() == 1 && first.isDone()) {
+                continue;
+            }
+            if (group.size() == 1 && first.type() == BatchOperationType.DELETE) {
+                (first.directory ? folderDeletes : deletes).add(first);
+            } else {
+                running.add(CompletableFuture.runAsync(() -> runInOrder(userId, group), executor));
+            }
+        }
+        deleteTogether(deletes);
+        if (!folderDeletes.isEmpty()) {
+            // folder deletes are heavy like their single-resource counterparts, so they share one admission slot
+            try {
+                admissionService.run(userId, "delete", () -> deleteTogether(folderDeletes));
+            } catch (RuntimeException e) {
+                folderDeletes.stream().filter(op -> !op.isDone()).forEach(op -> op.fail(e));
+            }
+        }
+        running.forEach(CompletableFuture::join);
+
+        // logged in request order once everything ran, so the log never shows a change that failed
+        for (PlannedOperation op : planned) {
+            if (op.result().error() == null) {
+                changeLogService.record(userId, ChangeType.valueOf(op.type().name()), op.source, op.target);
+            }
+        }
+
+        List<BatchOperationResultDTO> results = planned.stream().map(PlannedOperation::result).toList();
+        int succeeded = (int) results.stream().filter(result -> result.error() == null).count();
+        log.info("[BatchService.execute] user " + userId + ": " + succeeded + " of " + results.size() + " operations succeeded");
+        return new BatchResponseDTO(succeeded, results.size() - succeeded, results);
+    }
+
+    private PlannedOperation plan(int index, BatchOperationDTO operation, Long userId) {
+        PlannedOperation op = new PlannedOperation(index, operation);
+        try {
+            if (operation == null || operation.type() == null) {
+                throw new InvalidInputException("Operation type is required");
+            }
+            if (operation.path() == null || operation.path().isBlank()) {
+                throw new InvalidPathException("Path cannot be null or empty");
+            }
+            op.directory = operation.type() == BatchOperationType.MKDIR
+                    || ResourceType.fromPath(operation.path()) == ResourceType.DIRECTORY;
+            op.source = normalize(operation.path(), userId, op.directory);
+
+            if (operation.type() == BatchOperationType.MOVE) {
+                if (operation.to() == null || operation.to().isBlank()) {
+                    throw new InvalidPathException("Destination path is required for MOVE");
+                }
+                op.target = normalize(operation.to(), userId, op.directory);
+                if (op.target.equals(op.source)) {
+                    throw new InvalidPathException("Source and destination paths are the same");
+                }
+                if (op.directory && op.target.startsWith(op.source)) {
+                    throw new InvalidPathException("A directory cannot be moved into itself");
+                }
+            }
+        } catch (RuntimeException e) {
+            op.fail(e);
+        }
+        return op;
+    }
+
+    private String normalize(String path, Long userId, boolean directory) {
+        String normalized = ResourcePathUtils.normalizePath(path, userId, directory);
+        if (normalized.equals(ResourcePathUtils.getUserRootPath(userId))
+                || normalized.contains("../") || normalized.endsWith("/..")) {
+            throw new InvalidPathException("Path must point inside the user directory: " + path);
+        }
+        return normalized;
+    }
+
+    // two operations creating the same resource can never both succeed
+    private void rejectConflictingTargets(List<PlannedOperation> planned) {
+        Map<String, PlannedOperation> targets = new HashMap<>();
+        for (PlannedOperation op : planned) {
+            String created = op.createdPath();
+            if (!op.isDone() && created != null && targets.putIfAbsent(created, op) != null) {
+                op.fail(new ResourceAlreadyExistsException(
+                        "Operation " + targets.get(created).index + " of the batch already targets this path"));
+            }
+        }
+    }
+
+    /**
+     * Operations whose paths are equal or nested end up in one group, in request order.
+     */
+    private List<List<PlannedOperation>> groupByPrefix(List<PlannedOperation> operations) {
+        int[] parent = new int[operations.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            for (int j = i + 1; j < operations.size(); j++) {
+                if (operations.get(i).overlaps(operations.get(j))) {
+                    parent[find(parent, j)] = find(parent, i);
+                }
+            }
+        }
+
+        Map<Integer, List<PlannedOperation>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(operations.get(i));
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Validates independent operations against one listing per parent folder instead of
+     * probing every path. Grouped operations depend on each other and are checked when they run.
+     */
+    private void checkExistence(List<List<PlannedOperation>> groups) {
+        Map<String, Set<String>> children = new HashMap<>();
+        for (List<PlannedOperation> group : groups) {
+            if (group.size() != 1) {
+                continue;
+            }
+            PlannedOperation op = group.get(0);
+            try {
+                switch (op.type()) {
+                    case DELETE -> {
+                        if (!exists(op.source, children)) {
+                            throw new ResourceNotFoundException((op.directory ? "Folder" : "File") + " not found");
+                        }
+                    }
+                    case MOVE -> {
+                        if (!exists(op.source, children)) {
+                            throw new ResourceNotFoundException((op.directory ? "Directory" : "File") + " not found");
+                        }
+                        if (exists(op.target, children)) {
+                            throw new ResourceAlreadyExistsException("Resource already exists at destination");
+                        }
+                    }
+                    case MKDIR -> {
+                        if (exists(op.source, children)) {
+                            throw new ResourceAlreadyExistsException("Folder already exists");
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                op.fail(e);
+            }
+        }
+    }
+
+    private boolean exists(String path, Map<String, Set<String>> children) {
+        String parentPath = ResourcePathUtils.extractParentPath(path);
+        return children.computeIfAbsent(parentPath, this::listChildren).contains(path);
+    }
+
+    private Set<String> listChildren(String folderPath) {
+        Set<String> names = new HashSet<>();
+        try {
+            for (Result<Item> result : minioService.listObjects(folderPath, false)) {
+                names.add(result.get().objectName());
+            }
+            PackedFileService.Children packed = packedFileService.listChildren(folderPath);
+            packed.files().forEach(file -> names.add(file.getObjectName()));
+            names.addAll(packed.folders());
+        } catch (MinioOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to list objects in: " + folderPath, e);
+        }
+        return names;
+    }
+
+    private void deleteTogether(List<PlannedOperation> deletes) {
+        Map<PlannedOperation, List<String>> objectsByOperation = new LinkedHashMap<>();
+        List<String> objectNames = new ArrayList<>();
+        for (PlannedOperation op : deletes) {
+            try {
+                List<String> objects = op.directory ? minioService.getObjectsWithPrefix(op.source) : List.of(op.source);
+                // packed files only live in the index, their segments are left to the compactor
+                if (op.directory) {
+                    packedFileService.removeUnder(op.source);
+                } else {
+                    packedFileService.remove(op.source);
+                }
+                objectsByOperation.put(op, objects);
+                objectNames.addAll(objects);
+            } catch (RuntimeException e) {
+                op.fail(e);
+            }
+        }
+
+        Set<String> failed;
+        try {
+            failed = minioService.deleteObjects(objectNames);
+        } catch (RuntimeException e) {
+            objectsByOperation.keySet().forEach(op -> op.fail(e));
+            return;
+        }
+        objectsByOperation.forEach((op, objects) -> {
+            long failedCount = objects.stream().filter(failed::contains).count();
+            if (failedCount == 0) {
+                op.succeed(HttpStatus.NO_CONTENT, null);
+            } else {
+                op.fail(new InternalServerException("Failed to delete " + failedCount + " of " + objects.size() + " objects", null));
+            }
+        });
+    }
+
+    private void runInOrder(Long userId, List<PlannedOperation> group) {
+        for (PlannedOperation op : group) {
+            if (op.isDone()) {
+                continue;
+            }
+            try {
+                switch (op.type()) {
+                    case DELETE -> {
+                        boolean deleted = op.directory
+                                ? admissionService.call(userId, "delete", () -> folderService.delete(op.source))
+                                : fileService.delete(op.source);
+                        if (!deleted) {
+                            throw new ResourceNotFoundException((op.directory ? "Folder" : "File") + " not found");
+                        }
+                        op.succeed(HttpStatus.NO_CONTENT, null);
+                    }
+                    case MOVE -> op.succeed(HttpStatus.OK, op.directory
+                            ? admissionService.call(userId, "move", () -> folderService.move(op.source, op.target))
+                            : fileService.move(op.source, op.target));
+                    case MKDIR -> op.succeed(HttpStatus.CREATED, folderService.createEmptyFolder(op.source));
+                }
+            } catch (RuntimeException e) {
+                op.fail(e);
+            }
+        }
+    }
+
+    private static HttpStatus statusOf(RuntimeException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (e instanceof ResourceAlreadyExistsException) {
+            return HttpStatus.CONFLICT;
+        }
+        if (e instanceof TooManyRequestsException) {
+            return HttpStatus.TOO_MANY_REQUESTS;
+        }
+        if (e instanceof InvalidPathException || e instanceof InvalidInputException || e instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class PlannedOperation {
+        private final int index;
+        private final BatchOperationDTO request;
+        private boolean directory;
+        private String source;
+        private String target;
+        private BatchOperationResultDTO result;
+
+        private PlannedOperation(int index, BatchOperationDTO request) {
+            this.index = index;
+            this.request = request;
+        }
+
+        private BatchOperationType type() {
+            return request.type();
+        }
+
+        private boolean isDone() {
+            return result != null;
+        }
+
+        private String createdPath() {
+            if (request == null || request.type() == null) {
+                return null;
+            }
+            return switch (request.type()) {
+                case MKDIR -> source;
+                case MOVE -> target;
+                case DELETE -> null;
+            };
+        }
+
+        private boolean overlaps(PlannedOperation other) {
+            for (String path : paths()) {
+                for (String otherPath : other.paths()) {
+                    if (path.equals(otherPath)
+                            || path.endsWith("/") && otherPath.startsWith(path)
+                            || otherPath.endsWith("/") && path.startsWith(otherPath)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private List<String> paths() {
+            return target == null ? List.of(source) : List.of(source, target);
+        }
+
+        private void succeed(HttpStatus status, ResourceDTO resource) {
+            result = new BatchOperationResultDTO(index, request.type(), request.path(), request.to(),
+                    status.value(), resource, null);
+        }
+
+        private void fail(RuntimeException e) {
+            HttpStatus status = statusOf(e);
+            if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+                log.warn("[BatchService.execute] Operation " + index + " failed: " + e.getMessage());
+            }
+            result = new BatchOperationResultDTO(index,
+                    request == null ? null : request.type(),
+                    request == null ? null : request.path(),
+                    request == null ? null : request.to(),
+                    status.value(), null, e.getMessage());
+        }
+
+        private BatchOperationResultDTO result() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioConfig;
+import com.example.cloud_box.config.MinioProperties;
+import io.minio.CloseableIterator;
+import io.minio.ListenBucketNotificationArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Event;
+import io.minio.messages.NotificationRecords;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the notification stream of every bucket, shard buckets included, and republishes changes
+ * made outside the app as external {@link StorageChangeEvent}s, so listing versions and other derived
+ * state stay correct without rescanning the bucket. Changes made by the app itself are already published
+ * by {@link MinioService} and are recognised by the client's user agent.
+ */
+@Slf4j
+@Service
+public class BucketNotificationService {
+
+    private static final String[] EVENTS = {"s3:ObjectCreated:*", "s3:ObjectRemoved:*"};
+    private static final String OWN_USER_AGENT = MinioConfig.APP_NAME + "/";
+    private static final String REMOVED_EVENT_PREFIX = "s3:ObjectRemoved:";
+
+    private final MinioClient minioClient;
+    private final MinioProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DirectoryVersionService directoryVersionService;
+    private final ShardRouter shardRouter;
+    private final Map<String, CloseableIterator<Result<NotificationRecords>>> streams = new ConcurrentHashMap<>();
+    private final List<Thread> listenerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public BucketNotificationService(MinioClient minioClient, MinioProperties properties,
+                                     ApplicationEventPublisher eventPublisher,
+                                     DirectoryVersionService directoryVersionService, ShardRouter shardRouter) {
+        this.minioClient = minioClient;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.directoryVersionService = directoryVersionService;
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isNotificationsEnabled()) {
+            return;
+        }
+        running = true;
+        for (String bucket : shardRouter.buckets()) {
+            Thread listenerThread = new Thread(() -> listen(bucket), "bucket-notifications-" + bucket);
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+            listenerThreads.add(listenerThread);
+        }
+    }
+
+    private void listen(String bucket) {
+        boolean interrupted = false;
+        while (running) {
+            try (CloseableIterator<Result<NotificationRecords>> records = minioClient.listenBucketNotification(
+                    ListenBucketNotificationArgs.builder()
+                            .bucket(bucket)
+                            .prefix("")
+                            .suffix("")
+                            .events(EVENTS)
+                            .build())) {
+                streams.put(bucket, records);
+                if (interrupted) {
+                    // the stream is back; whatever changed while it was down is unknown
+                    directoryVersionService.invalidateAll();
+                    interrupted = false;
+                }
+                while (running && records.hasNext()) {
+                    handle(records.next().get());
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("[BucketNotificationService.listen] Notification stream of " + bucket + " failed: " + e.getMessage());
+                }
+            }
+            interrupted = true;
+            if (running) {
+                try {
+                    TimeUnit.SECONDS.sleep(properties.getNotificationRetrySeconds());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(NotificationRecords records) {
+        List<String> written = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Event event : records.events()) {
+            String userAgent = event.userAgent();
+            if (event.objectName() == null || (userAgent != null && userAgent.contains(OWN_USER_AGENT))) {
+                continue;
+            }
+            boolean isRemoval = event.eventType() != null
+                    && event.eventType().toString().startsWith(REMOVED_EVENT_PREFIX);
+            // keys arrive URL-encoded, as in S3 event records
+            (isRemoval ? removed : written).add(URLDecoder.decode(event.objectName(), StandardCharsets.UTF_8));
+        }
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(StorageChangeEvent.external(written, false));
+        }
+        if (!removed.isEmpty()) {
+            eventPublisher.publishEvent(StorageChangeEvent.external(removed, true));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (CloseableIterator<Result<NotificationRecords>> current : streams.values()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // shutting down anyway
+            }
+        }
+        listenerThreads.forEach(Thread::interrupt);
+    }
+}
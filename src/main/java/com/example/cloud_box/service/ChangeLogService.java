@@ -0,0 +1,213 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ChangeLogProperties;
+import com.example.cloud_box.dto.ChangeDTO;
+import com.example.cloud_box.dto.ChangesResponseDTO;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.model.ChangeType;
+import com.example.cloud_box.util.ResourcePathUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user log of uploads, moves, deletes and new directories, kept as a Redis stream.
+ * Entry ids are monotonic and double as sync cursors, so a client fetches only what changed
+ * since its last cursor instead of listing the whole tree. Entries beyond the size or age limit
+ * are trimmed on append; the id of the last trimmed entry is remembered, and a cursor older
+ * than that gets a "resync required" answer.
+ */
+@Slf4j
+@Service
+public class ChangeLogService {
+
+    private static final String KEY_PREFIX = "cloudbox:changes:";
+    private static final String TRIMMED_KEY_PREFIX = "cloudbox:changes:trimmed:";
+    private static final String START_CURSOR = "0-0";
+    private static final int EXPIRED_TRIM_BATCH = 1000;
+    private static final Pattern CURSOR_PATTERN = Pattern.compile("(\\d+)-(\\d+)");
+    private static final Pattern USER_OBJECT_PATTERN = Pattern.compile("user-(\\d+)-files/(.+)");
+
+    // appends the entry, then drops whatever is over the size limit or older than the retention,
+    // whichever reaches further, and records the id of the last dropped entry as the watermark
+    private static final RedisScript<String> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "local fields = {'type', ARGV[1], 'path', ARGV[2]} "
+                    + "if ARGV[3] ~= '' then fields[5] = 'to' fields[6] = ARGV[3] end "
+                    + "local id = redis.call('XADD', KEYS[1], '*', unpack(fields)) "
+                    + "local trimmed = {} "
+                    + "local over = redis.call('XLEN', KEYS[1]) - tonumber(ARGV[4]) "
+                    + "if over > 0 then trimmed = redis.call('XRANGE', KEYS[1], '-', '+', 'COUNT', over) end "
+                    + "local expired = redis.call('XRANGE', KEYS[1], '-', '(' .. ARGV[5] .. '-0', 'COUNT', ARGV[6]) "
+                    + "if #expired > #trimmed then trimmed = expired end "
+                    + "if #trimmed > 0 then "
+                    + "  local last = trimmed[#trimmed][1] "
+                    + "  redis.call('XTRIM', KEYS[1], 'MINID', last) "
+                    + "  redis.call('XDEL', KEYS[1], last) "
+                    + "  redis.call('SET', KEYS[2], last) "
+                    + "end "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[7]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[7]) "
+                    + "return id",
+            String.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ChangeLogProperties properties;
+
+    public ChangeLogService(StringRedisTemplate redisTemplate, ChangeLogProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Appends a change of the user's tree. Paths are full object keys; the log keeps them
+     * relative to the user root. A failure is logged and does not fail the operation itself.
+     */
+    public void record(Long userId, ChangeType type, String path, String to) {
+        String root = ResourcePathUtils.getUserRootPath(userId);
+        append(userId, type, relativize(path, root), to == null ? null : relativize(to, root));
+    }
+
+    /**
+     * Returns up to {@code limit} changes after the cursor. Without a cursor, returns no changes
+     * and the cursor of the latest change, to be used after a full listing.
+     */
+    public ChangesResponseDTO changesSince(Long userId, String cursor, Integer limit) {
+        int pageSize = limit == null ? properties.getDefaultPageSize() : limit;
+        if (pageSize < 1) {
+            throw new InvalidInputException("Limit must be positive");
+        }
+        pageSize = Math.min(pageSize, properties.getMaxPageSize());
+        long[] position = cursor == null || cursor.isBlank() ? null : parseCursor(cursor);
+
+        String key = KEY_PREFIX + userKey(userId);
+        try {
+            String watermark = redisTemplate.opsForValue().get(TRIMMED_KEY_PREFIX + userKey(userId));
+            String floor = watermark != null ? watermark : START_CURSOR;
+            if (position == null) {
+                return new ChangesResponseDTO(List.of(), latestCursor(key, floor), false, false);
+            }
+            int comparison = compare(position, parseCursor(floor));
+            if (comparison < 0) {
+                return resync(key, floor);
+            }
+
+            // the cursor itself is read back too, to tell a live cursor from one of a lost log
+            boolean atFloor = comparison == 0;
+            String start = atFloor ? position[0] + "-" + (position[1] + 1) : cursor;
+            List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().range(key,
+                    Range.rightUnbounded(Range.Bound.inclusive(start)),
+                    Limit.limit().count(pageSize + (atFloor ? 1 : 2)));
+            if (records == null) {
+                records = List.of();
+            }
+            if (!atFloor) {
+                if (records.isEmpty() || !records.get(0).getId().getValue().equals(cursor)) {
+                    return resync(key, floor);
+                }
+                records = records.subList(1, records.size());
+            }
+
+            boolean hasMore = records.size() > pageSize;
+            List<ChangeDTO> changes = records.stream().limit(pageSize).map(this::toDto).toList();
+            String nextCursor = changes.isEmpty() ? cursor : changes.get(changes.size() - 1).id();
+            return new ChangesResponseDTO(changes, nextCursor, hasMore, false);
+        } catch (RuntimeException e) {
+            throw new InternalServerException("Failed to read change log", e);
+        }
+    }
+
+    /**
+     * Changes made outside the app arrive as plain object writes and removals; the app records
+     * its own changes with their intent (moves, new directories) where they happen.
+     */
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!event.external()) {
+            return;
+        }
+        for (String objectName : event.objectNames()) {
+            Matcher matcher = USER_OBJECT_PATTERN.matcher(objectName);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String path = matcher.group(2);
+            ChangeType type = event.removed() ? ChangeType.DELETE
+                    : path.endsWith("/") ? ChangeType.MKDIR : ChangeType.UPLOAD;
+            append(Long.valueOf(matcher.group(1)), type, path, null);
+        }
+    }
+
+    private void append(Long userId, ChangeType type, String path, String to) {
+        long minTimestamp = System.currentTimeMillis() - Duration.ofDays(properties.getRetentionDays()).toMillis();
+        try {
+            redisTemplate.execute(APPEND_SCRIPT,
+                    List.of(KEY_PREFIX + userKey(userId), TRIMMED_KEY_PREFIX + userKey(userId)),
+                    type.name(), path, to == null ? "" : to,
+                    String.valueOf(Math.max(1, properties.getMaxEntries())),
+                    String.valueOf(minTimestamp),
+                    String.valueOf(EXPIRED_TRIM_BATCH),
+                    String.valueOf(Duration.ofDays(properties.getRetentionDays()).toSeconds()));
+        } catch (RuntimeException e) {
+            log.warn("[ChangeLogService.append] Failed to record " + type + " of " + path + " for user " + userId
+                    + ": " + e.getMessage());
+        }
+    }
+
+    private ChangesResponseDTO resync(String key, String floor) {
+        return new ChangesResponseDTO(List.of(), latestCursor(key, floor), false, true);
+    }
+
+    private String latestCursor(String key, String floor) {
+        List<MapRecord<String, Object, Object>> latest = redisTemplate.opsForStream()
+                .reverseRange(key, Range.unbounded(), Limit.limit().count(1));
+        return latest == null || latest.isEmpty() ? floor : latest.get(0).getId().getValue();
+    }
+
+    private ChangeDTO toDto(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> fields = record.getValue();
+        return new ChangeDTO(
+                record.getId().getValue(),
+                ChangeType.valueOf((String) fields.get("type")),
+                (String) fields.get("path"),
+                (String) fields.get("to"),
+                record.getId().getTimestamp());
+    }
+
+    private long[] parseCursor(String cursor) {
+        Matcher matcher = CURSOR_PATTERN.matcher(cursor);
+        if (!matcher.matches()) {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+        try {
+            return new long[]{Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))};
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static int compare(long[] left, long[] right) {
+        int comparison = Long.compare(left[0], right[0]);
+        return comparison != 0 ? comparison : Long.compare(left[1], right[1]);
+    }
+
+    private static String relativize(String path, String root) {
+        return path.startsWith(root) ? path.substring(root.length()) : path;
+    }
+
+    private static String userKey(Long userId) {
+        return "user-" + userId;
+    }
+}
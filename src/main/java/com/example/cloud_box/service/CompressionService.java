@@ -0,0 +1,165 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.CompressionProperties;
+import com.example.cloud_box.util.GzipCompressingInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compresses text-like content at rest. Whether an upload is compressed is decided by its
+ * content type and by deflating a sample of its first bytes; the codec and the original size
+ * are kept in the object's user metadata, so readers know how to decode it and listings can
+ * report the size the user uploaded.
+ */
+@Slf4j
+@Service
+public class CompressionService {
+
+    public static final String CODEC_METADATA = "codec";
+    public static final String ORIGINAL_SIZE_METADATA = "original-size";
+    public static final String GZIP = "gzip";
+
+    private static final int DECODE_BUFFER_SIZE = 64 * 1024;
+    // gzip, zip, zstd, bzip2, xz, 7z: compressing these again only costs CPU
+    private static final byte[][] COMPRESSED_MAGIC = {
+            {0x1f, (byte) 0x8b},
+            {'P', 'K', 0x03, 0x04},
+            {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd},
+            {'B', 'Z', 'h'},
+            {(byte) 0xfd, '7', 'z', 'X', 'Z', 0x00},
+            {'7', 'z', (byte) 0xbc, (byte) 0xaf, 0x27, 0x1c}
+    };
+
+    private final CompressionProperties properties;
+
+    public CompressionService(CompressionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Stream and user metadata to store for an upload; the stream is compressed when the
+     * content qualifies. {@code size} is the uncompressed size and must be known, since it is
+     * written to the metadata before the content.
+     */
+    public Encoded encode(InputStream inputStream, String contentType, long size, Map<String, String> userMetadata)
+            throws IOException {
+        if (!properties.isEnabled() || size < Math.max(1, properties.getMinSize()) || !isCompressible(contentType)) {
+            return new Encoded(inputStream, userMetadata);
+        }
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, properties.getSampleBytes());
+        buffered.mark(properties.getSampleBytes());
+        byte[] sample = buffered.readNBytes(properties.getSampleBytes());
+        buffered.reset();
+        if (!worthCompressing(sample)) {
+            return new Encoded(buffered, userMetadata);
+        }
+
+        Map<String, String> metadata = new HashMap<>(userMetadata);
+        metadata.put(CODEC_METADATA, GZIP);
+        metadata.put(ORIGINAL_SIZE_METADATA, Long.toString(size));
+        return new Encoded(new GzipCompressingInputStream(buffered, properties.getLevel()), metadata);
+    }
+
+    /**
+     * Decodes stored content with the given codec; content without a codec is returned as is.
+     */
+    public static InputStream decode(InputStream stored, String codec) throws IOException {
+        if (codec == null || codec.isEmpty()) {
+            return stored;
+        }
+        if (GZIP.equalsIgnoreCase(codec)) {
+            return new GZIPInputStream(stored, DECODE_BUFFER_SIZE);
+        }
+        stored.close();
+        throw new IOException("Unsupported storage codec: " + codec);
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip, i.e. names it or "*" without q=0.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase(GZIP) && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("(?i)q=0(\\.0*)?")) {
+                    refused = true;
+                }
+            }
+            return !refused;
+        }
+        return false;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        for (String pattern : properties.getContentTypes()) {
+            String candidate = pattern.toLowerCase(Locale.ROOT);
+            if (candidate.endsWith("/*") ? type.startsWith(candidate.substring(0, candidate.length() - 1))
+                    : type.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a fast deflate of the sample predicts the ratio well enough for text
+    private boolean worthCompressing(byte[] sample) {
+        if (sample.length == 0) {
+            return false;
+        }
+        for (byte[] magic : COMPRESSED_MAGIC) {
+            if (startsWith(sample, magic)) {
+                return false;
+            }
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] output = new byte[sample.length + 64];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output);
+            }
+            return compressed * 100 <= (long) sample.length * (100 - properties.getMinSavingsPercent());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public record Encoded(InputStream stream, Map<String, String> userMetadata) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps a version counter per directory in Redis. Every write under a directory bumps the
+ * counter of the directory and all its ancestors, so the counter can serve as the ETag of a listing.
+ * New counters start at a random value: after a Redis flush or key expiry an old ETag cannot match again.
+ */
+@Slf4j
+@Service
+public class DirectoryVersionService {
+
+    private static final String KEY_PREFIX = "cloudbox:dirversion:";
+    private static final Duration VERSION_TTL = Duration.ofDays(30);
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "local version = redis.call('INCR', KEYS[1]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[2]) "
+                    + "return version",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String systemPrefix;
+
+    public DirectoryVersionService(StringRedisTemplate redisTemplate, MinioProperties minioProperties) {
+        this.redisTemplate = redisTemplate;
+        this.systemPrefix = minioProperties.getSystemPrefix();
+    }
+
+    /**
+     * Returns the current version of a normalized directory path ending with '/',
+     * or null when Redis is unavailable and the caller should skip conditional handling.
+     */
+    public String currentVersion(String directory) {
+        String key = KEY_PREFIX + directory;
+        try {
+            String version = redisTemplate.opsForValue().get(key);
+            if (version == null) {
+                redisTemplate.opsForValue().setIfAbsent(key, randomBase(), VERSION_TTL);
+                version = redisTemplate.opsForValue().get(key);
+            }
+            return version;
+        } catch (RuntimeException e) {
+            log.warn("[DirectoryVersionService.currentVersion] Failed to read version of " + directory + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        for (String directory : affectedDirectories(event.objectNames())) {
+            try {
+                redisTemplate.execute(BUMP_SCRIPT, List.of(KEY_PREFIX + directory),
+                        randomBase(), String.valueOf(VERSION_TTL.toSeconds()));
+            } catch (RuntimeException e) {
+                log.warn("[DirectoryVersionService.onStorageChange] Failed to bump version of " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops every directory version, so no stored ETag matches again. Used when changes
+     * may have been missed, e.g. while the bucket notification stream was down.
+     */
+    public void invalidateAll() {
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>();
+            while (keys.hasNext()) {
+                batch.add(keys.next());
+                if (batch.size() == 1000) {
+                    redisTemplate.delete(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                redisTemplate.delete(batch);
+            }
+        } catch (RuntimeException e) {
+            log.warn("[DirectoryVersionService.invalidateAll] Failed to drop directory versions: " + e.getMessage());
+        }
+    }
+
+    private Set<String> affectedDirectories(List<String> objectNames) {
+        Set<String> directories = new LinkedHashSet<>();
+        for (String objectName : objectNames) {
+            if (objectName.startsWith(systemPrefix)) {
+                continue;
+            }
+            for (int i = objectName.indexOf('/'); i >= 0; i = objectName.indexOf('/', i + 1)) {
+                directories.add(objectName.substring(0, i + 1));
+            }
+        }
+        return directories;
+    }
+
+    private String randomBase() {
+        return String.valueOf(ThreadLocalRandom.current().nextLong(1L << 40));
+    }
+}
@@ -0,0 +1,512 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.DiskCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-through cache of object content on local disk, in front of MinIO for file downloads.
+ * Entries are keyed by object key and ETag, so a changed object is never served stale, and are
+ * evicted least recently used once the byte budget is exceeded. Hits are served from a FileChannel.
+ * A miss streams from MinIO to the client and the cache file at the same time, and concurrent
+ * misses for that entry tail the file being written instead of fetching again; they only go to
+ * MinIO when the fill fails. The index lives in memory, so cache files left by a previous run are
+ * deleted on startup.
+ */
+@Slf4j
+@Service
+public class DiskCacheService {
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int SKIP_BUFFER_SIZE = 8192;
+    private static final Pattern ENTRY_FILE = Pattern.compile("[0-9a-f]{64}(.*\\.part)?");
+
+    private final DiskCacheProperties properties;
+    private final Path directory;
+    // access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<String>> keysByObject = new HashMap<>();
+    private final ConcurrentMap<String, Fill> fills = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private long totalBytes;
+
+    public DiskCacheService(DiskCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        this.hits = Counter.builder("disk.cache.requests")
+                .description("Downloads looked up in the disk cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("disk.cache.requests")
+                .description("Downloads looked up in the disk cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("disk.cache.bytes", this, DiskCacheService::cachedBytes)
+                .description("Bytes of object content held in the disk cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            // only files named like cache entries, in case the directory is shared
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    file -> ENTRY_FILE.matcher(file.getFileName().toString()).matches())) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare disk cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Opens the stored bytes of the object at the given ETag: the cached file on a hit, otherwise
+     * a stream of them. The loader must return exactly that version. The first miss copies the
+     * loader stream into the cache while the caller reads it, and the entry is added once that
+     * caller has read it to the end and closed it. Misses while that fill runs read the part file
+     * as it grows. Objects over the size limit and misses while the cache is disabled just get the
+     * loader stream. The caller closes the content.
+     */
+    public Content open(String objectName, String etag, long size, Callable<InputStream> loader) throws Exception {
+        if (!properties.isEnabled() || etag == null || size > properties.getMaxObjectBytes()
+                || size > properties.getMaxBytes()) {
+            return new Content(null, loader.call());
+        }
+        String key = cacheKey(objectName, etag);
+        FileChannel channel = openEntry(key);
+        if (channel != null) {
+            hits.increment();
+            return new Content(channel, null);
+        }
+        misses.increment();
+
+        Path part;
+        try {
+            part = Files.createTempFile(directory, key, PART_SUFFIX);
+        } catch (IOException e) {
+            log.warn("[DiskCacheService.open] Failed to start caching " + objectName + ": " + e.getMessage());
+            return new Content(null, loader.call());
+        }
+        Fill fill = new Fill(part, size);
+        Fill running = fills.putIfAbsent(key, fill);
+        if (running != null) {
+            Files.deleteIfExists(part);
+            return tail(key, running, loader);
+        }
+        // the previous fill may have completed between the lookup and the claim
+        channel = openEntry(key);
+        if (channel != null) {
+            abandon(key, fill);
+            return new Content(channel, null);
+        }
+        try {
+            return new Content(null, new FillingInputStream(loader.call(), key, objectName, fill));
+        } catch (Exception e) {
+            abandon(key, fill);
+            throw e;
+        }
+    }
+
+    private Content tail(String key, Fill fill, Callable<InputStream> loader) throws IOException {
+        try {
+            return new Content(null, new TailingInputStream(fill, FileChannel.open(fill.part, StandardOpenOption.READ), loader));
+        } catch (NoSuchFileException e) {
+            // the fill ended before the part file could be opened, by now it is an entry or it failed
+            FileChannel channel = openEntry(key);
+            return channel != null ? new Content(channel, null) : new Content(null, new TailingInputStream(fill, null, loader));
+        }
+    }
+
+    private void abandon(String key, Fill fill) {
+        fill.fail();
+        fills.remove(key, fill);
+        try {
+            Files.deleteIfExists(fill.part);
+        } catch (IOException e) {
+            log.warn("[DiskCacheService.abandon] Failed to delete " + fill.part + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Entries of changed or removed objects can no longer be hit, so their space is freed right away.
+     */
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            for (String objectName : event.objectNames()) {
+                Set<String> keys = keysByObject.get(objectName);
+                if (keys != null) {
+                    new HashSet<>(keys).forEach(this::evict);
+                }
+            }
+        }
+    }
+
+    // opened under the lock, so eviction cannot delete the file between lookup and open;
+    // an open channel keeps reading after its file was evicted
+    private synchronized FileChannel openEntry(String key) {
+        if (entries.get(key) == null) {
+            return null;
+        }
+        try {
+            return FileChannel.open(directory.resolve(key), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            evict(key);
+            return null;
+        } catch (IOException e) {
+            log.warn("[DiskCacheService.openEntry] Failed to open cached " + key + ": " + e.getMessage());
+            evict(key);
+            return null;
+        }
+    }
+
+    private void add(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+        totalBytes += entry.size();
+        keysByObject.computeIfAbsent(entry.objectName(), name -> new HashSet<>()).add(key);
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > properties.getMaxBytes() && eldest.hasNext()) {
+            Map.Entry<String, Entry> candidate = eldest.next();
+            if (candidate.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            forget(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private void evict(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            forget(key, entry);
+        }
+    }
+
+    private void forget(String key, Entry entry) {
+        totalBytes -= entry.size();
+        Set<String> keys = keysByObject.get(entry.objectName());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByObject.remove(entry.objectName());
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key));
+        } catch (IOException e) {
+            log.warn("[DiskCacheService.forget] Failed to delete cached " + key + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized double cachedBytes() {
+        return totalBytes;
+    }
+
+    private static String cacheKey(String objectName, String etag) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(etag.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(String objectName, long size) {
+    }
+
+    /**
+     * Stored bytes of a download: a channel on the cached file for hits, a stream otherwise.
+     */
+    public record Content(FileChannel channel, InputStream stream) implements Closeable {
+
+        public InputStream inputStream() {
+            return channel != null ? Channels.newInputStream(channel) : stream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (Closeable closeChannel = channel; Closeable closeStream = stream) {
+                // both are closed, whichever is set
+            }
+        }
+    }
+
+    /**
+     * Progress of one fill, shared by the filling reader and the readers tailing its part file.
+     */
+    private static class Fill {
+        private final Path part;
+        private final long size;
+        private long written;
+        private boolean failed;
+
+        Fill(Path part, long size) {
+            this.part = part;
+            this.size = size;
+        }
+
+        synchronized void advance(long bytes) {
+            written += bytes;
+            notifyAll();
+        }
+
+        synchronized void fail() {
+            failed = true;
+            notifyAll();
+        }
+
+        // bytes available past position, or -1 once the fill failed
+        synchronized long awaitBeyond(long position) throws InterruptedIOException {
+            while (written <= position && !failed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the cache fill");
+                }
+            }
+            return failed ? -1 : written - position;
+        }
+    }
+
+    /**
+     * Passes the stored bytes through to the reader and writes them to the part file, which becomes
+     * the entry when the whole object went through. A failing cache write only stops the caching,
+     * and the tailing readers switch to MinIO.
+     */
+    private class FillingInputStream extends FilterInputStream {
+        private final String key;
+        private final String objectName;
+        private final Fill fill;
+        private OutputStream out;
+        private long copied;
+        private boolean closed;
+
+        FillingInputStream(InputStream in, String key, String objectName, Fill fill) throws IOException {
+            super(in);
+            this.key = key;
+            this.objectName = objectName;
+            this.fill = fill;
+            // unbuffered, so tailing readers see every chunk as soon as it is written
+            this.out = Files.newOutputStream(fill.part);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                write(new byte[]{(byte) value}, 0, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                write(b, off, read);
+            }
+            return read;
+        }
+
+        // skipped bytes are read anyway, so the entry gets every byte
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+            return Math.max(read(buffer, 0, buffer.length), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(b, off, len);
+                copied += len;
+                fill.advance(len);
+            } catch (IOException e) {
+                log.warn("[DiskCacheService.write] Failed to cache " + objectName + ": " + e.getMessage());
+                stopCaching();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                if (copied != fill.size) {
+                    // the reader stopped early, or the object is not the size it was stat'ed with
+                    stopCaching();
+                    return;
+                }
+                Files.move(fill.part, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                synchronized (DiskCacheService.this) {
+                    add(key, new Entry(objectName, fill.size));
+                }
+                // removed only after the entry is in, so a new miss finds either the fill or the entry
+                fills.remove(key, fill);
+            } catch (IOException e) {
+                log.warn("[DiskCacheService.finish] Failed to cache " + objectName + ": " + e.getMessage());
+                stopCaching();
+            }
+        }
+
+        private void stopCaching() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // the part file is deleted either way
+                }
+                out = null;
+            }
+            abandon(key, fill);
+        }
+    }
+
+    /**
+     * Reads the part file of a running fill up to what has been written so far. Tailing readers
+     * whose fill fails continue from MinIO at the position they had reached.
+     */
+    private static class TailingInputStream extends InputStream {
+        private final Fill fill;
+        private final FileChannel channel;
+        private final Callable<InputStream> loader;
+        private InputStream fallback;
+        private long position;
+
+        TailingInputStream(Fill fill, FileChannel channel, Callable<InputStream> loader) {
+            this.fill = fill;
+            this.channel = channel;
+            this.loader = loader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fallback == null) {
+                if (position >= fill.size) {
+                    return -1;
+                }
+                long available = channel == null ? -1 : fill.awaitBeyond(position);
+                if (available > 0) {
+                    int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+                    if (read > 0) {
+                        position += read;
+                        return read;
+                    }
+                }
+                fallback = openFallback();
+            }
+            int read = fallback.read(b, off, len);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        private InputStream openFallback() throws IOException {
+            try {
+                InputStream stored = loader.call();
+                stored.skipNBytes(position);
+                return stored;
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to read from storage after the cache fill failed", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (Closeable closeChannel = channel; Closeable closeFallback = fallback) {
+                // both are closed, whichever is set
+            }
+        }
+    }
+}
@@ -4,23 +4,35 @@ import com.example.cloud_box.dto.ResourceDTO;
 import com.example.cloud_box.exception.InternalServerException;
 import com.example.cloud_box.exception.ResourceAlreadyExistsException;
 import com.example.cloud_box.exception.ResourceNotFoundException;
+import com.example.cloud_box.jfr.DownloadEvent;
+import com.example.cloud_box.jfr.MoveStepEvent;
+import com.example.cloud_box.model.PackedFile;
 import com.example.cloud_box.model.ResourceType;
-import com.example.cloud_box.util.MimeTypes;
 import com.example.cloud_box.util.ResourcePathUtils;
+import io.micrometer.observation.annotation.Observed;
 import io.minio.StatObjectResponse;
 import io.minio.errors.ErrorResponseException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 
 
 /**
  * It is assumed that the paths passed to methods are already normalized.
  */
+@Slf4j
 @Service
+@Observed(name = "cloudbox.service")
 public class FileService {
 
     private static final int BUFFER_SIZE = 1024;
@@ -28,28 +40,46 @@ public class FileService {
     private static final String CONTENT_DISPOSITION_HEADER = "Content-Disposition";
     private static final String ATTACHMENT_FILENAME_FORMAT = "attachment; filename=\"%s\"";
     private final MinioService minioService;
+    private final DiskCacheService diskCacheService;
+    private final PackedFileService packedFileService;
 
-    public FileService(MinioService minioService) {
+    public FileService(MinioService minioService, DiskCacheService diskCacheService, PackedFileService packedFileService) {
         this.minioService = minioService;
+        this.diskCacheService = diskCacheService;
+        this.packedFileService = packedFileService;
     }
 
     public ResourceDTO move(String from, String to) {
-        if (minioService.resourceExists(to)) {
+        if (minioService.resourceExists(to) || packedFileService.find(to).isPresent()) {
             throw new ResourceAlreadyExistsException("Resource already exists at destination");
         }
+        MoveStepEvent event = new MoveStepEvent();
+        event.begin();
+        event.key = from;
+        Optional<PackedFile> packed = packedFileService.find(from);
+        if (packed.isPresent()) {
+            // only the index entry is renamed, the content stays in its segment
+            PackedFile moved = packedFileService.rename(from, to);
+            event.bytes = moved.getLength();
+            event.commit();
+            return new ResourceDTO(ResourcePathUtils.extractParentPath(to), ResourcePathUtils.extractName(to),
+                    moved.getLength(), ResourceType.FILE);
+        }
         if (!minioService.fileExists(from)) {
             throw new ResourceNotFoundException("File not found: " + from);
         }
-        try (InputStream in = minioService.downloadFile(from)) {
-            minioService.uploadFile(to, in, MimeTypes.CONTENT_TYPE_OCTET_STREAM);
+        try {
+            minioService.copyObject(from, to);
             minioService.deleteFile(from);
             StatObjectResponse stat = minioService.getFileStat(to);
+            event.bytes = stat.size();
+            event.commit();
 
             Path p = Paths.get(to);
             String name = p.getFileName().toString();
             String parent = p.getParent() != null ? p.getParent().toString().replace("\\", "/") + "/" : "";
 
-            return new ResourceDTO(parent, name, stat.size(), ResourceType.FILE);
+            return new ResourceDTO(parent, name, MinioService.contentSize(stat), ResourceType.FILE);
         } catch (
                 Exception e) {
             throw new InternalServerException("Failed to move file", e);
@@ -58,21 +88,58 @@ public class FileService {
 
     public boolean delete(String path) {
         String normalizedPath = ResourcePathUtils.normalizePath(path, false);
-        return minioService.deleteResource(normalizedPath);
+        return packedFileService.remove(normalizedPath) || minioService.deleteResource(normalizedPath);
     }
 
-    public void download(String path, HttpServletResponse response) {
-        System.out.println("[FileService.downloadFileAsAttachment] Downloading file: " + path);
-        try (InputStream inputStream = minioService.downloadFile(path)) {
-            response.setContentType("application/octet-stream");
-            response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT + Paths.get(path).getFileName() + "\"");
+    /**
+     * Streams the file as an attachment. A file compressed at rest is sent as stored, with its
+     * Content-Encoding, when the client accepts that encoding, and decoded on the fly otherwise.
+     * Content is served from the local disk cache when possible and fills it on a miss.
+     */
+    public void download(String path, HttpServletRequest request, HttpServletResponse response) {
+        DownloadEvent event = new DownloadEvent();
+        event.begin();
+        event.key = path;
+        try {
+            event.bytes = send(path, request, response);
+        } finally {
+            event.commit();
+        }
+    }
 
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                response.getOutputStream().write(buffer, 0, bytesRead);
+    // returns the number of stored bytes sent
+    private long send(String path, HttpServletRequest request, HttpServletResponse response) {
+        log.info("[FileService.downloadFileAsAttachment] Downloading file: " + path);
+        Optional<PackedFile> packed = packedFileService.find(path);
+        if (packed.isPresent()) {
+            downloadPacked(path, packed.get(), response);
+            return packed.get().getLength();
+        }
+        StatObjectResponse stat = minioService.findFileStat(path)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found: " + path));
+        String codec = MinioService.userMetadata(stat.userMetadata(), CompressionService.CODEC_METADATA);
+        boolean passThrough = codec == null || (CompressionService.GZIP.equalsIgnoreCase(codec)
+                && CompressionService.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+
+        try {
+            try (DiskCacheService.Content content = diskCacheService.open(path, stat.etag(), stat.size(),
+                    () -> minioService.downloadStored(path, stat.etag()))) {
+                writeHeaders(path, stat, codec, passThrough, response);
+                if (passThrough && content.channel() != null) {
+                    // bandwidth shaping wraps the servlet stream, so this is transferTo rather than sendfile
+                    FileChannel channel = content.channel();
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    long position = 0;
+                    while (position < stat.size()) {
+                        position += channel.transferTo(position, stat.size() - position, out);
+                    }
+                } else {
+                    InputStream stored = content.inputStream();
+                    copy(passThrough ? stored : CompressionService.decode(stored, codec), response);
+                }
             }
             response.flushBuffer();
+            return stat.size();
         } catch (ErrorResponseException e) {
             if (e.errorResponse().code().equals(NO_SUCH_KEY_ERROR_CODE)) {
                 throw new ResourceNotFoundException("File not found: " + path);
@@ -85,4 +152,42 @@ public class FileService {
         }
     }
 
+    // a ranged read of the segment; packed files are small and stored uncompressed
+    private void downloadPacked(String path, PackedFile file, HttpServletResponse response) {
+        try (InputStream inputStream = packedFileService.open(file)) {
+            response.setContentType("application/octet-stream");
+            response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT.formatted(Paths.get(path).getFileName()));
+            response.setContentLengthLong(file.getLength());
+            copy(inputStream, response);
+            response.flushBuffer();
+        } catch (java.io.IOException e) {
+            throw new InternalServerException("I/O error during file download", e);
+        } catch (Exception e) {
+            throw new InternalServerException("Unexpected error during file download", e);
+        }
+    }
+
+    private static void writeHeaders(String path, StatObjectResponse stat, String codec, boolean passThrough,
+                                     HttpServletResponse response) {
+        response.setContentType("application/octet-stream");
+        response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT.formatted(Paths.get(path).getFileName()));
+        if (codec != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (passThrough) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, CompressionService.GZIP);
+            }
+        }
+        response.setContentLengthLong(passThrough ? stat.size() : MinioService.contentSize(stat));
+    }
+
+    private static void copy(InputStream source, HttpServletResponse response) throws java.io.IOException {
+        try (InputStream inputStream = source) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                response.getOutputStream().write(buffer, 0, bytesRead);
+            }
+        }
+    }
+
 }
@@ -2,15 +2,24 @@ package com.example.cloud_box.service;
 
 import com.example.cloud_box.dto.ResourceDTO;
 import com.example.cloud_box.exception.*;
+import com.example.cloud_box.jfr.MoveStepEvent;
+import com.example.cloud_box.jfr.ZipEntryEvent;
+import com.example.cloud_box.model.PackedFile;
 import com.example.cloud_box.model.ResourceType;
-import com.example.cloud_box.util.MimeTypes;
 import com.example.cloud_box.util.ResourcePathUtils;
+import com.example.cloud_box.util.TracingUtils;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import io.minio.Result;
 import io.minio.messages.Item;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -21,7 +30,9 @@ import java.util.zip.ZipOutputStream;
 /**
  * It is assumed that the paths passed to methods are already normalized.
  */
+@Slf4j
 @Service
+@Observed(name = "cloudbox.service")
 public class FolderService {
 
     private static final String ZIP_CONTENT_TYPE = "application/zip";
@@ -30,53 +41,76 @@ public class FolderService {
     private static final String ATTACHMENT_FILENAME_FORMAT = "attachment; filename=\"%s\"";
 
     private final MinioService minioService;
+    private final ArchiveCacheService archiveCacheService;
+    private final ObservationRegistry observationRegistry;
+    private final PackedFileService packedFileService;
 
-    public FolderService(MinioService minioService) {
+    public FolderService(MinioService minioService, ArchiveCacheService archiveCacheService,
+                         ObservationRegistry observationRegistry, PackedFileService packedFileService) {
         this.minioService = minioService;
+        this.archiveCacheService = archiveCacheService;
+        this.observationRegistry = observationRegistry;
+        this.packedFileService = packedFileService;
     }
 
     public ResourceDTO move(String from, String to) {
+        return move(from, to, ProgressListener.NONE);
+    }
+
+    public ResourceDTO move(String from, String to, ProgressListener progress) {
         if (!from.endsWith("/") || !to.endsWith("/")) {
             throw new InvalidPathException("Both source and destination paths must end with '/'");
         }
 
-        if (minioService.resourceExists(to)) {
+        if (minioService.resourceExists(to) || packedFileService.existsUnder(to)) {
             throw new ResourceAlreadyExistsException("Resource already exists at destination");
         }
 
         boolean placeholderExists = minioService.fileExists(from);
         List<String> objects = minioService.getObjectsWithPrefix(from);
+        TracingUtils.tag(observationRegistry, TracingUtils.OBJECT_COUNT, objects.size());
+        boolean packedExist = packedFileService.existsUnder(from);
 
-        if (objects.isEmpty() && !placeholderExists) {
+        if (objects.isEmpty() && !placeholderExists && !packedExist) {
             throw new ResourceNotFoundException("Directory not found: " + from);
         }
 
         try {
+            if (packedExist) {
+                packedFileService.renameUnder(from, to);
+            }
+            long processed = 0;
             for (String object : objects) {
                 String suffix = object.substring(from.length());
                 String newPath = to + suffix;
 
-                try (InputStream in = minioService.downloadFile(object)) {
-                    minioService.uploadFile(newPath, in, MimeTypes.CONTENT_TYPE_OCTET_STREAM);
+                MoveStepEvent event = new MoveStepEvent();
+                event.begin();
+                event.key = object;
+                try {
+                    minioService.copyObject(object, newPath);
                     minioService.deleteResource(object);
                 } catch (Exception e) {
                     throw new RuntimeException("Failed to move object: " + object, e);
+                } finally {
+                    event.commit();
                 }
+                progress.onProgress(++processed, objects.size());
             }
 
             if (placeholderExists) {
-                try (InputStream in = minioService.downloadFile(from)) {
-                    minioService.uploadFile(to, in, MimeTypes.DIRECTORY);
+                try {
+                    minioService.copyObject(from, to);
                     if (minioService.fileExists(from)) {
                         minioService.deleteResource(from);
                     }
                 } catch (Exception e) {
-                    System.out.println("[FolderService.moveFolder] Warning: failed to move folder placeholder: " + from + ", " + e.getMessage());
+                    log.info("[FolderService.moveFolder] Warning: failed to move folder placeholder: " + from + ", " + e.getMessage());
                 }
             }
             return buildDirectoryResourceDTO(to);
 
-        } catch (ResourceNotFoundException | ResourceAlreadyExistsException e) {
+        } catch (ResourceNotFoundException | ResourceAlreadyExistsException | OperationCancelledException e) {
             throw e;
         } catch (Exception e) {
             throw new InternalServerException("Failed to move folder", e);
@@ -84,7 +118,7 @@ public class FolderService {
     }
 
     public ResourceDTO createEmptyFolder(String normalizedPath) {
-        System.out.println("[FolderService.createEmptyFolder] Creating empty directory at path: " + normalizedPath);
+        log.info("[FolderService.createEmptyFolder] Creating empty directory at path: " + normalizedPath);
 
         if (minioService.resourceExists(normalizedPath)) {
             throw new ResourceAlreadyExistsException("Folder already exists: " + normalizedPath);
@@ -100,11 +134,71 @@ public class FolderService {
     }
 
     public boolean delete(String folderPath) {
+        return delete(folderPath, ProgressListener.NONE);
+    }
+
+    public boolean delete(String folderPath, ProgressListener progress) {
         String normalizedFolderPath = ResourcePathUtils.normalizePath(folderPath, true);
-        return minioService.deleteResource(normalizedFolderPath);
+        boolean packedDeleted = packedFileService.removeUnder(normalizedFolderPath) > 0;
+        return minioService.deleteResource(normalizedFolderPath, progress) || packedDeleted;
+    }
+
+    public void downloadAsZip(String folderPath, HttpServletRequest request, HttpServletResponse response) {
+        FolderContents contents = listFolderContents(folderPath);
+        String zipFileName = zipFileName(folderPath);
+        TracingUtils.tag(observationRegistry, TracingUtils.OBJECT_COUNT, contents.size());
+        TracingUtils.tag(observationRegistry, TracingUtils.BYTES, contents.items().stream().mapToLong(Item::size).sum()
+                + contents.packed().stream().mapToLong(PackedFile::getLength).sum());
+
+        if (archiveCacheService.isEnabled()) {
+            String archiveKey = archiveCacheService.archiveKey(folderPath, contents.items(), contents.packed());
+            if (archiveCacheService.find(archiveKey).isPresent()) {
+                archiveCacheService.serve(archiveKey, zipFileName, request, response);
+                return;
+            }
+            response.setContentType(ZIP_CONTENT_TYPE);
+            response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT.formatted(zipFileName));
+            try {
+                archiveCacheService.streamAndStore(archiveKey, response.getOutputStream(),
+                        out -> writeZip(folderPath, contents, out, ProgressListener.NONE));
+            } catch (IOException e) {
+                throw new InternalServerException("Failed to download folder as zip", e);
+            }
+            return;
+        }
+
+        response.setContentType(ZIP_CONTENT_TYPE);
+        response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT.formatted(zipFileName));
+
+        try {
+            writeZip(folderPath, contents, response.getOutputStream(), ProgressListener.NONE);
+        } catch (IOException e) {
+            throw new InternalServerException("Failed to download folder as zip", e);
+        }
+    }
+
+    /**
+     * Stores the folder archive in the archive cache and returns its object key.
+     * An up-to-date cached archive is reused without reading the folder contents.
+     */
+    public String createArchive(String folderPath, ProgressListener progress) {
+        FolderContents contents = listFolderContents(folderPath);
+        String archiveKey = archiveCacheService.archiveKey(folderPath, contents.items(), contents.packed());
+        return archiveCacheService.getOrCreate(archiveKey, out -> writeZip(folderPath, contents, out, progress));
     }
 
-    public void downloadAsZip(String folderPath, HttpServletResponse response) {
+    public String zipFileName(String folderPath) {
+        String zipName = folderPath.endsWith("/") ? folderPath.substring(0, folderPath.length() - 1) : folderPath;
+        return Paths.get(zipName).getFileName() + ".zip";
+    }
+
+    private record FolderContents(List<Item> items, List<PackedFile> packed) {
+        int size() {
+            return items.size() + packed.size();
+        }
+    }
+
+    private FolderContents listFolderContents(String folderPath) {
         Iterable<Result<Item>> results = minioService.listObjects(folderPath, true);
 
         boolean found = false;
@@ -121,35 +215,54 @@ public class FolderService {
             }
         }
 
-        if (!found) {
+        List<PackedFile> packed = packedFileService.list(folderPath);
+        if (!found && packed.isEmpty()) {
             throw new ResourceNotFoundException("Folder not found or empty");
         }
-        response.setContentType(ZIP_CONTENT_TYPE);
-        String zipName = folderPath.endsWith("/") ? folderPath.substring(0, folderPath.length() - 1) : folderPath;
-        response.setHeader(CONTENT_DISPOSITION_HEADER, ATTACHMENT_FILENAME_FORMAT + Paths.get(zipName).getFileName() + ".zip\"");
+        return new FolderContents(items, packed);
+    }
 
-        try (ZipOutputStream zos = new ZipOutputStream(response.getOutputStream())) {
-            for (Item item : items) {
+    private void writeZip(String folderPath, FolderContents contents, OutputStream outputStream, ProgressListener progress) {
+        try (ZipOutputStream zos = new ZipOutputStream(outputStream)) {
+            long processed = 0;
+            for (Item item : contents.items()) {
                 String objectName = item.objectName();
                 try (InputStream inputStream = minioService.downloadFile(objectName)) {
-                    String zipEntryName = objectName.substring(folderPath.length());
-                    zos.putNextEntry(new ZipEntry(zipEntryName));
-
-                    byte[] buffer = new byte[BUFFER_SIZE];
-                    int bytesRead;
-                    while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        zos.write(buffer, 0, bytesRead);
-                    }
-
-                    zos.closeEntry();
+                    writeZipEntry(zos, objectName.substring(folderPath.length()), inputStream);
                 }
+                progress.onProgress(++processed, contents.size());
+            }
+            for (PackedFile file : contents.packed()) {
+                try (InputStream inputStream = packedFileService.open(file)) {
+                    writeZipEntry(zos, file.getObjectName().substring(folderPath.length()), inputStream);
+                }
+                progress.onProgress(++processed, contents.size());
             }
             zos.finish();
+        } catch (OperationCancelledException e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerException("Failed to download folder as zip", e);
         }
     }
 
+    private static void writeZipEntry(ZipOutputStream zos, String zipEntryName, InputStream inputStream) throws IOException {
+        ZipEntryEvent event = new ZipEntryEvent();
+        event.begin();
+        event.key = zipEntryName;
+        zos.putNextEntry(new ZipEntry(zipEntryName));
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            zos.write(buffer, 0, bytesRead);
+            event.bytes += bytesRead;
+        }
+
+        zos.closeEntry();
+        event.commit();
+    }
+
     private ResourceDTO buildDirectoryResourceDTO(String normalizedPath) {
         Path p = Paths.get(normalizedPath.replaceAll("/$", ""));
         String name = p.getFileName().toString();
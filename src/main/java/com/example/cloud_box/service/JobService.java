@@ -0,0 +1,438 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.JobProperties;
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.exception.OperationCancelledException;
+import com.example.cloud_box.exception.ResourceNotFoundException;
+import com.example.cloud_box.exception.TooManyRequestsException;
+import com.example.cloud_box.model.JobStatus;
+import com.example.cloud_box.model.JobType;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs long storage operations on a bounded worker pool.
+ * Job state lives in Redis so that any node can report progress or accept a cancellation.
+ * The node running a job refreshes its updatedAt as a heartbeat; jobs whose heartbeat stopped,
+ * because their node crashed, are failed by the reaper on any node.
+ */
+@Slf4j
+@Service
+public class JobService {
+
+    private static final String KEY_PREFIX = "cloudbox:jobs:";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_PROCESSED = "processed";
+    private static final String FIELD_TOTAL = "total";
+    private static final String FIELD_PATH = "path";
+    private static final String FIELD_TARGET = "target";
+    private static final String FIELD_RESULT_KEY = "resultKey";
+    private static final String FIELD_ERROR = "error";
+    private static final String FIELD_CANCEL_REQUESTED = "cancelRequested";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final String INTERRUPTED_ERROR = "Job was interrupted because its server stopped";
+
+    // writes only to a job that still exists, so a late write after expiry cannot leave a partial hash
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV)) "
+                    + "return 1",
+            Long.class);
+    // writes only if the field still has the expected value: ARGV[1] field, ARGV[2] value, then field-value pairs
+    private static final RedisScript<Long> COMPARE_AND_UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then return 0 end "
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV, 3)) "
+                    + "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ArchiveCacheService archiveCacheService;
+    private final JobProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService progressPoller;
+    private final ScheduledExecutorService maintenance;
+    // jobs queued or running on this node
+    private final Set<String> localJobs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public JobService(StringRedisTemplate redisTemplate, ArchiveCacheService archiveCacheService, JobProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.archiveCacheService = archiveCacheService;
+        this.properties = properties;
+        this.executor = new ThreadPoolExecutor(
+                properties.getWorkerThreads(),
+                properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                namedThreadFactory("job-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.progressPoller = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("job-sse-"));
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("job-maintenance-"));
+        long heartbeat = Math.max(1, properties.getHeartbeatSeconds());
+        maintenance.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.SECONDS);
+        long reap = Math.max(1, properties.getStaleAfterSeconds());
+        maintenance.scheduleWithFixedDelay(this::reapStale, reap, reap, TimeUnit.SECONDS);
+    }
+
+    public JobDTO submit(Long userId, JobType type, String path, String target, JobTask task) {
+        String jobId = UUID.randomUUID().toString();
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, userId.toString());
+        fields.put(FIELD_TYPE, type.name());
+        fields.put(FIELD_STATUS, JobStatus.QUEUED.name());
+        fields.put(FIELD_PROCESSED, "0");
+        fields.put(FIELD_TOTAL, "0");
+        fields.put(FIELD_PATH, path);
+        if (target != null) {
+            fields.put(FIELD_TARGET, target);
+        }
+        fields.put(FIELD_UPDATED_AT, Instant.now().toString());
+
+        String key = key(jobId);
+        hash().putAll(key, fields);
+        redisTemplate.expire(key, Duration.ofSeconds(properties.getRetentionSeconds()));
+
+        localJobs.add(jobId);
+        try {
+            executor.execute(() -> run(jobId, task));
+        } catch (RejectedExecutionException e) {
+            localJobs.remove(jobId);
+            redisTemplate.delete(key);
+            throw new TooManyRequestsException("Too many background jobs are queued, try again later",
+                    properties.getRetryAfterSeconds());
+        }
+        return toDto(jobId, fields);
+    }
+
+    public JobDTO get(Long userId, String jobId) {
+        Map<String, String> fields = loadOwned(userId, jobId);
+        return toDto(jobId, fields);
+    }
+
+    public JobDTO cancel(Long userId, String jobId) {
+        Map<String, String> fields = loadOwned(userId, jobId);
+        JobStatus status = JobStatus.valueOf(fields.get(FIELD_STATUS));
+        if (!status.isTerminal() && update(key(jobId), Map.of(FIELD_CANCEL_REQUESTED, "true"))) {
+            fields.put(FIELD_CANCEL_REQUESTED, "true");
+        }
+        return toDto(jobId, fields);
+    }
+
+    /**
+     * Streams progress; every stream is a poll on the shared poller thread, so their number is
+     * limited by jobs.max-sse-subscribers and clients over the limit are told to poll instead.
+     */
+    public SseEmitter subscribe(Long userId, String jobId) {
+        loadOwned(userId, jobId);
+        if (subscribers.incrementAndGet() > properties.getMaxSseSubscribers()) {
+            subscribers.decrementAndGet();
+            throw new TooManyRequestsException("Too many progress streams are open, poll the job status instead",
+                    properties.getRetryAfterSeconds());
+        }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(properties.getSseTimeoutSeconds()));
+        AtomicReference<JobDTO> lastSent = new AtomicReference<>();
+        AtomicReference<ScheduledFuture<?>> poll = new AtomicReference<>();
+        AtomicBoolean released = new AtomicBoolean();
+
+        Runnable stop = () -> {
+            ScheduledFuture<?> future = poll.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+            if (released.compareAndSet(false, true)) {
+                subscribers.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(e -> stop.run());
+
+        poll.set(progressPoller.scheduleAtFixedRate(() -> {
+            try {
+                Map<String, String> fields = hash().entries(key(jobId));
+                if (fields.isEmpty() || !fields.containsKey(FIELD_TYPE)) {
+                    emitter.complete();
+                    stop.run();
+                    return;
+                }
+                JobDTO current = toDto(jobId, fields);
+                if (!current.equals(lastSent.get())) {
+                    emitter.send(SseEmitter.event().name("progress").data(current));
+                    lastSent.set(current);
+                }
+                if (current.status().isTerminal()) {
+                    emitter.complete();
+                    stop.run();
+                }
+            } catch (IOException | IllegalStateException e) {
+                stop.run();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+                stop.run();
+            }
+        }, 0, properties.getSsePollMillis(), TimeUnit.MILLISECONDS));
+
+        return emitter;
+    }
+
+    public void downloadResult(Long userId, String jobId, HttpServletRequest request, HttpServletResponse response) {
+        Map<String, String> fields = loadOwned(userId, jobId);
+        String resultKey = fields.get(FIELD_RESULT_KEY);
+        if (JobType.valueOf(fields.get(FIELD_TYPE)) != JobType.ARCHIVE
+                || JobStatus.valueOf(fields.get(FIELD_STATUS)) != JobStatus.COMPLETED
+                || resultKey == null) {
+            throw new ResourceNotFoundException("Job has no downloadable result: " + jobId);
+        }
+        if (archiveCacheService.find(resultKey).isEmpty()) {
+            throw new ResourceNotFoundException("Job result has expired: " + jobId);
+        }
+        archiveCacheService.serve(resultKey, fields.get(FIELD_TARGET), request, response);
+    }
+
+    private void run(String jobId, JobTask task) {
+        String key = key(jobId);
+        try {
+            if (isCancelRequested(key)) {
+                finish(key, JobStatus.CANCELLED, null, null);
+                return;
+            }
+            updateStatus(key, JobStatus.RUNNING);
+            try {
+                String resultKey = task.run(new RedisProgressListener(key));
+                finish(key, JobStatus.COMPLETED, resultKey, null);
+            } catch (OperationCancelledException e) {
+                finish(key, JobStatus.CANCELLED, null, null);
+            } catch (Exception e) {
+                log.warn("[JobService.run] Job " + jobId + " failed: " + e.getMessage());
+                finish(key, JobStatus.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        } finally {
+            localJobs.remove(jobId);
+        }
+    }
+
+    private void updateStatus(String key, JobStatus status) {
+        update(key, Map.of(
+                FIELD_STATUS, status.name(),
+                FIELD_UPDATED_AT, Instant.now().toString()));
+    }
+
+    // a job that expired meanwhile is not written again; returns whether the job still existed
+    private boolean update(String key, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(fields.size() * 2);
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        Long updated = redisTemplate.execute(UPDATE_SCRIPT, List.of(key), args.toArray());
+        return updated != null && updated == 1;
+    }
+
+    // fails the job unless it moved on since its fields were read
+    private boolean failIfUnchanged(String key, Map<String, String> fields, String error) {
+        String updatedAt = fields.get(FIELD_UPDATED_AT);
+        if (updatedAt == null) {
+            return false;
+        }
+        Long updated = redisTemplate.execute(COMPARE_AND_UPDATE_SCRIPT, List.of(key),
+                FIELD_UPDATED_AT, updatedAt,
+                FIELD_STATUS, JobStatus.FAILED.name(),
+                FIELD_ERROR, error,
+                FIELD_UPDATED_AT, Instant.now().toString());
+        return updated != null && updated == 1;
+    }
+
+    private void heartbeat() {
+        String now = Instant.now().toString();
+        for (String jobId : localJobs) {
+            try {
+                update(key(jobId), Map.of(FIELD_UPDATED_AT, now));
+            } catch (RuntimeException e) {
+                log.warn("[JobService.heartbeat] Failed to refresh job " + jobId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fails queued and running jobs whose heartbeat is older than jobs.stale-after-seconds:
+     * their node stopped without finishing them, and clients would otherwise wait forever.
+     */
+    private void reapStale() {
+        Instant staleBefore = Instant.now().minusSeconds(properties.getStaleAfterSeconds());
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Map<String, String> fields = hash().entries(key);
+                String status = fields.get(FIELD_STATUS);
+                if (status == null || JobStatus.valueOf(status).isTerminal()
+                        || localJobs.contains(key.substring(KEY_PREFIX.length()))
+                        || !isBefore(fields.get(FIELD_UPDATED_AT), staleBefore)) {
+                    continue;
+                }
+                if (failIfUnchanged(key, fields, INTERRUPTED_ERROR)) {
+                    log.warn("[JobService.reapStale] Failed stale job " + key.substring(KEY_PREFIX.length()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("[JobService.reapStale] Failed to reap stale jobs: " + e.getMessage());
+        }
+    }
+
+    private static boolean isBefore(String timestamp, Instant limit) {
+        try {
+            return timestamp != null && Instant.parse(timestamp).isBefore(limit);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private void finish(String key, JobStatus status, String resultKey, String error) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_STATUS, status.name());
+        fields.put(FIELD_UPDATED_AT, Instant.now().toString());
+        if (resultKey != null) {
+            fields.put(FIELD_RESULT_KEY, resultKey);
+        }
+        if (error != null) {
+            fields.put(FIELD_ERROR, error);
+        }
+        if (update(key, fields)) {
+            redisTemplate.expire(key, Duration.ofSeconds(properties.getRetentionSeconds()));
+        }
+    }
+
+    private boolean isCancelRequested(String key) {
+        return "true".equals(hash().get(key, FIELD_CANCEL_REQUESTED));
+    }
+
+    private Map<String, String> loadOwned(Long userId, String jobId) {
+        Map<String, String> fields = hash().entries(key(jobId));
+        if (fields.isEmpty() || !userId.toString().equals(fields.get(FIELD_USER_ID))) {
+            throw new ResourceNotFoundException("Job not found: " + jobId);
+        }
+        return fields;
+    }
+
+    private JobDTO toDto(String jobId, Map<String, String> fields) {
+        JobType type = JobType.valueOf(fields.get(FIELD_TYPE));
+        JobStatus status = JobStatus.valueOf(fields.get(FIELD_STATUS));
+        String downloadUrl = type == JobType.ARCHIVE && status == JobStatus.COMPLETED
+                ? "/api/jobs/" + jobId + "/result"
+                : null;
+        return new JobDTO(
+                jobId,
+                type,
+                status,
+                Long.parseLong(fields.getOrDefault(FIELD_PROCESSED, "0")),
+                Long.parseLong(fields.getOrDefault(FIELD_TOTAL, "0")),
+                fields.get(FIELD_PATH),
+                fields.get(FIELD_TARGET),
+                downloadUrl,
+                fields.get(FIELD_ERROR)
+        );
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redisTemplate.opsForHash();
+    }
+
+    private static String key(String jobId) {
+        return KEY_PREFIX + jobId;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // jobs queued or running here will never finish, so clients are told now instead of waiting for the reaper
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        executor.shutdownNow();
+        progressPoller.shutdownNow();
+        for (String jobId : localJobs) {
+            try {
+                String key = key(jobId);
+                Map<String, String> fields = hash().entries(key);
+                String status = fields.get(FIELD_STATUS);
+                if (status != null && !JobStatus.valueOf(status).isTerminal()) {
+                    failIfUnchanged(key, fields, INTERRUPTED_ERROR);
+                }
+            } catch (RuntimeException e) {
+                log.warn("[JobService.shutdown] Failed to mark job " + jobId + " as interrupted: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes progress to Redis at most every {@code progressUpdateMillis} and checks
+     * the cancellation flag at the same rate, so that any node can stop the job.
+     */
+    private class RedisProgressListener implements ProgressListener {
+
+        private final String key;
+        private long lastUpdate;
+
+        RedisProgressListener(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void onProgress(long processed, long total) {
+            long now = System.currentTimeMillis();
+            if (processed < total && now - lastUpdate < properties.getProgressUpdateMillis()) {
+                return;
+            }
+            lastUpdate = now;
+            update(key, Map.of(
+                    FIELD_PROCESSED, Long.toString(processed),
+                    FIELD_TOTAL, Long.toString(total),
+                    FIELD_UPDATED_AT, Instant.now().toString()));
+            if (isCancelRequested(key)) {
+                throw new OperationCancelledException("Job cancelled");
+            }
+        }
+    }
+}
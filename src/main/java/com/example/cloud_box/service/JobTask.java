@@ -0,0 +1,10 @@
+package com.example.cloud_box.service;
+
+/**
+ * Unit of work executed by {@link JobService} on a worker thread.
+ * Returns an internal result (e.g. the key of a produced object) or null.
+ */
+@FunctionalInterface
+public interface JobTask {
+    String run(ProgressListener progress) throws Exception;
+}
@@ -0,0 +1,70 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.LoginProtectionProperties;
+import com.example.cloud_box.exception.TooManyRequestsException;
+import com.example.cloud_box.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-username and per-client-address limits on credential checks. Attempts over the limit
+ * are rejected before any password hashing is scheduled.
+ */
+@Service
+public class LoginThrottleService {
+
+    private final TokenBucket usernameBuckets;
+    private final TokenBucket addressBuckets;
+    private final Counter usernameRejections;
+    private final Counter addressRejections;
+
+    public LoginThrottleService(LoginProtectionProperties properties, MeterRegistry meterRegistry) {
+        this.usernameBuckets = new TokenBucket(properties.getUsernameAttemptsPerMinute(),
+                properties.getUsernameBurst(), properties.getMaxTrackedKeys());
+        this.addressBuckets = new TokenBucket(properties.getIpAttemptsPerMinute(),
+                properties.getIpBurst(), properties.getMaxTrackedKeys());
+
+        this.usernameRejections = Counter.builder("auth.login.throttled")
+                .description("Credential checks rejected by the login throttle")
+                .tag("scope", "username")
+                .register(meterRegistry);
+        this.addressRejections = Counter.builder("auth.login.throttled")
+                .description("Credential checks rejected by the login throttle")
+                .tag("scope", "ip")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.throttle.keys", this, s -> s.usernameBuckets.size() + s.addressBuckets.size())
+                .description("Usernames and addresses tracked by the login throttle")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Throws {@link TooManyRequestsException} when the address or, if given, the username
+     * has used up its attempts.
+     */
+    public void acquire(String username, String clientAddress) {
+        if (clientAddress != null) {
+            long waitNanos = addressBuckets.tryAcquire(clientAddress);
+            if (waitNanos > 0) {
+                addressRejections.increment();
+                throw tooMany(waitNanos);
+            }
+        }
+        if (username != null) {
+            long waitNanos = usernameBuckets.tryAcquire(username.toLowerCase(Locale.ROOT));
+            if (waitNanos > 0) {
+                usernameRejections.increment();
+                throw tooMany(waitNanos);
+            }
+        }
+    }
+
+    private TooManyRequestsException tooMany(long waitNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        return new TooManyRequestsException("Too many sign-in attempts, try again later", retryAfterSeconds);
+    }
+}
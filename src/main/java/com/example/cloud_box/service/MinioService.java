@@ -2,55 +2,106 @@ package com.example.cloud_box.service;
 
 import com.example.cloud_box.exception.MinioOperationException;
 import com.example.cloud_box.util.MimeTypes;
+import com.example.cloud_box.util.TracingUtils;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import io.minio.MinioClient;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import com.example.cloud_box.config.MinioProperties;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * It is assumed that the paths passed to methods are already normalized.
+ * The bucket of every key comes from {@link ShardRouter}.
  */
+@Slf4j
 @Service
+@Observed(name = "cloudbox.minio")
 public class MinioService {
 
     private static final String NO_SUCH_KEY_ERROR_CODE = "NoSuchKey";
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length";
     private static final int DEFAULT_PART_SIZE = 10 * 1024 * 1024; // 10MB
+    private static final int MAX_DELETE_OBJECTS = 1000; // S3 DeleteObjects limit
+    private static final int MAX_SNOWBALL_OBJECTS = 1000;
+    private static final String USER_METADATA_HEADER_PREFIX = "x-amz-meta-";
+
+    public static final String SHA256_METADATA = "sha256";
 
     private final MinioClient minioClient;
-    private final String bucketName;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObservationRegistry observationRegistry;
+    private final CompressionService compressionService;
+    private final ReadResilienceService readResilienceService;
 
-    public MinioService(MinioClient minioClient, MinioProperties properties) {
+    public MinioService(MinioClient minioClient, ShardRouter shardRouter, ApplicationEventPublisher eventPublisher,
+                        ObservationRegistry observationRegistry, CompressionService compressionService,
+                        ReadResilienceService readResilienceService) {
         this.minioClient = minioClient;
-        this.bucketName = properties.getBucket();
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.observationRegistry = observationRegistry;
+        this.compressionService = compressionService;
+        this.readResilienceService = readResilienceService;
     }
 
     public void uploadFile(String objectName, InputStream inputStream, String contentType) {
+        uploadFile(objectName, inputStream, contentType, Map.of());
+    }
+
+    public void uploadFile(String objectName, InputStream inputStream, String contentType, Map<String, String> userMetadata) {
+        String bucket = shardRouter.writeBucket(objectName);
         try {
             minioClient.putObject(
                     PutObjectArgs.builder()
-                            .bucket(bucketName)
+                            .bucket(bucket)
                             .object(objectName)
                             .stream(inputStream, -1, DEFAULT_PART_SIZE)
                             .contentType(contentType)
+                            .userMetadata(userMetadata)
                             .build()
             );
         } catch (Exception e) {
             throw new MinioOperationException("Failed to upload file to Minio", e);
         }
+        eventPublisher.publishEvent(StorageChangeEvent.of(objectName));
+    }
+
+    /**
+     * Uploads user content, compressed at rest when its type and first bytes make that worthwhile.
+     * {@code size} is the uncompressed size, or -1 if unknown, in which case it is stored as is.
+     */
+    public void uploadContent(String objectName, InputStream inputStream, String contentType, long size,
+                              Map<String, String> userMetadata) {
+        CompressionService.Encoded encoded;
+        try {
+            encoded = compressionService.encode(inputStream, contentType, size, userMetadata);
+        } catch (IOException e) {
+            throw new MinioOperationException("Failed to read upload content", e);
+        }
+        uploadFile(objectName, encoded.stream(), contentType, encoded.userMetadata());
     }
 
     public boolean fileExists(String path) {
         try {
-            minioClient.statObject(StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(path)
-                    .build());
+            statObject(path);
             return true;
         } catch (ErrorResponseException e) {
             if (NO_SUCH_KEY_ERROR_CODE.equals(e.errorResponse().code())) {
@@ -62,55 +113,157 @@ public class MinioService {
         }
     }
 
+    /**
+     * Content of the object as it was uploaded; objects compressed at rest are decoded while streaming.
+     */
     public InputStream downloadFile(String objectName) throws Exception {
+        GetObjectResponse response = downloadStored(objectName);
+        return CompressionService.decode(response, storedCodec(response));
+    }
+
+    /**
+     * Object bytes as stored, possibly compressed; see {@link #storedCodec(GetObjectResponse)}.
+     */
+    public GetObjectResponse downloadStored(String objectName) throws Exception {
+        return downloadStored(objectName, null);
+    }
+
+    /**
+     * Stored bytes of the object, failing if its ETag no longer matches {@code matchETag} (if given).
+     */
+    public GetObjectResponse downloadStored(String objectName, String matchETag) throws Exception {
         try {
-            return minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
+            GetObjectResponse response = getObject(GetObjectArgs.builder()
+                    .bucket(shardRouter.readBucket(objectName))
+                    .object(objectName)
+                    .matchETag(matchETag)
+                    .build());
+            TracingUtils.tag(observationRegistry, TracingUtils.BYTES, response.headers().get(CONTENT_LENGTH_HEADER));
+            return response;
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to upload file to Minio", e);
+        }
+    }
+
+    // reads go through retries, hedging and the circuit breaker; see ReadResilienceService
+    private GetObjectResponse getObject(GetObjectArgs args) throws Exception {
+        return readResilienceService.read("getObject", () -> minioClient.getObject(args));
+    }
+
+    private StatObjectResponse statObject(String path) throws Exception {
+        return readResilienceService.read("statObject", () -> minioClient.statObject(StatObjectArgs.builder()
+                .bucket(shardRouter.readBucket(path))
+                .object(path)
+                .build()));
+    }
+
+    public static String storedCodec(GetObjectResponse response) {
+        return response.headers().get(USER_METADATA_HEADER_PREFIX + CompressionService.CODEC_METADATA);
+    }
+
+    /**
+     * Reads a range of the stored bytes; only meant for objects that are not compressed at rest.
+     */
+    public InputStream downloadFile(String objectName, long offset, long length) throws Exception {
+        try {
+            GetObjectResponse response = getObject(GetObjectArgs.builder()
+                    .bucket(shardRouter.readBucket(objectName))
+                    .object(objectName)
+                    .offset(offset)
+                    .length(length)
+                    .build());
+            TracingUtils.tag(observationRegistry, TracingUtils.BYTES, response.headers().get(CONTENT_LENGTH_HEADER));
+            return response;
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to download file range from Minio", e);
+        }
+    }
+
+    /**
+     * Server-side copy that keeps content type and user metadata, compressed objects stay compressed.
+     */
+    public void copyObject(String from, String to) {
+        String bucket = shardRouter.writeBucket(to);
+        try {
+            minioClient.copyObject(
+                    CopyObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(to)
+                            .source(CopySource.builder()
+                                    .bucket(shardRouter.readBucket(from))
+                                    .object(from)
+                                    .build())
                             .build()
             );
         } catch (Exception e) {
-            throw new MinioOperationException("Failed to upload file to Minio", e);
+            throw new MinioOperationException("Failed to copy object in Minio", e);
         }
+        eventPublisher.publishEvent(StorageChangeEvent.of(to));
     }
 
     public boolean deleteResource(String path) {
+        return deleteResource(path, ProgressListener.NONE);
+    }
+
+    public boolean deleteResource(String path, ProgressListener progress) {
         boolean resourceDeleted = false;
+        List<String> removed = new ArrayList<>();
 
-        if (directoryExists(path)) {
-            List<String> objects = getObjectsWithPrefix(path);
-            for (String obj : objects) {
+        try {
+            if (directoryExists(path)) {
+                List<String> objects = getObjectsWithPrefix(path);
+                long processed = 0;
+                for (String obj : objects) {
+                    try {
+                        removeObject(obj);
+                        removed.add(obj);
+                        resourceDeleted = true;
+                    } catch (MinioOperationException e) {
+                        log.warn("Failed to delete object: " + obj + ", error: " + e.getMessage());
+                    }
+                    progress.onProgress(++processed, objects.size());
+                }
                 try {
-                    deleteFile(obj);
-                    resourceDeleted = true;
+                    if (fileExists(path)) {
+                        removeObject(path);
+                        removed.add(path);
+                        resourceDeleted = true;
+                    }
                 } catch (MinioOperationException e) {
-                    System.err.println("Failed to delete object: " + obj + ", error: " + e.getMessage());
+                    log.warn("Failed to delete file: " + e.getMessage());
                 }
-            }
-            try {
-                if (fileExists(path)) {
-                    deleteFile(path);
+            } else if (fileExists(path)) {
+                try {
+                    removeObject(path);
+                    removed.add(path);
                     resourceDeleted = true;
+                } catch (MinioOperationException e) {
+                    log.warn("Failed to delete file: " + e.getMessage());
                 }
-            } catch (MinioOperationException e) {
-                System.err.println("Failed to delete file: " + e.getMessage());
             }
-        } else if (fileExists(path)) {
-            try {
-                deleteFile(path);
-                resourceDeleted = true;
-            } catch (MinioOperationException e) {
-                System.err.println("Failed to delete file: " + e.getMessage());
+        } finally {
+            TracingUtils.tag(observationRegistry, TracingUtils.OBJECT_COUNT, removed.size());
+            // one event for the whole resource, also when the deletion was cancelled halfway
+            if (!removed.isEmpty()) {
+                eventPublisher.publishEvent(StorageChangeEvent.deleted(removed));
             }
         }
         return resourceDeleted;
     }
 
     public boolean deleteFile(String path) {
+        boolean deleted = removeObject(path);
+        if (deleted) {
+            eventPublisher.publishEvent(StorageChangeEvent.deleted(path));
+        }
+        return deleted;
+    }
+
+    private boolean removeObject(String path) {
+        String bucket = shardRouter.writeBucket(path);
         try {
             minioClient.removeObject(RemoveObjectArgs.builder()
-                    .bucket(bucketName)
+                    .bucket(bucket)
                     .object(path)
                     .build());
             return true;
@@ -124,13 +277,61 @@ public class MinioService {
         }
     }
 
+    /**
+     * Removes objects with as few DeleteObjects calls as possible, one series per bucket.
+     * Returns the names of objects that could not be removed; missing objects are not errors.
+     */
+    public Set<String> deleteObjects(List<String> objectNames) {
+        TracingUtils.tag(observationRegistry, TracingUtils.OBJECT_COUNT, objectNames.size());
+        Set<String> failed = new HashSet<>();
+        for (Map.Entry<String, List<String>> bucket : byWriteBucket(objectNames).entrySet()) {
+            List<String> bucketObjects = bucket.getValue();
+            for (int from = 0; from < bucketObjects.size(); from += MAX_DELETE_OBJECTS) {
+                List<String> names = bucketObjects.subList(from, Math.min(from + MAX_DELETE_OBJECTS, bucketObjects.size()));
+                List<DeleteObject> chunk = names.stream().map(DeleteObject::new).toList();
+                try {
+                    Iterable<Result<DeleteError>> errors = minioClient.removeObjects(RemoveObjectsArgs.builder()
+                            .bucket(bucket.getKey())
+                            .objects(chunk)
+                            .build());
+                    for (Result<DeleteError> error : errors) {
+                        failed.add(error.get().objectName());
+                    }
+                } catch (Exception e) {
+                    throw new MinioOperationException("Failed to delete objects in Minio", e);
+                } finally {
+                    eventPublisher.publishEvent(StorageChangeEvent.deleted(List.copyOf(names)));
+                }
+            }
+        }
+        return failed;
+    }
+
+    // keys of one operation normally share a user and so a bucket; the order within a bucket is kept
+    private Map<String, List<String>> byWriteBucket(List<String> objectNames) {
+        Map<String, List<String>> buckets = new LinkedHashMap<>();
+        for (String objectName : objectNames) {
+            buckets.computeIfAbsent(shardRouter.writeBucket(objectName), bucket -> new ArrayList<>()).add(objectName);
+        }
+        return buckets;
+    }
+
     public Iterable<Result<Item>> listObjects(String prefix, boolean recursive) {
+        return listObjects(prefix, recursive, false);
+    }
+
+    /**
+     * With {@code includeUserMetadata} the listing carries the user metadata of every object,
+     * a MinIO extension that saves a stat per object.
+     */
+    public Iterable<Result<Item>> listObjects(String prefix, boolean recursive, boolean includeUserMetadata) {
         try {
             return minioClient.listObjects(
                     ListObjectsArgs.builder()
-                            .bucket(bucketName)
+                            .bucket(shardRouter.readBucket(prefix))
                             .prefix(prefix)
                             .recursive(recursive)
+                            .includeUserMetadata(includeUserMetadata)
                             .build()
             );
         } catch (Exception e) {
@@ -138,6 +339,47 @@ public class MinioService {
         }
     }
 
+    /**
+     * User metadata value of a listed object, or null. Listings return the keys as headers
+     * (X-Amz-Meta-Name), stats without the prefix, in either case any letter case.
+     */
+    public static String userMetadata(Map<String, String> metadata, String name) {
+        if (metadata == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            if (key.equalsIgnoreCase(name) || key.equalsIgnoreCase(USER_METADATA_HEADER_PREFIX + name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Size of the content as uploaded; the stored size differs for objects compressed at rest.
+     * Listings need user metadata included for this.
+     */
+    public static long contentSize(Item item) {
+        return contentSize(item.userMetadata(), item.size());
+    }
+
+    public static long contentSize(StatObjectResponse stat) {
+        return contentSize(stat.userMetadata(), stat.size());
+    }
+
+    private static long contentSize(Map<String, String> metadata, long storedSize) {
+        String originalSize = userMetadata(metadata, CompressionService.ORIGINAL_SIZE_METADATA);
+        if (originalSize == null) {
+            return storedSize;
+        }
+        try {
+            return Long.parseLong(originalSize);
+        } catch (NumberFormatException e) {
+            return storedSize;
+        }
+    }
+
     public boolean resourceExists(String path) {
         if (directoryExists(path)) {
             return true;
@@ -148,11 +390,11 @@ public class MinioService {
     public void ensureBucketExists() {
         try {
             boolean found = minioClient.bucketExists(
-                    BucketExistsArgs.builder().bucket(bucketName).build()
+                    BucketExistsArgs.builder().bucket(shardRouter.defaultBucket()).build()
             );
             if (!found) {
                 minioClient.makeBucket(
-                        MakeBucketArgs.builder().bucket(bucketName).build()
+                        MakeBucketArgs.builder().bucket(shardRouter.defaultBucket()).build()
                 );
             }
         } catch (Exception e) {
@@ -164,7 +406,7 @@ public class MinioService {
         try {
             Iterable<Result<Item>> results = minioClient.listObjects(
                     ListObjectsArgs.builder()
-                            .bucket(bucketName)
+                            .bucket(shardRouter.readBucket(path))
                             .prefix(path)
                             .maxKeys(1)
                             .recursive(true)
@@ -181,7 +423,7 @@ public class MinioService {
         try {
             Iterable<Result<Item>> results = minioClient.listObjects(
                     ListObjectsArgs.builder()
-                            .bucket(bucketName)
+                            .bucket(shardRouter.readBucket(path))
                             .prefix(path)
                             .recursive(true)
                             .build()
@@ -194,26 +436,66 @@ public class MinioService {
         } catch (Exception e) {
             throw new MinioOperationException("Failed to list objects with prefix: " + path, e);
         }
+        TracingUtils.tag(observationRegistry, TracingUtils.OBJECT_COUNT, objects.size());
         return objects;
     }
 
     public StatObjectResponse getFileStat(String path) {
         try {
-            return minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(path)
-                            .build()
-            );
+            StatObjectResponse stat = statObject(path);
+            TracingUtils.tag(observationRegistry, TracingUtils.BYTES, stat.size());
+            return stat;
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to get file stat for: " + path, e);
+        }
+    }
+
+    public Optional<StatObjectResponse> findFileStat(String path) {
+        try {
+            return Optional.of(statObject(path));
+        } catch (ErrorResponseException e) {
+            if (NO_SUCH_KEY_ERROR_CODE.equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw new MinioOperationException("MinIO error during statObject", e);
         } catch (Exception e) {
             throw new MinioOperationException("Failed to get file stat for: " + path, e);
         }
     }
 
+    /**
+     * Creates many directory placeholders with one snowball upload per batch: a tar that MinIO
+     * extracts on its side. Falls back to one request per placeholder if the server rejects it.
+     */
+    public void createDirectoryPlaceholders(List<String> paths) {
+        for (Map.Entry<String, List<String>> bucket : byWriteBucket(paths).entrySet()) {
+            List<String> bucketPaths = bucket.getValue();
+            for (int from = 0; from < bucketPaths.size(); from += MAX_SNOWBALL_OBJECTS) {
+                List<String> names = bucketPaths.subList(from, Math.min(from + MAX_SNOWBALL_OBJECTS, bucketPaths.size()));
+                ZonedDateTime now = ZonedDateTime.now();
+                List<SnowballObject> objects = names.stream()
+                        .map(name -> new SnowballObject(name, new ByteArrayInputStream(new byte[0]), 0, now))
+                        .toList();
+                try {
+                    minioClient.uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
+                            .bucket(bucket.getKey())
+                            .objects(objects)
+                            .build());
+                } catch (Exception e) {
+                    log.warn("[MinioService.createDirectoryPlaceholders] Snowball upload failed, creating placeholders one by one: "
+                            + e.getMessage());
+                    names.forEach(this::createDirectoryPlaceholder);
+                    continue;
+                }
+                eventPublisher.publishEvent(StorageChangeEvent.of(List.copyOf(names)));
+            }
+        }
+    }
+
     public void createDirectoryPlaceholder(String path) {
         try {
             uploadFile(path, new ByteArrayInputStream(new byte[0]), MimeTypes.DIRECTORY);
-        } catch (Exception e) {
+        } catch (MinioOperationException e) {
             throw new MinioOperationException("Failed to create directory placeholder: " + path, e);
         }
     }
@@ -0,0 +1,393 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioProperties;
+import com.example.cloud_box.config.PackingProperties;
+import com.example.cloud_box.exception.MinioOperationException;
+import com.example.cloud_box.model.PackedFile;
+import com.example.cloud_box.model.Segment;
+import com.example.cloud_box.repository.PackedFileRepository;
+import com.example.cloud_box.repository.SegmentRepository;
+import com.example.cloud_box.util.MimeTypes;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.SequenceInputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs small files into segment objects, so a user with millions of tiny files does not produce
+ * millions of objects. The files of one upload are written back to back into a segment under the
+ * system prefix; the index of which byte range holds which file lives in the database, and reads are
+ * ranged GETs. Deleting, moving and renaming packed files only touches the index. A background
+ * compactor rewrites segments that are mostly dead and removes the old ones after a grace period,
+ * so reads that looked up the old range still find it. packing.enabled only decides whether new
+ * uploads are packed; files packed earlier stay readable and movable after it is turned off.
+ */
+@Slf4j
+@Service
+public class PackedFileService {
+
+    private static final String SEGMENTS_FOLDER = "segments/";
+    private static final int LOOKUP_BATCH = 1000;
+
+    private final PackingProperties properties;
+    private final PackedFileRepository packedFileRepository;
+    private final SegmentRepository segmentRepository;
+    private final MinioService minioService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String segmentPrefix;
+    private final ScheduledExecutorService compactor;
+
+    public PackedFileService(PackingProperties properties, PackedFileRepository packedFileRepository,
+                             SegmentRepository segmentRepository, MinioService minioService,
+                             TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                             MinioProperties minioProperties) {
+        this.properties = properties;
+        this.packedFileRepository = packedFileRepository;
+        this.segmentRepository = segmentRepository;
+        this.minioService = minioService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.segmentPrefix = minioProperties.getSystemPrefix() + SEGMENTS_FOLDER;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // also while packing is off, files packed before are still read, deleted and compacted
+        long period = Math.max(1, properties.getCompactionIntervalSeconds());
+        compactor.scheduleWithFixedDelay(this::compact, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * File of an upload to pack; {@code size} must be the exact length of the content.
+     */
+    public record PackInput(String objectName, String contentType, String sha256, long size, InputStreamSource content) {
+    }
+
+    /**
+     * Whether an upload of this size is packed instead of stored as an object of its own.
+     */
+    public boolean accepts(long size) {
+        return properties.isEnabled() && size <= properties.getMaxFileBytes();
+    }
+
+    /**
+     * Writes the files into as few segments as the segment size allows and indexes them. A packed
+     * or standalone file that existed under one of the names is replaced.
+     */
+    public void pack(List<PackInput> files) {
+        List<PackInput> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (PackInput file : files) {
+            if (!batch.isEmpty() && batchBytes + file.size() > properties.getSegmentBytes()) {
+                writeSegment(batch, batchBytes);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(file);
+            batchBytes += file.size();
+        }
+        if (!batch.isEmpty()) {
+            writeSegment(batch, batchBytes);
+        }
+    }
+
+    private void writeSegment(List<PackInput> files, long size) {
+        String segmentKey = segmentPrefix + UUID.randomUUID();
+        // registered before the upload with nothing live, so the compactor removes it if indexing never happens
+        segmentRepository.save(Segment.builder().objectKey(segmentKey).size(size).liveBytes(0).build());
+
+        Iterator<PackInput> remaining = files.iterator();
+        Enumeration<InputStream> contents = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return remaining.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                PackInput file = remaining.next();
+                try {
+                    return new ExactLengthInputStream(file.content().getInputStream(), file.size(), file.objectName());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + file.objectName(), e);
+                }
+            }
+        };
+        try (InputStream segment = new SequenceInputStream(contents)) {
+            minioService.uploadFile(segmentKey, segment, MimeTypes.CONTENT_TYPE_OCTET_STREAM);
+        } catch (IOException e) {
+            throw new MinioOperationException("Failed to write segment " + segmentKey, e);
+        }
+
+        List<String> names = files.stream().map(PackInput::objectName).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, PackedFile> existing = new HashMap<>();
+            packedFileRepository.findByObjectNameIn(names).forEach(file -> existing.put(file.getObjectName(), file));
+            long offset = 0;
+            for (PackInput input : files) {
+                PackedFile file = existing.get(input.objectName());
+                if (file == null) {
+                    file = PackedFile.builder().objectName(input.objectName()).build();
+                } else {
+                    segmentRepository.addLiveBytes(file.getSegmentKey(), -file.getLength());
+                }
+                file.setSegmentKey(segmentKey);
+                file.setOffset(offset);
+                file.setLength(input.size());
+                file.setContentType(input.contentType());
+                file.setSha256(input.sha256());
+                existing.put(input.objectName(), packedFileRepository.save(file));
+                offset += input.size();
+            }
+            segmentRepository.addLiveBytes(segmentKey, size);
+        });
+        // an earlier upload under the same name may have been stored as an object of its own
+        minioService.deleteObjects(names);
+        eventPublisher.publishEvent(StorageChangeEvent.of(names));
+        log.info("[PackedFileService.writeSegment] Packed " + files.size() + " files, " + size + " bytes into " + segmentKey);
+    }
+
+    public Optional<PackedFile> find(String objectName) {
+        return packedFileRepository.findByObjectName(objectName);
+    }
+
+    /**
+     * Packed files among the names, by name; names are looked up in batches.
+     */
+    public Map<String, PackedFile> findAll(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return Map.of();
+        }
+        List<String> names = new ArrayList<>(objectNames);
+        Map<String, PackedFile> found = new HashMap<>();
+        for (int from = 0; from < names.size(); from += LOOKUP_BATCH) {
+            packedFileRepository.findByObjectNameIn(names.subList(from, Math.min(names.size(), from + LOOKUP_BATCH)))
+                    .forEach(file -> found.put(file.getObjectName(), file));
+        }
+        return found;
+    }
+
+    /**
+     * Packed files anywhere below the prefix, ordered by name.
+     */
+    public List<PackedFile> list(String prefix) {
+        return packedFileRepository.findByObjectNameStartingWithOrderByObjectName(prefix);
+    }
+
+    /**
+     * Packed files directly in the folder, and the subfolders that hold packed files, as prefixes
+     * ending with '/'. The database does the grouping, so large subtrees are not loaded.
+     */
+    public Children listChildren(String folderPath) {
+        String pattern = folderPath.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        int start = folderPath.length() + 1;
+        return new Children(packedFileRepository.findDirectChildren(pattern, start),
+                packedFileRepository.findChildFolders(pattern, start));
+    }
+
+    public record Children(List<PackedFile> files, List<String> folders) {
+    }
+
+    public boolean existsUnder(String prefix) {
+        return packedFileRepository.existsByObjectNameStartingWith(prefix);
+    }
+
+    public InputStream open(PackedFile file) throws Exception {
+        if (file.getLength() == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return minioService.downloadFile(file.getSegmentKey(), file.getOffset(), file.getLength());
+    }
+
+    public boolean remove(String objectName) {
+        return delete(find(objectName).map(List::of).orElse(List.of())) > 0;
+    }
+
+    /**
+     * Removes every packed file below the prefix; returns how many there were.
+     */
+    public int removeUnder(String prefix) {
+        return delete(list(prefix));
+    }
+
+    /**
+     * Removes the packed files among the names, e.g. after they were written as objects of their own.
+     */
+    public int removeAll(Collection<String> objectNames) {
+        return delete(new ArrayList<>(findAll(objectNames).values()));
+    }
+
+    private int delete(List<PackedFile> files) {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            packedFileRepository.deleteAll(files);
+            for (PackedFile file : files) {
+                segmentRepository.addLiveBytes(file.getSegmentKey(), -file.getLength());
+            }
+        });
+        eventPublisher.publishEvent(StorageChangeEvent.deleted(files.stream().map(PackedFile::getObjectName).toList()));
+        return files.size();
+    }
+
+    /**
+     * Renames a packed file in the index; the content stays where it is.
+     */
+    public PackedFile rename(String from, String to) {
+        PackedFile file = find(from).orElseThrow();
+        file.setObjectName(to);
+        PackedFile renamed = packedFileRepository.save(file);
+        eventPublisher.publishEvent(StorageChangeEvent.deleted(from));
+        eventPublisher.publishEvent(StorageChangeEvent.of(to));
+        return renamed;
+    }
+
+    /**
+     * Moves every packed file below {@code fromPrefix} to the same relative name below {@code toPrefix}.
+     */
+    public int renameUnder(String fromPrefix, String toPrefix) {
+        List<PackedFile> files = list(fromPrefix);
+        if (files.isEmpty()) {
+            return 0;
+        }
+        List<String> oldNames = files.stream().map(PackedFile::getObjectName).toList();
+        files.forEach(file -> file.setObjectName(toPrefix + file.getObjectName().substring(fromPrefix.length())));
+        transactionTemplate.executeWithoutResult(status -> packedFileRepository.saveAll(files));
+        eventPublisher.publishEvent(StorageChangeEvent.deleted(oldNames));
+        eventPublisher.publishEvent(StorageChangeEvent.of(files.stream().map(PackedFile::getObjectName).toList()));
+        return files.size();
+    }
+
+    private void compact() {
+        try {
+            LocalDateTime graceStart = LocalDateTime.now().minusSeconds(properties.getRetiredSegmentGraceSeconds());
+            for (Segment retired : segmentRepository.findByRetiredAtBefore(graceStart)) {
+                minioService.deleteFile(retired.getObjectKey());
+                segmentRepository.delete(retired);
+            }
+            long maxLivePercent = 100 - properties.getCompactionMinDeadPercent();
+            for (Segment segment : segmentRepository.findCompactionCandidates(graceStart, maxLivePercent)) {
+                compact(segment);
+            }
+        } catch (Exception e) {
+            log.warn("[PackedFileService.compact] Compaction failed: " + e.getMessage());
+        }
+    }
+
+    // copies the live ranges into a new segment; rows changed meanwhile fail their version check
+    // and roll the switch back, and the segment is picked up again on the next run
+    private void compact(Segment segment) throws Exception {
+        List<PackedFile> live = new ArrayList<>(packedFileRepository.findBySegmentKey(segment.getObjectKey()));
+        if (live.isEmpty()) {
+            retire(segment);
+            return;
+        }
+        live.sort(Comparator.comparingLong(PackedFile::getOffset));
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.min(segment.getLiveBytes(), Integer.MAX_VALUE));
+        long[] offsets = new long[live.size()];
+        try (InputStream in = minioService.downloadFile(segment.getObjectKey())) {
+            long position = 0;
+            for (int i = 0; i < live.size(); i++) {
+                PackedFile file = live.get(i);
+                in.skipNBytes(file.getOffset() - position);
+                offsets[i] = content.size();
+                content.write(in.readNBytes((int) file.getLength()));
+                position = file.getOffset() + file.getLength();
+            }
+        }
+
+        String newKey = segmentPrefix + UUID.randomUUID();
+        long size = content.size();
+        segmentRepository.save(Segment.builder().objectKey(newKey).size(size).liveBytes(0).build());
+        minioService.uploadFile(newKey, new ByteArrayInputStream(content.toByteArray()), MimeTypes.CONTENT_TYPE_OCTET_STREAM);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < live.size(); i++) {
+                PackedFile file = live.get(i);
+                file.setSegmentKey(newKey);
+                file.setOffset(offsets[i]);
+                packedFileRepository.save(file);
+            }
+            segmentRepository.addLiveBytes(newKey, size);
+            segmentRepository.findByObjectKey(segment.getObjectKey()).ifPresent(old -> {
+                old.setLiveBytes(0);
+                old.setRetiredAt(LocalDateTime.now());
+            });
+        });
+        log.info("[PackedFileService.compact] Compacted " + segment.getObjectKey() + " from " + segment.getSize()
+                + " to " + size + " bytes");
+    }
+
+    private void retire(Segment segment) {
+        transactionTemplate.executeWithoutResult(status ->
+                segmentRepository.findByObjectKey(segment.getObjectKey()).ifPresent(old -> old.setRetiredAt(LocalDateTime.now())));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    // a part that turned out shorter or longer than announced would shift every later offset
+    private static class ExactLengthInputStream extends FilterInputStream {
+        private final long expected;
+        private final String name;
+        private long read;
+
+        ExactLengthInputStream(InputStream in, long expected, String name) {
+            super(in);
+            this.expected = expected;
+            this.name = name;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return count < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count < 0) {
+                if (read != expected) {
+                    throw new IOException(name + " has " + read + " bytes, expected " + expected);
+                }
+                return -1;
+            }
+            read += count;
+            if (read > expected) {
+                throw new IOException(name + " is longer than " + expected + " bytes");
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioProperties;
+import com.example.cloud_box.config.PresignProperties;
+import com.example.cloud_box.dto.PresignedUrlDTO;
+import com.example.cloud_box.exception.MinioOperationException;
+import com.example.cloud_box.util.ResourcePathUtils;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.ContentDisposition;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs short-lived URLs for reading and writing single objects, so that clients transfer file
+ * bytes with MinIO directly and the app only handles metadata. Signing is local: the client is
+ * built for the public endpoint with a fixed region and never calls MinIO itself.
+ */
+@Slf4j
+@Lazy
+@Service
+public class PresignService {
+
+    private final MinioClient signingClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PresignProperties properties;
+    private final ShardRouter shardRouter;
+
+    public PresignService(MinioProperties minioProperties, PresignProperties properties,
+                          ApplicationEventPublisher eventPublisher, ShardRouter shardRouter) {
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        String endpoint = properties.getPublicUrl() == null || properties.getPublicUrl().isBlank()
+                ? minioProperties.getUrl() : properties.getPublicUrl();
+        this.signingClient = MinioClient.builder()
+                .endpoint(endpoint)
+                .region(properties.getRegion())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public boolean redirectsDownloads() {
+        return properties.isEnabled() && properties.isRedirectDownloads();
+    }
+
+    public long maxUploadBytes() {
+        return properties.getMaxUploadBytes();
+    }
+
+    /**
+     * URL that reads the object as stored. Compressed objects are announced with the matching
+     * Content-Encoding, so clients decode them the same way as proxied downloads.
+     */
+    public PresignedUrlDTO downloadUrl(String objectName, StatObjectResponse stat) {
+        Map<String, String> query = new HashMap<>();
+        query.put("response-content-disposition", ContentDisposition.attachment()
+                .filename(ResourcePathUtils.extractName(objectName), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        String codec = MinioService.userMetadata(stat.userMetadata(), CompressionService.CODEC_METADATA);
+        if (codec != null) {
+            query.put("response-content-encoding", codec);
+        }
+        return sign(Method.GET, shardRouter.readBucket(objectName), objectName, query);
+    }
+
+    public PresignedUrlDTO uploadUrl(String objectName) {
+        return sign(Method.PUT, shardRouter.writeBucket(objectName), objectName, Map.of());
+    }
+
+    // writes through presigned URLs bypass the app, so caches keyed by the object are told here
+    public void uploaded(String objectName) {
+        eventPublisher.publishEvent(StorageChangeEvent.of(objectName));
+    }
+
+    private PresignedUrlDTO sign(Method method, String bucket, String objectName, Map<String, String> query) {
+        Instant expiresAt = Instant.now().plusSeconds(properties.getExpirySeconds());
+        try {
+            String url = signingClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method)
+                    .bucket(bucket)
+                    .object(objectName)
+                    .expiry(properties.getExpirySeconds(), TimeUnit.SECONDS)
+                    .extraQueryParams(query)
+                    .build());
+            log.info("[PresignService.sign] Signed " + method + " URL for " + objectName);
+            return new PresignedUrlDTO(method.name(), url, expiresAt);
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to sign URL for " + objectName, e);
+        }
+    }
+}
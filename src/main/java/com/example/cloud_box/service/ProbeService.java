@@ -0,0 +1,119 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ProbeProperties;
+import com.example.cloud_box.dto.ProbeFileDTO;
+import com.example.cloud_box.dto.ProbeResponseDTO;
+import com.example.cloud_box.dto.ProbeResultDTO;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.exception.InvalidPathException;
+import com.example.cloud_box.model.ProbeStatus;
+import com.example.cloud_box.model.ResourceType;
+import com.example.cloud_box.util.ResourcePathUtils;
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells a sync client which of its local files are missing, different or identical on the server.
+ * Files are resolved with one listing per parent folder instead of one stat per file; the listing
+ * carries the SHA-256 recorded at upload as user metadata.
+ */
+@Slf4j
+@Service
+public class ProbeService {
+
+    private final MinioService minioService;
+    private final ProbeProperties properties;
+    private final PackedFileService packedFileService;
+
+    public ProbeService(MinioService minioService, ProbeProperties properties, PackedFileService packedFileService) {
+        this.minioService = minioService;
+        this.properties = properties;
+        this.packedFileService = packedFileService;
+    }
+
+    public ProbeResponseDTO probe(Long userId, List<ProbeFileDTO> files) {
+        if (files.size() > properties.getMaxFiles()) {
+            throw new InvalidInputException("Too many files in one probe, max: " + properties.getMaxFiles());
+        }
+
+        List<String> objectNames = new ArrayList<>(files.size());
+        Map<String, Set<String>> objectNamesByParent = new LinkedHashMap<>();
+        for (ProbeFileDTO file : files) {
+            if (ResourceType.fromPath(file.path()) == ResourceType.DIRECTORY) {
+                throw new InvalidPathException("Only files can be probed: " + file.path());
+            }
+            String objectName = ResourcePathUtils.normalizePath(file.path(), userId);
+            objectNames.add(objectName);
+            String parent = objectName.substring(0, objectName.lastIndexOf('/') + 1);
+            objectNamesByParent.computeIfAbsent(parent, key -> new HashSet<>()).add(objectName);
+        }
+
+        Map<String, StoredFile> stored = new HashMap<>();
+        try {
+            for (Map.Entry<String, Set<String>> parent : objectNamesByParent.entrySet()) {
+                for (Result<Item> result : minioService.listObjects(parent.getKey(), false, true)) {
+                    Item item = result.get();
+                    if (!item.isDir() && parent.getValue().contains(item.objectName())) {
+                        stored.put(item.objectName(), new StoredFile(MinioService.contentSize(item), unquote(item.etag()),
+                                MinioService.userMetadata(item.userMetadata(), MinioService.SHA256_METADATA)));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new InternalServerException("Failed to probe files", e);
+        }
+        // packed files have no ETag of their own
+        List<String> notListed = objectNames.stream().filter(name -> !stored.containsKey(name)).toList();
+        packedFileService.findAll(notListed).forEach((name, file) ->
+                stored.put(name, new StoredFile(file.getLength(), null, file.getSha256())));
+
+        List<ProbeResultDTO> results = new ArrayList<>(files.size());
+        int missing = 0;
+        int different = 0;
+        for (int i = 0; i < files.size(); i++) {
+            ProbeResultDTO result = compare(files.get(i), stored.get(objectNames.get(i)));
+            results.add(result);
+            if (result.status() == ProbeStatus.MISSING) {
+                missing++;
+            } else if (result.status() == ProbeStatus.DIFFERENT) {
+                different++;
+            }
+        }
+        log.info("[ProbeService.probe] user " + userId + ": " + files.size() + " files in "
+                + objectNamesByParent.size() + " folders, " + missing + " missing, " + different + " different");
+        return new ProbeResponseDTO(missing, different, files.size() - missing - different, results);
+    }
+
+    // every attribute the client sent has to match; a checksum the server never recorded cannot
+    private ProbeResultDTO compare(ProbeFileDTO file, StoredFile stored) {
+        if (stored == null) {
+            return new ProbeResultDTO(file.path(), ProbeStatus.MISSING, null, null, null);
+        }
+        boolean identical = (file.size() == null || file.size() == stored.size())
+                && (file.etag() == null || unquote(file.etag()).equals(stored.etag()))
+                && (file.sha256() == null || file.sha256().toLowerCase(Locale.ROOT).equals(stored.sha256()));
+        return new ProbeResultDTO(file.path(), identical ? ProbeStatus.IDENTICAL : ProbeStatus.DIFFERENT,
+                stored.size(), stored.etag(), stored.sha256());
+    }
+
+    private record StoredFile(long size, String etag, String sha256) {
+    }
+
+    private static String unquote(String etag) {
+        return etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+}
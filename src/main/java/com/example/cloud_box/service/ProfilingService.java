@@ -0,0 +1,115 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ProfilingProperties;
+import com.example.cloud_box.dto.RecordingDTO;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.exception.ResourceAlreadyExistsException;
+import com.example.cloud_box.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * On-demand Flight Recorder recordings of this node, one at a time. A recording runs with the
+ * JDK's "default" (low overhead) or "profile" settings plus the app's own events, stops on its
+ * own after a limit, and is handed out as a .jfr file when stopped.
+ */
+@Slf4j
+@Service
+public class ProfilingService {
+
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private final ProfilingProperties properties;
+    private Recording recording;
+    private String recordingSettings;
+
+    public ProfilingService(ProfilingProperties properties) {
+        this.properties = properties;
+    }
+
+    public synchronized RecordingDTO start(String settings, Integer durationSeconds) {
+        String name = settings == null ? "default" : settings;
+        if (!SETTINGS.contains(name)) {
+            throw new InvalidInputException("Unknown JFR settings: " + name + ", expected one of " + SETTINGS);
+        }
+        int duration = durationSeconds == null ? properties.getMaxDurationSeconds() : durationSeconds;
+        if (duration < 1 || duration > properties.getMaxDurationSeconds()) {
+            throw new InvalidInputException("Duration must be between 1 and " + properties.getMaxDurationSeconds() + " seconds");
+        }
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new ResourceAlreadyExistsException("A recording is already running");
+        }
+        discard();
+
+        try {
+            Recording started = new Recording(Configuration.getConfiguration(name));
+            started.setName("cloudbox-" + name);
+            started.setToDisk(true);
+            started.setDuration(Duration.ofSeconds(duration));
+            started.start();
+            recording = started;
+            recordingSettings = name;
+        } catch (IOException | ParseException e) {
+            throw new InternalServerException("Failed to start JFR recording", e);
+        }
+        log.info("[ProfilingService.start] Started JFR recording " + recording.getId() + " with " + name
+                + " settings for up to " + duration + "s");
+        return status();
+    }
+
+    public synchronized RecordingDTO status() {
+        if (recording == null) {
+            throw new ResourceNotFoundException("No recording");
+        }
+        Instant startedAt = recording.getStartTime();
+        Duration duration = recording.getDuration();
+        return new RecordingDTO(recording.getId(), recordingSettings, recording.getState().name(), startedAt,
+                startedAt == null || duration == null ? null : startedAt.plus(duration));
+    }
+
+    /**
+     * Stops the recording, if it is still running, and writes it to a new file that the caller
+     * sends and deletes. The recording itself is released.
+     */
+    public synchronized Path stop() {
+        if (recording == null) {
+            throw new ResourceNotFoundException("No recording");
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            Path file = Files.createTempFile(Path.of(properties.getDirectory()), "cloudbox-", ".jfr");
+            recording.dump(file);
+            log.info("[ProfilingService.stop] Wrote JFR recording " + recording.getId() + " to " + file
+                    + " (" + Files.size(file) + " bytes)");
+            return file;
+        } catch (IOException e) {
+            throw new InternalServerException("Failed to write JFR recording", e);
+        } finally {
+            discard();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            recordingSettings = null;
+        }
+    }
+}
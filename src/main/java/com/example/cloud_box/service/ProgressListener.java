@@ -0,0 +1,14 @@
+package com.example.cloud_box.service;
+
+/**
+ * Receives progress of long-running storage operations.
+ * Implementations may throw {@link com.example.cloud_box.exception.OperationCancelledException} to abort the operation.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (processed, total) -> {
+    };
+
+    void onProgress(long processed, long total);
+}
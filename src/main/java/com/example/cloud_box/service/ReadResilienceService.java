@@ -0,0 +1,365 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ReadResilienceProperties;
+import com.example.cloud_box.exception.MinioOperationException;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.ServerException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resilience for MinIO reads (statObject, getObject), which are idempotent and safe to repeat.
+ * <ul>
+ *     <li>Transient failures (I/O errors, 5xx, SlowDown) are retried with full-jitter backoff.</li>
+ *     <li>When the first request has not answered within the recent latency percentile of the
+ *     operation, a duplicate is sent and whichever answers first wins; the other response is closed.
+ *     Hedges are limited to a share of all reads.</li>
+ *     <li>After consecutive failures the circuit opens and reads fail fast; after a pause one trial
+ *     read is let through to close it again.</li>
+ * </ul>
+ * Errors that are answers from MinIO, like NoSuchKey or a failed precondition, are passed through as is.
+ */
+@Slf4j
+@Service
+public class ReadResilienceService {
+
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of(
+            "InternalError", "ServiceUnavailable", "SlowDown", "RequestTimeout", "XMinioServerNotInitialized");
+    private static final int MIN_LATENCY_SAMPLES = 50;
+    private static final long THRESHOLD_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    private final ReadResilienceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private double hedgeTokens = MAX_HEDGE_TOKENS;
+
+    public ReadResilienceService(ReadResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, properties.getThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "minio-read-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // reads run on pool threads; keep the caller's trace context on them
+        this.executor = ContextExecutorService.wrap(pool, ContextSnapshotFactory.builder().build()::captureAll);
+        Gauge.builder("minio.read.circuit.open", circuitBreaker, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("1 while reads fail fast because MinIO is considered down")
+                .register(meterRegistry);
+    }
+
+    public <T> T read(String operation, Callable<T> call) throws Exception {
+        if (!properties.isEnabled()) {
+            return call.call();
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            counter("minio.read.rejected", "Reads failed fast by the open circuit", operation).increment();
+            throw new MinioOperationException("MinIO is unavailable, " + operation + " failed fast");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = hedged(operation, call);
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (Exception e) {
+                if (!isRetryable(e)) {
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                if (attempt >= properties.getMaxAttempts() || circuitBreaker.isOpen()) {
+                    throw e;
+                }
+                counter("minio.read.retries", "Reads retried after a transient failure", operation).increment();
+                log.warn("[ReadResilienceService.read] Retrying " + operation + " after attempt " + attempt
+                        + " failed: " + e.getMessage());
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    private <T> T hedged(String operation, Callable<T> call) throws Exception {
+        Latency latency = latencies.computeIfAbsent(operation, this::latency);
+        if (!properties.isHedgeEnabled()) {
+            return latency.timed(call);
+        }
+        CompletableFuture<T> primary;
+        try {
+            primary = submit(latency, call);
+        } catch (RejectedExecutionException e) {
+            return latency.timed(call);
+        }
+        try {
+            return primary.get(latency.hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // slower than usual, hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            primary.whenComplete((value, error) -> closeQuietly(value));
+            throw e;
+        }
+
+        CompletableFuture<T> hedge;
+        try {
+            hedge = takeHedgeToken() ? submit(latency, call) : null;
+        } catch (RejectedExecutionException e) {
+            hedge = null;
+        }
+        if (hedge == null) {
+            try {
+                return await(primary);
+            } catch (InterruptedException e) {
+                primary.whenComplete((value, error) -> closeQuietly(value));
+                throw e;
+            }
+        }
+
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicBoolean hedgeWon = new AtomicBoolean();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((value, error) -> settle(winner, value, error, failures));
+        hedge.whenComplete((value, error) -> {
+            if (settle(winner, value, error, failures)) {
+                hedgeWon.set(true);
+            }
+        });
+        T result;
+        try {
+            result = await(winner);
+        } catch (InterruptedException e) {
+            // the caller is gone, so whichever responses still arrive are closed, the winner too
+            primary.whenComplete((value, error) -> closeQuietly(value));
+            hedge.whenComplete((value, error) -> closeQuietly(value));
+            throw e;
+        }
+        Counter.builder("minio.read.hedges")
+                .description("Duplicate reads sent because the first one was slow")
+                .tag("operation", operation)
+                .tag("winner", hedgeWon.get() ? "hedge" : "primary")
+                .register(meterRegistry)
+                .increment();
+        return result;
+    }
+
+    private <T> CompletableFuture<T> submit(Latency latency, Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return latency.timed(call);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // the first success wins and the other response is closed; fails only once both failed
+    private static <T> boolean settle(CompletableFuture<T> winner, T value, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            if (winner.complete(value)) {
+                return true;
+            }
+            closeQuietly(value);
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+        return false;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        throw (Error) cause;
+    }
+
+    private synchronized boolean takeHedgeToken() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens--;
+        return true;
+    }
+
+    private synchronized void earnHedgeToken() {
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + properties.getHedgeBudgetPercent() / 100.0);
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof ErrorResponseException errorResponse) {
+            return errorResponse.errorResponse() != null
+                    && RETRYABLE_ERROR_CODES.contains(errorResponse.errorResponse().code());
+        }
+        return e instanceof IOException || e instanceof ServerException || e instanceof InsufficientDataException;
+    }
+
+    private void sleepBeforeRetry(int attempt) throws InterruptedException {
+        long ceiling = Math.min(properties.getRetryMaxMillis(), properties.getRetryBaseMillis() << Math.min(attempt - 1, 20));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Latency latency(String operation) {
+        return new Latency(Timer.builder("minio.read.latency")
+                .description("Time until MinIO answered a read")
+                .tag("operation", operation)
+                .publishPercentiles(properties.getHedgePercentile())
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(meterRegistry));
+    }
+
+    private static void closeQuietly(Object value) {
+        if (value instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.debug("[ReadResilienceService.closeQuietly] Failed to close a losing response: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Recent latency of one operation; the hedge delay is its configured percentile, clamped to the
+     * configured bounds, and the upper bound until enough samples were seen.
+     */
+    private final class Latency {
+        private final Timer timer;
+        private volatile long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMaxDelayMillis());
+        private volatile long refreshedAt = System.nanoTime();
+
+        private Latency(Timer timer) {
+            this.timer = timer;
+        }
+
+        private <T> T timed(Callable<T> call) throws Exception {
+            long start = System.nanoTime();
+            T result = call.call();
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            earnHedgeToken();
+            return result;
+        }
+
+        private long hedgeDelayNanos() {
+            long now = System.nanoTime();
+            if (now - refreshedAt > THRESHOLD_REFRESH_NANOS) {
+                refreshedAt = now;
+                hedgeDelayNanos = computeDelayNanos();
+            }
+            return hedgeDelayNanos;
+        }
+
+        private long computeDelayNanos() {
+            long min = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMinDelayMillis());
+            long max = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMaxDelayMillis());
+            if (timer.count() < MIN_LATENCY_SAMPLES) {
+                return max;
+            }
+            ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+            if (percentiles.length == 0) {
+                return max;
+            }
+            long percentile = (long) percentiles[0].value(TimeUnit.NANOSECONDS);
+            return Math.max(min, Math.min(max, percentile));
+        }
+    }
+
+    /**
+     * Closed until the failure threshold is reached in a row, then open for the configured pause,
+     * then half-open: a single trial read decides whether it closes or opens again.
+     */
+    private final class CircuitBreaker {
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialRunning;
+
+        private synchronized boolean tryAcquire() {
+            if (consecutiveFailures < properties.getCircuitFailureThreshold()) {
+                return true;
+            }
+            if (System.currentTimeMillis() < openUntil || trialRunning) {
+                return false;
+            }
+            trialRunning = true;
+            return true;
+        }
+
+        private synchronized void onSuccess() {
+            if (consecutiveFailures >= properties.getCircuitFailureThreshold()) {
+                log.info("[ReadResilienceService] MinIO reads recovered, circuit closed");
+            }
+            consecutiveFailures = 0;
+            trialRunning = false;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (consecutiveFailures >= properties.getCircuitFailureThreshold()) {
+                if (trialRunning || consecutiveFailures == properties.getCircuitFailureThreshold()) {
+                    log.warn("[ReadResilienceService] MinIO reads failing, circuit open for "
+                            + properties.getCircuitOpenSeconds() + "s");
+                }
+                openUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(properties.getCircuitOpenSeconds());
+                trialRunning = false;
+            }
+        }
+
+        private synchronized boolean isOpen() {
+            return consecutiveFailures >= properties.getCircuitFailureThreshold()
+                    && System.currentTimeMillis() < openUntil;
+        }
+    }
+}
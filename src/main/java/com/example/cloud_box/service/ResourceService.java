@@ -1,37 +1,102 @@
 package com.example.cloud_box.service;
 
+import com.example.cloud_box.config.DirectoryTreeProperties;
+import com.example.cloud_box.dto.BatchRequestDTO;
+import com.example.cloud_box.dto.BatchResponseDTO;
+import com.example.cloud_box.dto.DirectoryTreeDTO;
+import com.example.cloud_box.dto.ExtractResultDTO;
+import com.example.cloud_box.dto.PresignedUrlDTO;
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.dto.ProbeRequestDTO;
+import com.example.cloud_box.dto.ProbeResponseDTO;
 import com.example.cloud_box.dto.ResourceDTO;
 import com.example.cloud_box.exception.*;
+import com.example.cloud_box.jfr.SearchScanEvent;
+import com.example.cloud_box.jfr.UploadEvent;
+import com.example.cloud_box.model.ChangeType;
+import com.example.cloud_box.model.JobType;
+import com.example.cloud_box.model.PackedFile;
 import com.example.cloud_box.model.ResourceType;
 import com.example.cloud_box.util.ResourcePathUtils;
 import com.example.cloud_box.util.SecurityUtils;
+import io.micrometer.observation.annotation.Observed;
 import io.minio.Result;
+import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * paths are received unnormalized and are transmitted further in normalized form.
  */
 
+@Slf4j
 @Service
+@Observed(name = "cloudbox.service")
 public class ResourceService {
     private final FileService fileService;
     private final FolderService folderService;
     private final SecurityUtils securityUtils;
     private final MinioService minioService;
-
-    public ResourceService(FileService fileService, FolderService folderService, SecurityUtils securityUtils, MinioService minioService) {
+    private final JobService jobService;
+    private final ThumbnailService thumbnailService;
+    private final BatchService batchService;
+    private final DirectoryVersionService directoryVersionService;
+    private final BandwidthService bandwidthService;
+    private final ChangeLogService changeLogService;
+    private final DirectoryTreeProperties treeProperties;
+    private final ProbeService probeService;
+    private final ArchiveExtractionService archiveExtractionService;
+    private final PackedFileService packedFileService;
+    private final PresignService presignService;
+    private final AdmissionService admissionService;
+
+    public ResourceService(FileService fileService, FolderService folderService, SecurityUtils securityUtils, MinioService minioService,
+                           JobService jobService, ThumbnailService thumbnailService, BatchService batchService,
+                           DirectoryVersionService directoryVersionService, BandwidthService bandwidthService,
+                           ChangeLogService changeLogService, DirectoryTreeProperties treeProperties,
+                           ProbeService probeService, @Lazy ArchiveExtractionService archiveExtractionService,
+                           PackedFileService packedFileService, @Lazy PresignService presignService,
+                           AdmissionService admissionService) {
         this.fileService = fileService;
         this.folderService = folderService;
         this.securityUtils = securityUtils;
         this.minioService = minioService;
+        this.jobService = jobService;
+        this.thumbnailService = thumbnailService;
+        this.batchService = batchService;
+        this.directoryVersionService = directoryVersionService;
+        this.bandwidthService = bandwidthService;
+        this.changeLogService = changeLogService;
+        this.treeProperties = treeProperties;
+        this.probeService = probeService;
+        this.archiveExtractionService = archiveExtractionService;
+        this.packedFileService = packedFileService;
+        this.presignService = presignService;
+        this.admissionService = admissionService;
     }
 
     public ResourceDTO createDirectory(String path) {
@@ -41,16 +106,65 @@ public class ResourceService {
 
         Long userId = securityUtils.getCurrentUserId();
         String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
-        return folderService.createEmptyFolder(normalizedPath);
+        ResourceDTO created = folderService.createEmptyFolder(normalizedPath);
+        changeLogService.record(userId, ChangeType.MKDIR, normalizedPath, null);
+        return created;
     }
 
-    public void upload(String objectName, MultipartFile file) throws Exception {
+    public void upload(Long userId, String objectName, MultipartFile file) throws Exception {
         minioService.ensureBucketExists();
-        minioService.uploadFile(
-                objectName,
-                file.getInputStream(),
-                file.getContentType() != null ? file.getContentType() : "application/octet-stream"
-        );
+        String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+        // the part is already buffered locally, so reading it twice is cheap compared to the upload
+        Map<String, String> metadata = Map.of(MinioService.SHA256_METADATA, sha256(file));
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        event.key = objectName;
+        event.bytes = file.getSize();
+        try (InputStream inputStream = bandwidthService.throttleUpload(userId, file.getInputStream())) {
+            minioService.uploadContent(objectName, inputStream, contentType, file.getSize(), metadata);
+        } finally {
+            event.commit();
+        }
+        packedFileService.remove(objectName);
+        changeLogService.record(userId, ChangeType.UPLOAD, objectName, null);
+        thumbnailService.enqueue(objectName, contentType);
+    }
+
+    // files small enough are written together into segments; thumbnails are only rendered for standalone files
+    private void pack(Long userId, Map<String, MultipartFile> files) throws IOException {
+        List<PackedFileService.PackInput> inputs = new ArrayList<>();
+        for (Map.Entry<String, MultipartFile> entry : files.entrySet()) {
+            MultipartFile file = entry.getValue();
+            String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+            inputs.add(new PackedFileService.PackInput(entry.getKey(), contentType, sha256(file), file.getSize(),
+                    () -> bandwidthService.throttleUpload(userId, file.getInputStream())));
+        }
+        // one event for the batch, it is written as a single segment
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        event.key = files.keySet().iterator().next();
+        event.bytes = inputs.stream().mapToLong(PackedFileService.PackInput::size).sum();
+        try {
+            packedFileService.pack(inputs);
+        } finally {
+            event.commit();
+        }
+        for (String objectName : files.keySet()) {
+            changeLogService.record(userId, ChangeType.UPLOAD, objectName, null);
+        }
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     public ResourceDTO moveResource(String from, String to) {
@@ -66,11 +180,51 @@ public class ResourceService {
         String normalizedFrom = ResourcePathUtils.normalizePath(from, userId, isDirectory);
         String normalizedTo = ResourcePathUtils.normalizePath(to, userId, isDirectory);
 
-        return switch (type) {
+        ResourceDTO moved = switch (type) {
             case FILE -> fileService.move(normalizedFrom, normalizedTo);
-            case DIRECTORY -> folderService.move(normalizedFrom, normalizedTo);
+            case DIRECTORY -> admissionService.call(userId, "move",
+                    () -> folderService.move(normalizedFrom, normalizedTo));
             default -> throw new InvalidPathException("Invalid resource type for move operation");
         };
+        changeLogService.record(userId, ChangeType.MOVE, normalizedFrom, normalizedTo);
+        return moved;
+    }
+
+    public JobDTO moveResourceAsync(String from, String to) {
+        if (from == null || from.isBlank() || to == null || to.isBlank()) {
+            throw new InvalidPathException("Source and destination paths cannot be null or blank");
+        }
+
+        ResourceType type = ResourceType.fromPath(from);
+
+        Long userId = securityUtils.getCurrentUserId();
+        boolean isDirectory = type == ResourceType.DIRECTORY;
+
+        String normalizedFrom = ResourcePathUtils.normalizePath(from, userId, isDirectory);
+        String normalizedTo = ResourcePathUtils.normalizePath(to, userId, isDirectory);
+
+        return jobService.submit(userId, JobType.MOVE,
+                trimUserRootPrefix(normalizedFrom, userId), trimUserRootPrefix(normalizedTo, userId),
+                progress -> {
+                    if (isDirectory) {
+                        folderService.move(normalizedFrom, normalizedTo, progress);
+                    } else {
+                        fileService.move(normalizedFrom, normalizedTo);
+                        progress.onProgress(1, 1);
+                    }
+                    changeLogService.record(userId, ChangeType.MOVE, normalizedFrom, normalizedTo);
+                    return null;
+                });
+    }
+
+    /**
+     * Version stamp of a directory listing, or null when the version is unavailable.
+     * Served from Redis, so a matching If-None-Match never reaches MinIO.
+     */
+    public String directoryVersion(String path) {
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
+        return directoryVersionService.currentVersion(normalizedPath);
     }
 
     public List<ResourceDTO> listDirectory(String path) {
@@ -80,21 +234,111 @@ public class ResourceService {
             normalizedPath += "/";
         }
         try {
-            Iterable<Result<Item>> results = minioService.listObjects(normalizedPath, false);
+            Iterable<Result<Item>> results = minioService.listObjects(normalizedPath, false, true);
             List<ResourceDTO> resources = new ArrayList<>();
+            Set<String> listed = new HashSet<>();
             for (Result<Item> result : results) {
                 Item item = result.get();
                 if (item.objectName().equals(normalizedPath)) {
                     continue;
                 }
+                listed.add(item.objectName());
                 resources.add(buildResourceDto(item));
             }
+            PackedFileService.Children packed = packedFileService.listChildren(normalizedPath);
+            for (PackedFile file : packed.files()) {
+                if (listed.add(file.getObjectName())) {
+                    resources.add(buildUserResourceDto(file.getObjectName(), file.getLength(), userId));
+                }
+            }
+            for (String folder : packed.folders()) {
+                if (listed.add(folder)) {
+                    resources.add(buildUserResourceDto(folder, null, userId));
+                }
+            }
             return resources;
         } catch (Exception e) {
             throw new InternalServerException("Failed to list directory", e);
         }
     }
 
+    /**
+     * Lists the subtree below a directory with one recursive listing, down to the given depth
+     * (1 = direct children) and up to the configured node limit. Folders that exist only as key
+     * prefixes, without a placeholder object, are listed as well.
+     */
+    public DirectoryTreeDTO listTree(String path, Integer depth) {
+        int maxDepth = treeProperties.getMaxDepth();
+        if (depth != null && depth < 1) {
+            throw new InvalidInputException("Depth must be at least 1");
+        }
+        int treeDepth = depth == null ? maxDepth : Math.min(depth, maxDepth);
+
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
+        List<ResourceDTO> resources = new ArrayList<>();
+        Set<String> listedDirectories = new HashSet<>();
+        boolean truncated = false;
+        try {
+            // the listing is consumed lazily and packed files are only looked up once it is exhausted,
+            // so a truncated tree stops reading early
+            Iterator<Map.Entry<String, Long>> objects = Stream.concat(
+                    StreamSupport.stream(minioService.listObjects(normalizedPath, true, true).spliterator(), false)
+                            .map(ResourceService::sizedObject),
+                    Stream.of(normalizedPath)
+                            .flatMap(prefix -> packedFileService.list(prefix).stream())
+                            .map(file -> Map.entry(file.getObjectName(), file.getLength())))
+                    .iterator();
+            listing:
+            while (objects.hasNext()) {
+                Map.Entry<String, Long> object = objects.next();
+                String relativePath = object.getKey().substring(normalizedPath.length());
+                if (relativePath.isEmpty()) {
+                    continue;
+                }
+                int level = 1;
+                for (int i = relativePath.indexOf('/'); i >= 0 && level <= treeDepth; i = relativePath.indexOf('/', i + 1), level++) {
+                    String directory = normalizedPath + relativePath.substring(0, i + 1);
+                    if (listedDirectories.add(directory)) {
+                        if (resources.size() == treeProperties.getMaxNodes()) {
+                            truncated = true;
+                            break listing;
+                        }
+                        resources.add(buildUserResourceDto(directory, null, userId));
+                    }
+                }
+                if (!relativePath.endsWith("/") && level <= treeDepth) {
+                    if (resources.size() == treeProperties.getMaxNodes()) {
+                        truncated = true;
+                        break;
+                    }
+                    resources.add(buildUserResourceDto(object.getKey(), object.getValue(), userId));
+                }
+            }
+        } catch (Exception e) {
+            throw new InternalServerException("Failed to list directory tree", e);
+        }
+        return new DirectoryTreeDTO(resources, truncated);
+    }
+
+    private static Map.Entry<String, Long> sizedObject(Result<Item> result) {
+        try {
+            Item item = result.get();
+            return Map.entry(item.objectName(), MinioService.contentSize(item));
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to list objects in Minio", e);
+        }
+    }
+
+    private ResourceDTO buildUserResourceDto(String objectName, Long size, Long userId) {
+        String relativePath = trimUserRootPrefix(objectName, userId);
+        return new ResourceDTO(
+                ResourcePathUtils.extractParentPath(relativePath),
+                ResourcePathUtils.extractName(relativePath),
+                size,
+                ResourceType.fromPath(relativePath));
+    }
+
     private String trimUserRootPrefix(String fullPath, Long userId) {
         String prefix = "user-" + userId + "-files/";
         if (fullPath.startsWith(prefix)) {
@@ -122,11 +366,20 @@ public class ResourceService {
 
         try {
             List<ResourceDTO> uploadedResources = new ArrayList<>();
+            Map<String, MultipartFile> packed = new LinkedHashMap<>();
             for (MultipartFile file : files) {
                 String objectName = normalizedPath + file.getOriginalFilename();
-                upload(objectName, file);
+                if (packedFileService.accepts(file.getSize())) {
+                    packed.put(objectName, file);
+                } else {
+                    upload(userId, objectName, file);
+                }
                 uploadedResources.add(buildResourceDto(objectName, file.getSize()));
             }
+            if (!packed.isEmpty()) {
+                minioService.ensureBucketExists();
+                pack(userId, packed);
+            }
             return uploadedResources;
         } catch (IOException e) {
             throw new InternalServerException("Failed to read file data for upload.", e);
@@ -137,6 +390,16 @@ public class ResourceService {
         }
     }
 
+    public ExtractResultDTO extract(String path, InputStream archive) {
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
+        minioService.ensureBucketExists();
+        ExtractResultDTO result = archiveExtractionService.extract(userId, normalizedPath,
+                bandwidthService.throttleUpload(userId, archive));
+        return new ExtractResultDTO(trimUserRootPrefix(result.path(), userId), result.files(),
+                result.directories(), result.bytes());
+    }
+
     public void delete(String path) {
         if (path == null || path.trim().isEmpty()) {
             throw new InvalidPathException("Path cannot be null or empty");
@@ -147,15 +410,54 @@ public class ResourceService {
         String normalizedPath = ResourcePathUtils.normalizePath(path, userId);
 
         boolean deleted = isDirectory
-                ? folderService.delete(normalizedPath)
+                ? admissionService.call(userId, "delete", () -> folderService.delete(normalizedPath))
                 : fileService.delete(normalizedPath);
 
         if (!deleted) {
             throw new ResourceNotFoundException((isDirectory ? "Folder" : "File") + " not found");
         }
+        changeLogService.record(userId, ChangeType.DELETE,
+                ResourcePathUtils.normalizePath(path, userId, isDirectory), null);
     }
 
-    public void download(String path, HttpServletResponse response) {
+    public JobDTO deleteAsync(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new InvalidPathException("Path cannot be null or empty");
+        }
+        Long userId = securityUtils.getCurrentUserId();
+        ResourceType type = ResourceType.fromPath(path);
+        boolean isDirectory = type == ResourceType.DIRECTORY;
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId);
+        String displayPath = trimUserRootPrefix(ResourcePathUtils.normalizePath(path, userId, isDirectory), userId);
+
+        return jobService.submit(userId, JobType.DELETE, displayPath, null, progress -> {
+            boolean deleted = isDirectory
+                    ? folderService.delete(normalizedPath, progress)
+                    : fileService.delete(normalizedPath);
+            if (!deleted) {
+                throw new ResourceNotFoundException((isDirectory ? "Folder" : "File") + " not found");
+            }
+            changeLogService.record(userId, ChangeType.DELETE, displayPath, null);
+            return null;
+        });
+    }
+
+    public JobDTO archiveAsync(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new InvalidPathException("Path cannot be null or empty");
+        }
+        if (ResourceType.fromPath(path) != ResourceType.DIRECTORY) {
+            throw new InvalidPathException("Only directories can be archived in the background");
+        }
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
+
+        return jobService.submit(userId, JobType.ARCHIVE,
+                trimUserRootPrefix(normalizedPath, userId), folderService.zipFileName(normalizedPath),
+                progress -> folderService.createArchive(normalizedPath, progress));
+    }
+
+    public void download(String path, HttpServletRequest request, HttpServletResponse response) {
         Long userId = securityUtils.getCurrentUserId();
         ResourceType type = ResourceType.fromPath(path);
         boolean isDirectory = type == ResourceType.DIRECTORY;
@@ -163,26 +465,134 @@ public class ResourceService {
             throw new InvalidPathException("Path cannot be null or empty");
         }
         String normalizedPath = ResourcePathUtils.normalizePath(path, userId, isDirectory);
-        System.out.println("[ResourceService.downloadResource] Normalized path");
+        log.info("[ResourceService.downloadResource] Normalized path");
+        if (!isDirectory && presignService.redirectsDownloads()) {
+            Optional<PresignedUrlDTO> url = directDownloadUrl(normalizedPath);
+            if (url.isPresent()) {
+                try {
+                    response.sendRedirect(url.get().url());
+                } catch (IOException e) {
+                    throw new InternalServerException("Failed to redirect download", e);
+                }
+                return;
+            }
+        }
+        HttpServletResponse throttledResponse = bandwidthService.throttleDownload(userId, response);
         if (isDirectory) {
-            folderService.downloadAsZip(normalizedPath, response);
+            admissionService.run(userId, "zip",
+                    () -> folderService.downloadAsZip(normalizedPath, request, throttledResponse));
         } else {
-            fileService.download(normalizedPath, response);
+            fileService.download(normalizedPath, request, throttledResponse);
+        }
+
+    }
+
+    /**
+     * Presigned GET for a file. Packed files live inside shared segments and have no URL of their own;
+     * they are downloaded through the app.
+     */
+    public PresignedUrlDTO downloadUrl(String path) {
+        String normalizedPath = presignedFilePath(path);
+        if (packedFileService.find(normalizedPath).isPresent()) {
+            throw new InvalidInputException("File is stored packed and is only available through /resource/download");
+        }
+        StatObjectResponse stat = minioService.findFileStat(normalizedPath)
+                .orElseThrow(() -> new ResourceNotFoundException("Resource not found"));
+        return presignService.downloadUrl(normalizedPath, stat);
+    }
+
+    // redirected downloads fall back to streaming for packed and missing files
+    private Optional<PresignedUrlDTO> directDownloadUrl(String objectName) {
+        if (packedFileService.find(objectName).isPresent()) {
+            return Optional.empty();
+        }
+        return minioService.findFileStat(objectName).map(stat -> presignService.downloadUrl(objectName, stat));
+    }
+
+    /**
+     * Presigned PUT for a file; the client uploads the bytes to MinIO and then calls {@link #completeUpload}.
+     */
+    public PresignedUrlDTO uploadUrl(String path) {
+        String normalizedPath = presignedFilePath(path);
+        minioService.ensureBucketExists();
+        return presignService.uploadUrl(normalizedPath);
+    }
+
+    /**
+     * Registers a file the client uploaded through a presigned URL: checks that it arrived and is
+     * within the size limit, then does the bookkeeping of a regular upload.
+     */
+    public ResourceDTO completeUpload(String path) {
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = presignedFilePath(path);
+        StatObjectResponse stat = minioService.findFileStat(normalizedPath)
+                .orElseThrow(() -> new ResourceNotFoundException("Uploaded file not found"));
+        long size = MinioService.contentSize(stat);
+        if (size > presignService.maxUploadBytes()) {
+            minioService.deleteFile(normalizedPath);
+            throw new InvalidInputException("File exceeds the limit of " + presignService.maxUploadBytes() + " bytes");
         }
+        packedFileService.remove(normalizedPath);
+        presignService.uploaded(normalizedPath);
+        changeLogService.record(userId, ChangeType.UPLOAD, normalizedPath, null);
+        thumbnailService.enqueue(normalizedPath, stat.contentType());
+        return buildResourceDto(normalizedPath, size);
+    }
 
+    private String presignedFilePath(String path) {
+        if (!presignService.isEnabled()) {
+            throw new InvalidInputException("Presigned URLs are disabled");
+        }
+        if (path == null || path.isBlank()) {
+            throw new InvalidPathException("Path cannot be null or empty");
+        }
+        if (ResourceType.fromPath(path) == ResourceType.DIRECTORY) {
+            throw new InvalidPathException("Presigned URLs are only available for files");
+        }
+        return ResourcePathUtils.normalizePath(path, securityUtils.getCurrentUserId(), false);
+    }
+
+    public BatchResponseDTO batch(BatchRequestDTO request) {
+        Long userId = securityUtils.getCurrentUserId();
+        return batchService.execute(userId, request.operations());
+    }
+
+    public ProbeResponseDTO probe(ProbeRequestDTO request) {
+        Long userId = securityUtils.getCurrentUserId();
+        return probeService.probe(userId, request.files());
+    }
+
+    public void thumbnail(String path, int size, HttpServletRequest request, HttpServletResponse response) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new InvalidPathException("Path cannot be null or empty");
+        }
+        if (ResourceType.fromPath(path) == ResourceType.DIRECTORY) {
+            throw new InvalidPathException("Thumbnails are only available for files");
+        }
+        Long userId = securityUtils.getCurrentUserId();
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, false);
+        thumbnailService.serve(normalizedPath, size, request, response);
     }
 
     public List<ResourceDTO> search(String query) {
         if (query == null || query.isEmpty()) {
             throw new InvalidQueryException("Query cannot be null or empty");
         }
+        Long userId = securityUtils.getCurrentUserId();
+        return admissionService.call(userId, "search", () -> search(userId, query));
+    }
+
+    private List<ResourceDTO> search(Long userId, String query) {
         try {
-            Long userId = securityUtils.getCurrentUserId();
             String userPrefix = ResourcePathUtils.getUserRootPath(userId);
-            Iterable<Result<Item>> results = minioService.listObjects(userPrefix, true);
+            SearchScanEvent event = new SearchScanEvent();
+            event.begin();
+            event.key = userPrefix;
+            Iterable<Result<Item>> results = minioService.listObjects(userPrefix, true, true);
             List<ResourceDTO> matches = new ArrayList<>();
             for (Result<Item> result : results) {
                 Item item = result.get();
+                event.objects++;
                 if (item.objectName().equals(userPrefix)) {
                     continue;
                 }
@@ -198,6 +608,15 @@ public class ResourceService {
                     matches.add(buildResourceDto(item));
                 }
             }
+            List<PackedFile> packedFiles = packedFileService.list(userPrefix);
+            event.objects += packedFiles.size();
+            event.commit();
+            for (PackedFile file : packedFiles) {
+                String name = ResourcePathUtils.extractName(file.getObjectName());
+                if (name.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+                    matches.add(buildUserResourceDto(file.getObjectName(), file.getLength(), userId));
+                }
+            }
 
             return matches;
         } catch (Exception e) {
@@ -210,18 +629,22 @@ public class ResourceService {
         if (path == null || path.isEmpty()) {
             throw new IllegalArgumentException("Path cannot be null or empty");
         }
-        Iterable<Result<Item>> results = minioService.listObjects("", true);
-        try {
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                if (item.objectName().equals(path)) {
-                    return buildResourceDto(item);
-                }
+        Long userId = securityUtils.getCurrentUserId();
+        if (ResourceType.fromPath(path) == ResourceType.DIRECTORY) {
+            String normalizedPath = ResourcePathUtils.normalizePath(path, userId, true);
+            if (!minioService.directoryExists(normalizedPath) && !packedFileService.existsUnder(normalizedPath)) {
+                throw new ResourceNotFoundException("Resource not found");
             }
-            throw new ResourceNotFoundException("Resource not found");
-        } catch (Exception e) {
-            throw new MinioOperationException("Failed to retrieve resource from MinIO", e);
+            return buildUserResourceDto(normalizedPath, null, userId);
+        }
+        String normalizedPath = ResourcePathUtils.normalizePath(path, userId, false);
+        Optional<PackedFile> packed = packedFileService.find(normalizedPath);
+        if (packed.isPresent()) {
+            return buildUserResourceDto(normalizedPath, packed.get().getLength(), userId);
         }
+        StatObjectResponse stat = minioService.findFileStat(normalizedPath)
+                .orElseThrow(() -> new ResourceNotFoundException("Resource not found"));
+        return buildUserResourceDto(normalizedPath, MinioService.contentSize(stat), userId);
     }
 
     private ResourceDTO buildResourceDto(String objectName, long size) {
@@ -245,7 +668,7 @@ public class ResourceService {
         return new ResourceDTO(
                 ResourcePathUtils.extractParentPath(objectName),
                 ResourcePathUtils.extractName(objectName),
-                type == ResourceType.DIRECTORY ? null : item.size(),
+                type == ResourceType.DIRECTORY ? null : MinioService.contentSize(item),
                 type
         );
     }
@@ -0,0 +1,279 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.ShardingProperties;
+import com.example.cloud_box.dto.JobDTO;
+import com.example.cloud_box.dto.StorageLayoutDTO;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.exception.MinioOperationException;
+import com.example.cloud_box.exception.ResourceAlreadyExistsException;
+import com.example.cloud_box.exception.ResourceNotFoundException;
+import com.example.cloud_box.model.JobType;
+import com.example.cloud_box.model.StorageLayout;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.example.cloud_box.util.ResourcePathUtils;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the objects of an existing user from the default bucket to the user's shard bucket
+ * while the user keeps working. The bulk copy runs with the user fully available; only the final
+ * pass, which copies what changed in the meantime, rejects the user's writes. Reads are served
+ * from the default bucket until the switch. Each layout switch is followed by a pause of
+ * sharding.drain-seconds, so that every node has dropped its cached layout before the next step.
+ * A failed or cancelled migration deletes its copies, returns the user to LEGACY and can simply
+ * be started again.
+ */
+@Slf4j
+@Service
+public class ShardMigrationService {
+
+    private static final int MAX_DELETE_OBJECTS = 1000; // S3 DeleteObjects limit
+    private static final Set<StorageLayout> MIGRATABLE = EnumSet.of(StorageLayout.LEGACY);
+    // a node that died mid-migration leaves its user in one of these
+    private static final Set<StorageLayout> RESUMABLE = EnumSet.of(StorageLayout.LEGACY, StorageLayout.COPYING,
+            StorageLayout.SYNCING);
+
+    private final MinioClient minioClient;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final JobService jobService;
+    private final ShardingProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ShardMigrationService(MinioClient minioClient, UserRepository userRepository, ShardRouter shardRouter,
+                                 JobService jobService, ShardingProperties properties,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.minioClient = minioClient;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.jobService = jobService;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public StorageLayoutDTO layout(String username) {
+        User user = findUser(username);
+        StorageLayout layout = user.getStorageLayout() == null ? StorageLayout.LEGACY : user.getStorageLayout();
+        String bucket = layout == StorageLayout.SHARDED ? user.getStorageBucket() : shardRouter.defaultBucket();
+        return new StorageLayoutDTO(user.getUsername(), layout, bucket);
+    }
+
+    /**
+     * Starts the migration of the user as a background job of the admin. With {@code force},
+     * a user left in COPYING or SYNCING by a node that stopped mid-migration is taken over.
+     */
+    public JobDTO migrate(Long adminId, String username, boolean force) {
+        if (!shardRouter.isEnabled()) {
+            throw new InvalidInputException("Sharding is disabled");
+        }
+        User user = findUser(username);
+        StorageLayout layout = user.getStorageLayout() == null ? StorageLayout.LEGACY : user.getStorageLayout();
+        if (layout == StorageLayout.SHARDED) {
+            throw new ResourceAlreadyExistsException("User is already sharded: " + username);
+        }
+        if (!force && layout != StorageLayout.LEGACY) {
+            throw new ResourceAlreadyExistsException("User is already being migrated: " + username);
+        }
+        // a resumed migration keeps its bucket, where the objects copied so far are
+        String bucket = user.getStorageBucket() != null ? user.getStorageBucket() : shardRouter.shardBucket(user.getId());
+        Long userId = user.getId();
+        return jobService.submit(adminId, JobType.MIGRATE, ResourcePathUtils.getUserRootPath(userId), bucket,
+                progress -> {
+                    run(userId, bucket, force ? RESUMABLE : MIGRATABLE, progress);
+                    return null;
+                });
+    }
+
+    private void run(Long userId, String target, Set<StorageLayout> from, ProgressListener progress) throws Exception {
+        // the job may have waited in the queue, so the state is checked again, atomically
+        if (userRepository.claimForMigration(userId, from, target) == 0) {
+            throw new ResourceAlreadyExistsException("User is already sharded or being migrated: " + userId);
+        }
+        shardRouter.evict(userId);
+        String source = shardRouter.defaultBucket();
+        String prefix = ResourcePathUtils.getUserRootPath(userId);
+        boolean switched = false;
+        try {
+            Map<String, String> copied = new LinkedHashMap<>();
+            Map<String, String> objects = list(source, prefix);
+            long processed = 0;
+            for (Map.Entry<String, String> object : objects.entrySet()) {
+                copy(source, target, object.getKey());
+                copied.put(object.getKey(), object.getValue());
+                progress.onProgress(++processed, objects.size());
+            }
+            log.info("[ShardMigrationService.run] Copied " + copied.size() + " objects of user " + userId + " to " + target);
+
+            setLayout(userId, StorageLayout.SYNCING);
+            drain();
+            Map<String, String> current = list(source, prefix);
+            int synced = 0;
+            for (Map.Entry<String, String> object : current.entrySet()) {
+                if (!object.getValue().equals(copied.get(object.getKey()))) {
+                    copy(source, target, object.getKey());
+                    synced++;
+                }
+            }
+            List<String> stale = new ArrayList<>(list(target, prefix).keySet());
+            stale.removeAll(current.keySet());
+            remove(target, stale);
+            Map<String, String> shard = list(target, prefix);
+            log.info("[ShardMigrationService.run] Synced " + synced + " changed and removed " + stale.size()
+                    + " deleted objects of user " + userId);
+
+            setLayout(userId, StorageLayout.SHARDED);
+            switched = true;
+            // copies of multipart objects get new ETags, so cached directory versions are refreshed
+            if (!current.isEmpty()) {
+                eventPublisher.publishEvent(StorageChangeEvent.of(List.copyOf(current.keySet())));
+            }
+            drain();
+            removeLegacy(userId, source, target, prefix, current, shard);
+        } finally {
+            if (!switched) {
+                setLayout(userId, StorageLayout.LEGACY);
+                removeCopies(userId, target, prefix);
+            }
+        }
+    }
+
+    // until the switch the user only writes to the default bucket, so everything under the prefix is a copy
+    private void removeCopies(Long userId, String target, String prefix) {
+        try {
+            List<String> copies = new ArrayList<>(list(target, prefix).keySet());
+            remove(target, copies);
+            log.info("[ShardMigrationService.removeCopies] Migration of user " + userId + " failed, removed "
+                    + copies.size() + " copied objects from " + target);
+        } catch (RuntimeException e) {
+            log.warn("[ShardMigrationService.removeCopies] Failed to remove the copies of user " + userId
+                    + " from " + target + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A write or delete that was already in flight when the writes were stopped may land in the
+     * default bucket after the final pass. It is carried over to the shard unless the user has
+     * changed that object in the shard since the switch, in which case the newer shard version wins.
+     */
+    private void removeLegacy(Long userId, String source, String target, String prefix,
+                              Map<String, String> synced, Map<String, String> shardAtSwitch) {
+        Map<String, String> legacy = list(source, prefix);
+        Map<String, String> shardNow = list(target, prefix);
+        List<String> carried = new ArrayList<>();
+        List<String> removedFromShard = new ArrayList<>();
+        for (Map.Entry<String, String> object : legacy.entrySet()) {
+            String name = object.getKey();
+            if (!object.getValue().equals(synced.get(name))
+                    && Objects.equals(shardNow.get(name), shardAtSwitch.get(name))) {
+                log.warn("[ShardMigrationService.removeLegacy] " + name + " changed after the final pass, copying it to " + target);
+                copy(source, target, name);
+                carried.add(name);
+            }
+        }
+        for (String name : synced.keySet()) {
+            if (!legacy.containsKey(name) && shardNow.containsKey(name)
+                    && shardNow.get(name).equals(shardAtSwitch.get(name))) {
+                log.warn("[ShardMigrationService.removeLegacy] " + name + " was deleted after the final pass, removing it from " + target);
+                removedFromShard.add(name);
+            }
+        }
+        remove(target, removedFromShard);
+        if (!carried.isEmpty()) {
+            eventPublisher.publishEvent(StorageChangeEvent.of(carried));
+        }
+        if (!removedFromShard.isEmpty()) {
+            eventPublisher.publishEvent(StorageChangeEvent.deleted(removedFromShard));
+        }
+
+        remove(source, new ArrayList<>(legacy.keySet()));
+        log.info("[ShardMigrationService.removeLegacy] User " + userId + " is sharded, carried over "
+                + (carried.size() + removedFromShard.size()) + " late changes and removed " + legacy.size()
+                + " objects from " + source);
+    }
+
+    private void setLayout(Long userId, StorageLayout layout) {
+        userRepository.updateStorageLayout(userId, layout);
+        shardRouter.evict(userId);
+    }
+
+    private void drain() throws InterruptedException {
+        TimeUnit.SECONDS.sleep(Math.max(properties.getDrainSeconds(), properties.getLayoutCacheSeconds()));
+    }
+
+    // object name to ETag
+    private Map<String, String> list(String bucket, String prefix) {
+        Map<String, String> objects = new LinkedHashMap<>();
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .prefix(prefix)
+                    .recursive(true)
+                    .build())) {
+                Item item = result.get();
+                objects.put(item.objectName(), item.etag());
+            }
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to list " + prefix + " in " + bucket, e);
+        }
+        return objects;
+    }
+
+    private void copy(String source, String target, String objectName) {
+        try {
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(target)
+                    .object(objectName)
+                    .source(CopySource.builder()
+                            .bucket(source)
+                            .object(objectName)
+                            .build())
+                    .build());
+        } catch (Exception e) {
+            throw new MinioOperationException("Failed to copy " + objectName + " to " + target, e);
+        }
+    }
+
+    private void remove(String bucket, List<String> objectNames) {
+        for (int from = 0; from < objectNames.size(); from += MAX_DELETE_OBJECTS) {
+            List<DeleteObject> chunk = objectNames.subList(from, Math.min(from + MAX_DELETE_OBJECTS, objectNames.size()))
+                    .stream().map(DeleteObject::new).toList();
+            try {
+                for (Result<DeleteError> error : minioClient.removeObjects(RemoveObjectsArgs.builder()
+                        .bucket(bucket)
+                        .objects(chunk)
+                        .build())) {
+                    DeleteError deleteError = error.get();
+                    log.warn("[ShardMigrationService.remove] Failed to remove " + deleteError.objectName()
+                            + " from " + bucket + ": " + deleteError.message());
+                }
+            } catch (Exception e) {
+                throw new MinioOperationException("Failed to remove objects from " + bucket, e);
+            }
+        }
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioProperties;
+import com.example.cloud_box.config.ShardingProperties;
+import com.example.cloud_box.exception.TooManyRequestsException;
+import com.example.cloud_box.model.StorageLayout;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps object keys to buckets. Objects of a user follow the user's {@link StorageLayout};
+ * system objects and users that were never migrated stay in the default bucket. Layouts are
+ * cached for sharding.layout-cache-seconds, and migrations wait longer than that between
+ * switches, so all nodes agree on where a user's objects are.
+ */
+@Service
+public class ShardRouter {
+
+    private static final Pattern USER_OBJECT_PATTERN = Pattern.compile("user-(\\d{1,18})-files/.*", Pattern.DOTALL);
+    private static final int MAX_CACHED_ROUTES = 100_000;
+
+    private final UserRepository userRepository;
+    private final ShardingProperties properties;
+    private final String defaultBucket;
+    private final ConcurrentMap<Long, Route> routes = new ConcurrentHashMap<>();
+
+    public ShardRouter(UserRepository userRepository, ShardingProperties properties, MinioProperties minioProperties) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.defaultBucket = minioProperties.getBucket();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String defaultBucket() {
+        return defaultBucket;
+    }
+
+    /**
+     * The default bucket followed by the shard buckets, without duplicates.
+     */
+    public List<String> buckets() {
+        Set<String> buckets = new LinkedHashSet<>();
+        buckets.add(defaultBucket);
+        if (properties.isEnabled()) {
+            buckets.addAll(properties.getBuckets());
+        }
+        return new ArrayList<>(buckets);
+    }
+
+    public String readBucket(String objectName) {
+        Route route = route(objectName);
+        return route == null ? defaultBucket : route.bucket();
+    }
+
+    /**
+     * Bucket to write the object to; fails with 429 while the owner's objects are being synced
+     * to the shard bucket, since a write then could be lost.
+     */
+    public String writeBucket(String objectName) {
+        Route route = route(objectName);
+        if (route == null) {
+            return defaultBucket;
+        }
+        if (route.layout() == StorageLayout.SYNCING) {
+            throw new TooManyRequestsException("Storage of this user is being moved, try again later",
+                    properties.getRetryAfterSeconds());
+        }
+        return route.bucket();
+    }
+
+    /**
+     * Shard bucket of the user: a mixed hash of the id over sharding.buckets, so consecutive
+     * ids do not land in the buckets in turn. Changing the bucket list does not move placed users,
+     * their bucket is stored with them.
+     */
+    public String shardBucket(Long userId) {
+        List<String> buckets = properties.getBuckets();
+        if (buckets.isEmpty()) {
+            throw new IllegalStateException("No shard buckets configured in sharding.buckets");
+        }
+        return buckets.get((int) Math.floorMod(mix(userId), (long) buckets.size()));
+    }
+
+    /**
+     * New users start sharded when sharding is enabled, only existing users need a migration.
+     */
+    public User placeNewUser(User user) {
+        if (!properties.isEnabled()) {
+            return user;
+        }
+        user.setStorageLayout(StorageLayout.SHARDED);
+        user.setStorageBucket(shardBucket(user.getId()));
+        User saved = userRepository.save(user);
+        evict(user.getId());
+        return saved;
+    }
+
+    public void evict(Long userId) {
+        routes.remove(userId);
+    }
+
+    private Route route(String objectName) {
+        if (!properties.isEnabled() || objectName == null) {
+            return null;
+        }
+        Matcher matcher = USER_OBJECT_PATTERN.matcher(objectName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Long userId = Long.valueOf(matcher.group(1));
+        long now = System.nanoTime();
+        Route cached = routes.get(userId);
+        if (cached != null && now - cached.loadedAt() < TimeUnit.SECONDS.toNanos(properties.getLayoutCacheSeconds())) {
+            return cached;
+        }
+        if (routes.size() >= MAX_CACHED_ROUTES) {
+            routes.clear();
+        }
+        Route loaded = load(userId, now);
+        routes.put(userId, loaded);
+        return loaded;
+    }
+
+    private Route load(Long userId, long now) {
+        Optional<User> user = userRepository.findById(userId);
+        StorageLayout layout = user.map(User::getStorageLayout).orElse(StorageLayout.LEGACY);
+        String bucket = layout == StorageLayout.SHARDED ? user.get().getStorageBucket() : defaultBucket;
+        return new Route(layout, bucket, now);
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Route(StorageLayout layout, String bucket, long loadedAt) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.cloud_box.service;
+
+import java.util.List;
+
+/**
+ * Published after objects were written or removed in the bucket.
+ * Object names are full keys, including the user root or the system prefix.
+ * External events come from bucket notifications for changes made outside the app.
+ */
+public record StorageChangeEvent(List<String> objectNames, boolean removed, boolean external) {
+
+    public StorageChangeEvent(List<String> objectNames, boolean removed) {
+        this(objectNames, removed, false);
+    }
+
+    public static StorageChangeEvent of(String objectName) {
+        return of(List.of(objectName));
+    }
+
+    public static StorageChangeEvent of(List<String> objectNames) {
+        return new StorageChangeEvent(objectNames, false);
+    }
+
+    public static StorageChangeEvent deleted(String objectName) {
+        return deleted(List.of(objectName));
+    }
+
+    public static StorageChangeEvent deleted(List<String> objectNames) {
+        return new StorageChangeEvent(objectNames, true);
+    }
+
+    public static StorageChangeEvent external(List<String> objectNames, boolean removed) {
+        return new StorageChangeEvent(objectNames, removed, true);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.cloud_box.service;
+
+import com.example.cloud_box.config.MinioProperties;
+import com.example.cloud_box.config.ThumbnailProperties;
+import com.example.cloud_box.exception.InternalServerException;
+import com.example.cloud_box.exception.InvalidInputException;
+import com.example.cloud_box.exception.ResourceNotFoundException;
+import com.example.cloud_box.exception.TooManyRequestsException;
+import com.example.cloud_box.model.PackedFile;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates JPEG thumbnails of uploaded images on a bounded worker pool.
+ * Renditions are stored under the hidden system prefix and keyed by the source key and version,
+ * so an overwritten image never shows an old thumbnail. Sources may be packed files. Unused renditions expire by lifecycle rule.
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    public static final String RENDITIONS_FOLDER = "renditions/";
+
+    private static final String JPEG_CONTENT_TYPE = "image/jpeg";
+    private static final String JPEG_FORMAT = "jpeg";
+    private static final String IMAGE_CONTENT_TYPE_PREFIX = "image/";
+
+    private final MinioService minioService;
+    private final PackedFileService packedFileService;
+    private final ThumbnailProperties properties;
+    private final String renditionPrefix;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public ThumbnailService(MinioService minioService, PackedFileService packedFileService,
+                            ThumbnailProperties properties, MinioProperties minioProperties) {
+        this.minioService = minioService;
+        this.packedFileService = packedFileService;
+        this.properties = properties;
+        this.renditionPrefix = minioProperties.getSystemPrefix() + RENDITIONS_FOLDER;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                properties.getWorkerThreads(),
+                properties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Schedules renditions for a freshly uploaded image. When the queue is full the work is
+     * dropped; the thumbnail is then generated on first request.
+     */
+    public void enqueue(String objectName, String contentType) {
+        if (!properties.isEnabled() || contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith(IMAGE_CONTENT_TYPE_PREFIX)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    SourceImage source = findSource(objectName)
+                            .orElseThrow(() -> new ResourceNotFoundException("File not found: " + objectName));
+                    for (Integer size : properties.getSizes()) {
+                        ensureRendition(objectName, source, size);
+                    }
+                } catch (Exception e) {
+                    log.warn("[ThumbnailService.enqueue] Failed to generate thumbnails for "
+                            + objectName + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("[ThumbnailService.enqueue] Queue is full, skipping " + objectName);
+        }
+    }
+
+    public void serve(String objectName, int size, HttpServletRequest request, HttpServletResponse response) {
+        if (!properties.isEnabled()) {
+            throw new ResourceNotFoundException("Thumbnails are disabled");
+        }
+        if (!properties.getSizes().contains(size)) {
+            throw new InvalidInputException("Unsupported thumbnail size: " + size + ", allowed: " + properties.getSizes());
+        }
+        SourceImage source = findSource(objectName)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found: " + objectName));
+
+        String renditionKey = renditionKey(objectName, source.version(), size);
+        String etag = "\"" + renditionKey.substring(renditionPrefix.length()) + "\"";
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            setCacheHeaders(response, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (minioService.findFileStat(renditionKey).isEmpty()) {
+            awaitRendition(objectName, source, size);
+        }
+
+        setCacheHeaders(response, etag);
+        try (InputStream inputStream = minioService.downloadFile(renditionKey)) {
+            response.setContentType(JPEG_CONTENT_TYPE);
+            inputStream.transferTo(response.getOutputStream());
+            response.flushBuffer();
+        } catch (IOException e) {
+            throw new InternalServerException("I/O error during thumbnail download", e);
+        } catch (Exception e) {
+            throw new InternalServerException("Failed to download thumbnail", e);
+        }
+    }
+
+    // the thumbnail URL is not versioned, so clients revalidate with the ETag once max-age runs out
+    private void setCacheHeaders(HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(properties.getCacheMaxAgeSeconds(), TimeUnit.SECONDS).cachePrivate().getHeaderValue());
+    }
+
+    /**
+     * The image as a packed file or an object of its own. The version changes whenever the content does:
+     * the ETag of an object, the content hash of a packed file.
+     */
+    private record SourceImage(String version, long size, PackedFile packed) {
+    }
+
+    private Optional<SourceImage> findSource(String objectName) {
+        Optional<PackedFile> packed = packedFileService.find(objectName);
+        if (packed.isPresent()) {
+            PackedFile file = packed.get();
+            String version = file.getSha256() != null ? file.getSha256() : file.getSegmentKey() + ":" + file.getOffset();
+            return Optional.of(new SourceImage(version, file.getLength(), file));
+        }
+        return minioService.findFileStat(objectName).map(stat -> new SourceImage(stat.etag(), stat.size(), null));
+    }
+
+    private void awaitRendition(String objectName, SourceImage source, int size) {
+        CompletableFuture<Void> generation;
+        try {
+            generation = CompletableFuture.runAsync(() -> ensureRendition(objectName, source, size), executor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Thumbnail generation is busy, try again later", 5);
+        }
+        try {
+            generation.get(properties.getGenerateTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalServerException("Failed to generate thumbnail", e.getCause());
+        } catch (TimeoutException e) {
+            throw new InternalServerException("Thumbnail generation timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Thumbnail generation interrupted", e);
+        }
+    }
+
+    /**
+     * Generates a rendition unless it is already stored. Concurrent requests for the same
+     * rendition share one generation.
+     */
+    private void ensureRendition(String objectName, SourceImage source, int size) {
+        String renditionKey = renditionKey(objectName, source.version(), size);
+        CompletableFuture<Void> own = new CompletableFuture<>();
+        CompletableFuture<Void> running = inFlight.putIfAbsent(renditionKey, own);
+        if (running != null) {
+            running.join();
+            return;
+        }
+        try {
+            if (minioService.findFileStat(renditionKey).isEmpty()) {
+                byte[] jpeg = render(objectName, source, size);
+                minioService.uploadFile(renditionKey, new ByteArrayInputStream(jpeg), JPEG_CONTENT_TYPE);
+            }
+            own.complete(null);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(renditionKey, own);
+        }
+    }
+
+    private byte[] render(String objectName, SourceImage source, int size) {
+        if (source.size() > properties.getMaxSourceBytes()) {
+            throw new InvalidInputException("Image is too large for a thumbnail: " + objectName);
+        }
+        try (InputStream in = source.packed() != null
+                ? packedFileService.open(source.packed()) : minioService.downloadFile(objectName);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            BufferedImage original = readImage(imageInput, objectName);
+            return writeJpeg(scale(original, size));
+        } catch (InvalidInputException | InternalServerException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InternalServerException("Failed to render thumbnail for " + objectName, e);
+        } catch (Exception e) {
+            throw new InternalServerException("Failed to read image " + objectName, e);
+        }
+    }
+
+    private BufferedImage readImage(ImageInputStream imageInput, String objectName) throws IOException {
+        Iterator<ImageReader> readers = imageInput == null ? null : ImageIO.getImageReaders(imageInput);
+        if (readers == null || !readers.hasNext()) {
+            throw new InvalidInputException("Resource is not a supported image: " + objectName);
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageInput, true, true);
+            long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+            if (pixels > properties.getMaxSourcePixels()) {
+                throw new InvalidInputException("Image dimensions are too large for a thumbnail: " + objectName);
+            }
+            return reader.read(0);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private BufferedImage scale(BufferedImage original, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(original.getWidth(), original.getHeight()));
+        int width = Math.max(1, (int) Math.round(original.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] writeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(JPEG_FORMAT).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(properties.getQuality());
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private String renditionKey(String objectName, String version, int size) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(version).getBytes(StandardCharsets.UTF_8));
+            return renditionPrefix + HexFormat.of().formatHex(digest.digest()) + "-" + size + ".jpg";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
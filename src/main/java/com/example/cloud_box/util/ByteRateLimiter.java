@@ -0,0 +1,55 @@
+package com.example.cloud_box.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free byte rate limiter. The only state is the time at which every byte reserved so far
+ * has been "sent" at the configured rate; a reservation moves that time forward with one CAS
+ * and tells the caller how long to wait. Idle time accrues credit up to the burst window.
+ */
+public class ByteRateLimiter {
+
+    private final long bytesPerSecond;
+    private final double nanosPerByte;
+    private final long burstNanos;
+    private final AtomicLong drainedAt;
+
+    /**
+     * @param bytesPerSecond sustained rate; zero or less means unlimited
+     * @param burstSeconds   how much idle time may be spent at once
+     */
+    public ByteRateLimiter(long bytesPerSecond, double burstSeconds) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.nanosPerByte = bytesPerSecond > 0 ? 1_000_000_000d / bytesPerSecond : 0;
+        this.burstNanos = (long) (burstSeconds * 1_000_000_000L);
+        this.drainedAt = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    public boolean isUnlimited() {
+        return bytesPerSecond <= 0;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Reserves bandwidth for the given number of bytes.
+     *
+     * @return nanoseconds the caller has to wait before sending them
+     */
+    public long reserve(int bytes) {
+        if (isUnlimited() || bytes <= 0) {
+            return 0;
+        }
+        long cost = (long) (bytes * nanosPerByte);
+        while (true) {
+            long now = System.nanoTime();
+            long current = drainedAt.get();
+            long next = Math.max(current, now - burstNanos) + cost;
+            if (drainedAt.compareAndSet(current, next)) {
+                return Math.max(0, next - now);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.cloud_box.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Reads the gzip-compressed form of the source stream, so compressed content can be handed
+ * to a client that pulls from an input stream without a pipe or a second thread.
+ */
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CheckedInputStream source;
+    private final Deflater deflater;
+    private final DeflaterInputStream deflated;
+    private final byte[] trailer = new byte[8];
+    private long sourceBytes;
+    private int headerPos;
+    private int trailerPos = -1;
+
+    public GzipCompressingInputStream(InputStream source, int level) {
+        this.source = new CheckedInputStream(source, new CRC32());
+        this.deflater = new Deflater(level, true);
+        this.deflated = new DeflaterInputStream(new CountingSource(), deflater, BUFFER_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (headerPos < HEADER.length) {
+            int count = Math.min(len, HEADER.length - headerPos);
+            System.arraycopy(HEADER, headerPos, b, off, count);
+            headerPos += count;
+            return count;
+        }
+        if (trailerPos < 0) {
+            int read = deflated.read(b, off, len);
+            if (read >= 0) {
+                return read;
+            }
+            writeTrailer();
+        }
+        if (trailerPos >= trailer.length) {
+            return -1;
+        }
+        int count = Math.min(len, trailer.length - trailerPos);
+        System.arraycopy(trailer, trailerPos, b, off, count);
+        trailerPos += count;
+        return count;
+    }
+
+    private void writeTrailer() {
+        long crc = source.getChecksum().getValue();
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crc >>> (8 * i));
+            trailer[4 + i] = (byte) (sourceBytes >>> (8 * i));
+        }
+        trailerPos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // counts the uncompressed bytes for the trailer, which holds the size modulo 2^32
+    private class CountingSource extends InputStream {
+        @Override
+        public int read() throws IOException {
+            int value = source.read();
+            if (value >= 0) {
+                sourceBytes++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = source.read(b, off, len);
+            if (read > 0) {
+                sourceBytes += read;
+            }
+            return read;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.cloud_box.util;
 public final class MimeTypes {
     public static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
     public static final String DIRECTORY = "application/x-directory";
+    public static final String RESOURCE_COLUMNS_JSON = "application/vnd.cloudbox.columns+json";
 
     private MimeTypes() {
     }
@@ -2,6 +2,7 @@ package com.example.cloud_box.util;
 
 import com.example.cloud_box.model.User;
 import com.example.cloud_box.repository.UserRepository;
+import com.example.cloud_box.security.TokenAuthentication;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -27,6 +28,9 @@ public class SecurityUtils {
         if (auth == null || !auth.isAuthenticated()) {
             throw new IllegalStateException("No authenticated user");
         }
+        if (auth instanceof TokenAuthentication tokenAuthentication) {
+            return tokenAuthentication.getUserId();
+        }
 
         String username = auth.getName();
         return userRepository.findByUsername(username)
@@ -0,0 +1,64 @@
+package com.example.cloud_box.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keyed token bucket implemented as GCRA: each key stores only the theoretical arrival time
+ * of its next request, so a check is a single compare-and-set without timers or refill threads.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+
+    /**
+     * @param ratePerMinute sustained rate allowed per key
+     * @param burst         requests a key may make at once after being idle
+     * @param maxKeys       tracked keys before idle ones are dropped
+     */
+    public TokenBucket(int ratePerMinute, int burst, int maxKeys) {
+        if (ratePerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.emissionIntervalNanos = 60_000_000_000L / ratePerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes a token for the key.
+     *
+     * @return 0 if the request is allowed, otherwise nanoseconds until the next one would be
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        if (arrivals.size() >= maxKeys) {
+            evictIdle(now);
+        }
+        AtomicLong arrival = arrivals.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long theoretical = arrival.get();
+            long next = Math.max(theoretical, now) + emissionIntervalNanos;
+            long waitNanos = next - now - burstToleranceNanos - emissionIntervalNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (arrival.compareAndSet(theoretical, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return arrivals.size();
+    }
+
+    // a key whose arrival time has passed has a full bucket, so forgetting it changes nothing
+    private void evictIdle(long now) {
+        arrivals.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cloud_box.util;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+public final class TracingUtils {
+
+    public static final String OBJECT_COUNT = "object.count";
+    public static final String BYTES = "bytes";
+
+    private TracingUtils() {
+    }
+
+    /**
+     * Adds an attribute to the observation (and so the span) currently open on this thread, if any.
+     * High-cardinality values end up on the span only, never as a metric tag.
+     */
+    public static void tag(ObservationRegistry registry, String key, Object value) {
+        Observation current = registry.getCurrentObservation();
+        if (current != null) {
+            current.highCardinalityKeyValue(key, String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.cloud_box.admin;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AdminProfilingIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Cookie adminCookie;
+    private Cookie userCookie;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userRepository.deleteByUsername("admin");
+        userRepository.deleteByUsername("regular");
+        adminCookie = registerAndLogin("admin", "adminPass1");
+        userCookie = registerAndLogin("regular", "userPass1");
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        admin.setAdmin(true);
+        userRepository.save(admin);
+    }
+
+    private Cookie registerAndLogin(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    @Test
+    void testProfiling_isOnlyForAdmins() throws Exception {
+        mockMvc.perform(post("/api/admin/profiling/start")
+                        .cookie(userCookie))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/profiling"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testProfiling_recordsAndReturnsJfrFile() throws Exception {
+        mockMvc.perform(post("/api/admin/profiling/start")
+                        .param("settings", "profile")
+                        .param("durationSeconds", "60")
+                        .cookie(adminCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.settings").value("profile"));
+        mockMvc.perform(post("/api/admin/profiling/start")
+                        .cookie(adminCookie))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", "profiled.txt", "text/plain", "profiled".getBytes()))
+                        .cookie(adminCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        MvcResult stopped = mockMvc.perform(post("/api/admin/profiling/stop")
+                        .cookie(adminCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        byte[] recording = mockMvc.perform(asyncDispatch(stopped))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        // every JFR file starts with the "FLR\0" magic
+        assertEquals("FLR", new String(Arrays.copyOf(recording, 3), StandardCharsets.US_ASCII));
+
+        mockMvc.perform(get("/api/admin/profiling")
+                        .cookie(adminCookie))
+                .andExpect(status().isNotFound());
+    }
+}
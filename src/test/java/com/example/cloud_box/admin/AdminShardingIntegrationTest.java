@@ -0,0 +1,202 @@
+package com.example.cloud_box.admin;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.model.StorageLayout;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.example.cloud_box.service.ShardRouter;
+import com.example.cloud_box.service.UserFolderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sharding.enabled=true",
+        "sharding.buckets=cloudbox-shard-a,cloudbox-shard-b",
+        "sharding.layout-cache-seconds=1",
+        "sharding.drain-seconds=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AdminShardingIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserFolderService userFolderService;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    private Cookie adminCookie;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userRepository.deleteByUsername("admin");
+        userRepository.deleteByUsername("sharded");
+        userRepository.deleteByUsername("legacy");
+        adminCookie = registerAndLogin("admin", "adminPass1");
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        admin.setAdmin(true);
+        userRepository.save(admin);
+    }
+
+    private Cookie registerAndLogin(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    @Test
+    void testNewUser_startsInShardBucket() throws Exception {
+        Cookie cookie = registerAndLogin("sharded", "shardedPass1");
+        Long userId = userRepository.findByUsername("sharded").orElseThrow().getId();
+        String bucket = shardRouter.shardBucket(userId);
+
+        mockMvc.perform(get("/api/admin/sharding/users/sharded")
+                        .cookie(adminCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.layout").value("SHARDED"))
+                .andExpect(jsonPath("$.bucket").value(bucket));
+
+        byte[] content = "sharded content".getBytes();
+        upload(cookie, "notes.txt", content);
+        minioClient.statObject(StatObjectArgs.builder()
+                .bucket(bucket)
+                .object("user-" + userId + "-files/notes.txt")
+                .build());
+        assertArrayEquals(content, download(cookie, "notes.txt"));
+    }
+
+    @Test
+    void testMigrate_movesLegacyUserToShardBucket() throws Exception {
+        Cookie cookie = registerAndLogin("legacy", "legacyPass1");
+        Long userId = userRepository.findByUsername("legacy").orElseThrow().getId();
+        String root = "user-" + userId + "-files/";
+        // as if the user had been created before sharding was enabled
+        userRepository.updateStorageLayout(userId, StorageLayout.LEGACY);
+        shardRouter.evict(userId);
+        userFolderService.createUserRootFolder(userId);
+
+        byte[] content = "legacy content".getBytes();
+        upload(cookie, "docs/report.txt", content);
+        mockMvc.perform(get("/api/admin/sharding/users/legacy")
+                        .cookie(adminCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.layout").value("LEGACY"))
+                .andExpect(jsonPath("$.bucket").value(BUCKET));
+
+        MvcResult accepted = mockMvc.perform(post("/api/admin/sharding/users/legacy/migrate")
+                        .cookie(adminCookie))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("MIGRATE"))
+                .andReturn();
+        String jobId = objectMapper.readTree(accepted.getResponse().getContentAsString()).get("id").asText();
+        assertEquals("COMPLETED", waitForJob(jobId).get("status").asText());
+
+        mockMvc.perform(get("/api/admin/sharding/users/legacy")
+                        .cookie(adminCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.layout").value("SHARDED"))
+                .andExpect(jsonPath("$.bucket").value(shardRouter.shardBucket(userId)));
+        assertArrayEquals(content, download(cookie, "docs/report.txt"));
+        assertFalse(minioClient.listObjects(ListObjectsArgs.builder()
+                        .bucket(BUCKET)
+                        .prefix(root)
+                        .recursive(true)
+                        .build()).iterator().hasNext(),
+                "Objects should be removed from the default bucket");
+
+        mockMvc.perform(post("/api/admin/sharding/users/legacy/migrate")
+                        .cookie(adminCookie))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testMigrate_isOnlyForAdmins() throws Exception {
+        Cookie cookie = registerAndLogin("legacy", "legacyPass1");
+        mockMvc.perform(post("/api/admin/sharding/users/legacy/migrate")
+                        .cookie(cookie))
+                .andExpect(status().isForbidden());
+    }
+
+    private void upload(Cookie cookie, String path, byte[] content) throws Exception {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        String folder = path.substring(0, path.lastIndexOf('/') + 1);
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", name, "text/plain", content))
+                        .cookie(cookie)
+                        .param("path", folder))
+                .andExpect(status().isCreated());
+    }
+
+    private byte[] download(Cookie cookie, String path) throws Exception {
+        return mockMvc.perform(get("/api/resource/download")
+                        .param("path", path)
+                        .cookie(cookie))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+    }
+
+    private JsonNode waitForJob(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            MvcResult result = mockMvc.perform(get("/api/jobs/" + jobId).cookie(adminCookie))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode job = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = job.get("status").asText();
+            if (!status.equals("QUEUED") && !status.equals("RUNNING")) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        fail("Job did not finish in time: " + jobId);
+        return null;
+    }
+}
@@ -4,6 +4,8 @@ import com.example.cloud_box.common.AbstractIntegrationTest;
 import com.example.cloud_box.common.TestConfig;
 import com.example.cloud_box.dto.LoginRequestDTO;
 import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.dto.RefreshTokenRequestDTO;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.Cookie;
 import org.junit.jupiter.api.AfterEach;
@@ -20,6 +22,12 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -86,6 +94,114 @@ public class AuthIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void testTokenSignInRefreshAndRevoke() throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRegisterRequest())))
+                .andExpect(status().isCreated());
+
+        // token sign-in does not create a session
+        MvcResult tokenResult = mockMvc.perform(post("/api/auth/sign-in")
+                        .param("token", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validLoginRequest())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(USERNAME))
+                .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                .andExpect(cookie().doesNotExist("SESSION"))
+                .andReturn();
+        JsonNode tokens = objectMapper.readTree(tokenResult.getResponse().getContentAsString());
+        String accessToken = tokens.get("accessToken").asText();
+        String refreshToken = tokens.get("refreshToken").asText();
+
+        mockMvc.perform(get("/api/user/me")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(USERNAME));
+
+        // a tampered token is rejected
+        mockMvc.perform(get("/api/user/me")
+                        .header("Authorization", "Bearer " + accessToken + "x"))
+                .andExpect(status().isUnauthorized());
+
+        // refresh rotates the pair; the old refresh token cannot be reused
+        MvcResult refreshResult = mockMvc.perform(post("/api/auth/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isOk())
+                .andReturn();
+        String newAccessToken = objectMapper.readTree(refreshResult.getResponse().getContentAsString())
+                .get("accessToken").asText();
+
+        mockMvc.perform(post("/api/auth/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isUnauthorized());
+
+        // sign-out revokes the access token
+        mockMvc.perform(post("/api/auth/sign-out")
+                        .header("Authorization", "Bearer " + newAccessToken))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/user/me")
+                        .header("Authorization", "Bearer " + newAccessToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testConcurrentRefreshes_onlyOneSucceeds() throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRegisterRequest())))
+                .andExpect(status().isCreated());
+        MvcResult tokenResult = mockMvc.perform(post("/api/auth/sign-in")
+                        .param("token", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validLoginRequest())))
+                .andExpect(status().isOk())
+                .andReturn();
+        String body = objectMapper.writeValueAsString(new RefreshTokenRequestDTO(
+                objectMapper.readTree(tokenResult.getResponse().getContentAsString()).get("refreshToken").asText()));
+
+        List<CompletableFuture<Integer>> refreshes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            refreshes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return mockMvc.perform(post("/api/auth/token/refresh")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andReturn().getResponse().getStatus();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        List<Integer> statuses = refreshes.stream().map(CompletableFuture::join).toList();
+        assertEquals(1, statuses.stream().filter(code -> code == 200).count(), "Statuses: " + statuses);
+        assertEquals(statuses.size() - 1, statuses.stream().filter(code -> code == 401).count(), "Statuses: " + statuses);
+    }
+
+    @Test
+    void testPasswordHashingMetricsAreExposed() throws Exception {
+        MvcResult registerResult = mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRegisterRequest())))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie sessionCookie = registerResult.getResponse().getCookie("SESSION");
+
+        mockMvc.perform(get("/actuator/metrics/auth.password.hash")
+                        .param("tag", "operation:verify")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("auth.password.hash"))
+                .andExpect(jsonPath("$.availableTags").isArray());
+
+        mockMvc.perform(get("/actuator/metrics/auth.password.hash.queue")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk());
+    }
 
     private RegisterRequestDTO validRegisterRequest() {
         return new RegisterRequestDTO(USERNAME, PASSWORD);
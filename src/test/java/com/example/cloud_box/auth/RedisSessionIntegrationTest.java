@@ -20,6 +20,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -81,6 +82,41 @@ public class RedisSessionIntegrationTest extends AbstractIntegrationTest {
         assertFalse(redisTemplate.hasKey(redisSessionKey));
     }
 
+    @Test
+    void testSessionStoredAsJsonAndRejectedAfterLogout() throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registerRequest())))
+                .andExpect(status().isCreated());
+
+        MvcResult loginResult = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest())))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie sessionCookie = loginResult.getResponse().getCookie("SESSION");
+        assertNotNull(sessionCookie);
+
+        String redisSessionKey = "spring:session:sessions:" + getDecodedSessionId(sessionCookie.getValue());
+        Object securityContext = redisTemplate.opsForHash().get(redisSessionKey, "sessionAttr:SPRING_SECURITY_CONTEXT");
+        assertNotNull(securityContext);
+        assertTrue(securityContext.toString().startsWith("{"), "Security context should be stored as JSON");
+        assertTrue(securityContext.toString().contains(TEST_USERNAME));
+
+        // the second request is served from the near-cache
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/user/me").cookie(sessionCookie))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/api/auth/sign-out")
+                        .cookie(sessionCookie))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/user/me").cookie(sessionCookie))
+                .andExpect(status().is4xxClientError());
+    }
+
     private RegisterRequestDTO registerRequest() {
         return new RegisterRequestDTO(TEST_USERNAME, TEST_PASSWORD);
     }
@@ -0,0 +1,112 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "admission.per-user-concurrency=0", "admission.queue-timeout-millis=100", "admission.retry-after-seconds=7"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourceAdmissionIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Cookie sessionCookie;
+    private static final String USERNAME = "admitted";
+    private static final String PASSWORD = "pass1";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(USERNAME);
+        sessionCookie = registerAndLogin(USERNAME, PASSWORD);
+    }
+
+    private Cookie registerAndLogin(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    @Test
+    void testHeavyOperation_overLimit_isRejectedWithRetryAfter() throws Exception {
+        // with no slots per user every search waits in the queue until its deadline
+        mockMvc.perform(get("/api/resource/search")
+                        .param("query", "anything")
+                        .cookie(sessionCookie))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "7"));
+
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk());
+    }
+
+    private List<String> listObjects() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(
+                ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build())) {
+            names.add(result.get().objectName());
+        }
+        return names;
+    }
+
+    void clearMinioBucket() {
+        try {
+            for (String objectName : listObjects()) {
+                minioClient.removeObject(RemoveObjectArgs.builder().bucket(BUCKET).object(objectName).build());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.BatchOperationDTO;
+import com.example.cloud_box.dto.BatchRequestDTO;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.model.BatchOperationType;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourceBatchIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    private Cookie sessionCookie;
+
+    private static final String TEST_USERNAME = "batchUser";
+    private static final String TEST_PASSWORD = "testPass123";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(TEST_USERNAME);
+        sessionCookie = registerAndLoginUser(TEST_USERNAME, TEST_PASSWORD);
+    }
+
+    @Test
+    void batch_deletesFilesTogetherAndReportsMissingOnes() throws Exception {
+        uploadFile("docs/", "a.txt");
+        uploadFile("docs/", "b.txt");
+
+        perform(new BatchOperationDTO(BatchOperationType.DELETE, "docs/a.txt", null),
+                new BatchOperationDTO(BatchOperationType.DELETE, "docs/b.txt", null),
+                new BatchOperationDTO(BatchOperationType.DELETE, "docs/missing.txt", null))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].status").value(204))
+                .andExpect(jsonPath("$.results[1].status").value(204))
+                .andExpect(jsonPath("$.results[2].status").value(404));
+
+        mockMvc.perform(get("/api/resource").param("path", "docs/a.txt").cookie(sessionCookie))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void batch_runsDependentOperationsInRequestOrder() throws Exception {
+        uploadFile("", "report.txt");
+
+        perform(new BatchOperationDTO(BatchOperationType.MKDIR, "archive/", null),
+                new BatchOperationDTO(BatchOperationType.MOVE, "report.txt", "archive/report.txt"),
+                new BatchOperationDTO(BatchOperationType.MKDIR, "other/", null))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[1].status").value(200))
+                .andExpect(jsonPath("$.results[2].status").value(201));
+
+        mockMvc.perform(get("/api/resource").param("path", "archive/report.txt").cookie(sessionCookie))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void batch_rejectsInvalidAndConflictingOperations() throws Exception {
+        uploadFile("", "x.txt");
+        uploadFile("", "y.txt");
+
+        perform(new BatchOperationDTO(BatchOperationType.MOVE, "x.txt", "z.txt"),
+                new BatchOperationDTO(BatchOperationType.MOVE, "y.txt", "z.txt"),
+                new BatchOperationDTO(BatchOperationType.MOVE, "x.txt", null),
+                new BatchOperationDTO(BatchOperationType.DELETE, "../other-user/", null))
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[1].status").value(409))
+                .andExpect(jsonPath("$.results[2].status").value(400))
+                .andExpect(jsonPath("$.results[3].status").value(400));
+
+        mockMvc.perform(post("/api/resource/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchRequestDTO(List.of())))
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions perform(BatchOperationDTO... operations) throws Exception {
+        return mockMvc.perform(post("/api/resource/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchRequestDTO(List.of(operations))))
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk());
+    }
+
+    private void uploadFile(String folder, String name) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", name, "text/plain", ("content of " + name).getBytes());
+        mockMvc.perform(multipart("/api/resource").file(file).cookie(sessionCookie).param("path", folder))
+                .andExpect(status().isCreated());
+    }
+
+    private Cookie registerAndLoginUser(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    void clearMinioBucket() {
+        try {
+            Iterable<Result<Item>> results = minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build());
+
+            for (Result<Item> result : results) {
+                deleteObjectIfExists(result.get().objectName());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+
+    private void deleteObjectIfExists(String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(BUCKET)
+                    .object(objectName)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("Could not delete object: " + objectName);
+        }
+    }
+}
@@ -1,35 +1,61 @@
 package com.example.cloud_box.resource;
 
 import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.config.MinioProperties;
 import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.ProbeFileDTO;
+import com.example.cloud_box.dto.ProbeRequestDTO;
 import com.example.cloud_box.dto.RegisterRequestDTO;
 import com.example.cloud_box.model.User;
 import com.example.cloud_box.repository.UserRepository;
+import com.example.cloud_box.service.CompressionService;
+import com.example.cloud_box.service.MinioService;
+import com.example.cloud_box.util.MimeTypes;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
 import io.minio.messages.Item;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "bandwidth.enabled=true",
+        "disk-cache.enabled=true"
+})
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 public class ResourceIntegrationTest extends AbstractIntegrationTest {
@@ -48,6 +74,9 @@ public class ResourceIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private MinioClient minioClient;
 
+    @Autowired
+    private MinioProperties minioProperties;
+
     private static final String TEST_USERNAME = "testUser";
     private static final String TEST_PASSWORD = "testPass123";
 
@@ -225,4 +254,482 @@ public class ResourceIntegrationTest extends AbstractIntegrationTest {
             assertEquals("Content for rename test", new String(stream.readAllBytes()));
         }
     }
+
+    @Test
+    void testListDirectory_returnsNotModifiedUntilDirectoryChanges() throws Exception {
+        mockMvc.perform(post("/api/directory")
+                        .param("path", "polled/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated());
+
+        MvcResult first = mockMvc.perform(get("/api/directory")
+                        .param("path", "polled/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag, "Listing should carry an ETag");
+
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "polled/")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .cookie(sessionCookie))
+                .andExpect(status().isNotModified());
+
+        MockMultipartFile mockFile = new MockMultipartFile(
+                "files", "new.txt",
+                "text/plain", "changes the listing".getBytes()
+        );
+        mockMvc.perform(multipart("/api/resource")
+                        .file(mockFile)
+                        .cookie(sessionCookie)
+                        .param("path", "polled/"))
+                .andExpect(status().isCreated());
+
+        MvcResult changed = mockMvc.perform(get("/api/directory")
+                        .param("path", "polled/")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("new.txt"))
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testDownload_isMeteredPerPlan() throws Exception {
+        double uploadedBefore = planBytes("upload");
+        double downloadedBefore = planBytes("download");
+        byte[] fileContent = "metered content".getBytes();
+        MockMultipartFile mockFile = new MockMultipartFile(
+                "files", "metered.txt",
+                "text/plain", fileContent
+        );
+        mockMvc.perform(multipart("/api/resource")
+                        .file(mockFile)
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        MvcResult download = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "metered.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(fileContent, download.getResponse().getContentAsByteArray());
+
+        assertEquals(uploadedBefore + fileContent.length, planBytes("upload"));
+        assertEquals(downloadedBefore + fileContent.length, planBytes("download"));
+    }
+
+    // the test user has no plan, so it transfers under the default one
+    private double planBytes(String direction) throws Exception {
+        MvcResult result = mockMvc.perform(get("/actuator/metrics/bandwidth.plan.bytes")
+                        .param("tag", "plan:free")
+                        .param("tag", "direction:" + direction)
+                        .cookie(sessionCookie))
+                .andReturn();
+        if (result.getResponse().getStatus() == 404) {
+            return 0;
+        }
+        return objectMapper.readTree(result.getResponse().getContentAsString())
+                .get("measurements").get(0).get("value").asDouble();
+    }
+
+    @Test
+    void testDownload_readsGoThroughResilienceLayer() throws Exception {
+        byte[] fileContent = "resilient content".getBytes();
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", "resilient.txt", "text/plain", fileContent))
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        MvcResult download = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "resilient.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"resilient.txt\""))
+                .andReturn();
+        assertArrayEquals(fileContent, download.getResponse().getContentAsByteArray());
+
+        for (String operation : new String[]{"statObject", "getObject"}) {
+            mockMvc.perform(get("/actuator/metrics/minio.read.latency")
+                            .param("tag", "operation:" + operation)
+                            .cookie(sessionCookie))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/actuator/metrics/minio.read.circuit.open")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(0.0));
+    }
+
+    @Test
+    void testListDirectory_seesChangesMadeOutsideTheApp() throws Exception {
+        mockMvc.perform(post("/api/directory")
+                        .param("path", "mirrored/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated());
+        String etag = mockMvc.perform(get("/api/directory")
+                        .param("path", "mirrored/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // a client other than the app, like mc mirror
+        MinioClient externalClient = MinioClient.builder()
+                .endpoint(minioProperties.getUrl())
+                .credentials(MINIO_USER, MINIO_PASS)
+                .build();
+        User user = userRepository.findByUsername(TEST_USERNAME).orElseThrow();
+        byte[] content = "written by mc".getBytes();
+        externalClient.putObject(PutObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(getUserFilePath(user, "mirrored/external file.txt"))
+                .stream(new ByteArrayInputStream(content), content.length, -1)
+                .build());
+
+        int status = HttpServletResponse.SC_NOT_MODIFIED;
+        for (int attempt = 0; attempt < 50 && status == HttpServletResponse.SC_NOT_MODIFIED; attempt++) {
+            Thread.sleep(200);
+            status = mockMvc.perform(get("/api/directory")
+                            .param("path", "mirrored/")
+                            .header(HttpHeaders.IF_NONE_MATCH, etag)
+                            .cookie(sessionCookie))
+                    .andReturn().getResponse().getStatus();
+        }
+        assertEquals(HttpServletResponse.SC_OK, status, "Listing should change after an external upload");
+    }
+
+    @Test
+    void testListTree_returnsSubtreeDownToDepth() throws Exception {
+        mockMvc.perform(post("/api/directory")
+                        .param("path", "tree/empty/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated());
+        for (String folder : new String[]{"tree/", "tree/docs/", "tree/docs/deep/"}) {
+            MockMultipartFile mockFile = new MockMultipartFile(
+                    "files", "file.txt",
+                    "text/plain", ("in " + folder).getBytes()
+            );
+            mockMvc.perform(multipart("/api/resource")
+                            .file(mockFile)
+                            .cookie(sessionCookie)
+                            .param("path", folder))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/directory/tree")
+                        .param("path", "tree/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.truncated").value(false))
+                .andExpect(jsonPath("$.resources[*].name").value(containsInAnyOrder(
+                        "docs/", "deep/", "empty/", "file.txt", "file.txt", "file.txt")))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+
+        mockMvc.perform(get("/api/directory/tree")
+                        .param("path", "tree/")
+                        .param("depth", "1")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resources[*].name").value(containsInAnyOrder("docs/", "empty/", "file.txt")))
+                .andExpect(jsonPath("$.resources[?(@.name == 'file.txt')].path").value(contains("tree/")));
+
+        mockMvc.perform(get("/api/directory/tree")
+                        .param("path", "tree/")
+                        .param("depth", "0")
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUploadArchive_extractsIntoFolder() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("app/"));
+            out.putNextEntry(new ZipEntry("app/empty/"));
+            out.putNextEntry(new ZipEntry("app/README.md"));
+            out.write("# app".getBytes());
+            out.putNextEntry(new ZipEntry("app/src/Main.java"));
+            out.write("class Main {}".getBytes());
+        }
+
+        mockMvc.perform(post("/api/resource")
+                        .param("path", "extracted/")
+                        .param("extract", "true")
+                        .contentType("application/zip")
+                        .content(zip.toByteArray())
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.path").value("extracted/"))
+                .andExpect(jsonPath("$.files").value(2))
+                .andExpect(jsonPath("$.directories").value(2));
+
+        User user = userRepository.findByUsername(TEST_USERNAME).orElseThrow();
+        try (InputStream stream = getFileFromMinio(getUserFilePath(user, "extracted/app/src/Main.java"))) {
+            assertEquals("class Main {}", new String(stream.readAllBytes()));
+        }
+        assertNotNull(minioClient.statObject(StatObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(getUserFilePath(user, "extracted/app/empty/"))
+                .build()), "Empty folders should get a placeholder");
+
+        ByteArrayOutputStream evil = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(evil)) {
+            out.putNextEntry(new ZipEntry("written-first.txt"));
+            out.write("rolled back".getBytes());
+            out.putNextEntry(new ZipEntry("../escaped.txt"));
+            out.write("outside".getBytes());
+        }
+        mockMvc.perform(post("/api/resource")
+                        .param("path", "extracted/")
+                        .param("extract", "true")
+                        .contentType("application/zip")
+                        .content(evil.toByteArray())
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+        assertThrows(ErrorResponseException.class, () -> minioClient.statObject(StatObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(getUserFilePath(user, "escaped.txt"))
+                .build()));
+        assertThrows(ErrorResponseException.class, () -> minioClient.statObject(StatObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(getUserFilePath(user, "extracted/written-first.txt"))
+                .build()), "Entries written before the rejection should be deleted");
+    }
+
+    @Test
+    void testProbe_reportsMissingDifferentAndIdenticalFiles() throws Exception {
+        byte[] content = "probed content".getBytes();
+        for (String name : new String[]{"same.txt", "changed.txt"}) {
+            MockMultipartFile mockFile = new MockMultipartFile(
+                    "files", name,
+                    "text/plain", content
+            );
+            mockMvc.perform(multipart("/api/resource")
+                            .file(mockFile)
+                            .cookie(sessionCookie)
+                            .param("path", "probed/"))
+                    .andExpect(status().isCreated());
+        }
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        String body = objectMapper.writeValueAsString(new ProbeRequestDTO(List.of(
+                new ProbeFileDTO("probed/same.txt", (long) content.length, null, sha256),
+                new ProbeFileDTO("probed/changed.txt", (long) content.length, null, "0".repeat(64)),
+                new ProbeFileDTO("probed/missing.txt", null, null, null),
+                new ProbeFileDTO("elsewhere/missing.txt", null, null, null))));
+
+        mockMvc.perform(post("/api/resource/probe")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.identical").value(1))
+                .andExpect(jsonPath("$.different").value(1))
+                .andExpect(jsonPath("$.missing").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("IDENTICAL"))
+                .andExpect(jsonPath("$.results[0].sha256").value(sha256))
+                .andExpect(jsonPath("$.results[1].status").value("DIFFERENT"))
+                .andExpect(jsonPath("$.results[2].status").value("MISSING"))
+                .andExpect(jsonPath("$.results[3].status").value("MISSING"));
+
+        mockMvc.perform(get("/api/resource")
+                        .param("path", "probed/same.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("same.txt"))
+                .andExpect(jsonPath("$.size").value(content.length));
+    }
+
+    @Test
+    void testChanges_returnsChangesSinceCursor() throws Exception {
+        String cursor = objectMapper.readTree(mockMvc.perform(get("/api/changes")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes").isEmpty())
+                .andReturn().getResponse().getContentAsString()).get("cursor").asText();
+
+        mockMvc.perform(post("/api/directory")
+                        .param("path", "synced/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated());
+        MockMultipartFile mockFile = new MockMultipartFile(
+                "files", "a.txt",
+                "text/plain", "synced content".getBytes()
+        );
+        mockMvc.perform(multipart("/api/resource")
+                        .file(mockFile)
+                        .cookie(sessionCookie)
+                        .param("path", "synced/"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/resource/move")
+                        .cookie(sessionCookie)
+                        .param("from", "synced/a.txt")
+                        .param("to", "synced/b.txt"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/resource")
+                        .cookie(sessionCookie)
+                        .param("path", "synced/b.txt"))
+                .andExpect(status().isNoContent());
+
+        MvcResult firstPage = mockMvc.perform(get("/api/changes")
+                        .param("cursor", cursor)
+                        .param("limit", "2")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].type").value("MKDIR"))
+                .andExpect(jsonPath("$.changes[0].path").value("synced/"))
+                .andExpect(jsonPath("$.changes[1].type").value("UPLOAD"))
+                .andExpect(jsonPath("$.changes[1].path").value("synced/a.txt"))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn();
+        String nextCursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("cursor").asText();
+
+        mockMvc.perform(get("/api/changes")
+                        .param("cursor", nextCursor)
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(2))
+                .andExpect(jsonPath("$.changes[0].type").value("MOVE"))
+                .andExpect(jsonPath("$.changes[0].path").value("synced/a.txt"))
+                .andExpect(jsonPath("$.changes[0].to").value("synced/b.txt"))
+                .andExpect(jsonPath("$.changes[1].type").value("DELETE"))
+                .andExpect(jsonPath("$.changes[1].path").value("synced/b.txt"))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.resyncRequired").value(false));
+
+        // a cursor the log does not know, e.g. from before the log was trimmed
+        mockMvc.perform(get("/api/changes")
+                        .param("cursor", "1-0")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes").isEmpty())
+                .andExpect(jsonPath("$.resyncRequired").value(true));
+
+        mockMvc.perform(get("/api/changes")
+                        .param("cursor", "not-a-cursor")
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testListDirectory_supportsCompactEncodings() throws Exception {
+        for (String name : new String[]{"one.txt", "two.txt"}) {
+            MockMultipartFile mockFile = new MockMultipartFile(
+                    "files", name,
+                    "text/plain", ("content of " + name).getBytes()
+            );
+            mockMvc.perform(multipart("/api/resource")
+                            .file(mockFile)
+                            .cookie(sessionCookie)
+                            .param("path", "encoded/"))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "encoded/")
+                        .accept(MimeTypes.RESOURCE_COLUMNS_JSON)
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MimeTypes.RESOURCE_COLUMNS_JSON))
+                .andExpect(jsonPath("$.parents.length()").value(1))
+                .andExpect(jsonPath("$.parent").value(contains(0, 0)))
+                .andExpect(jsonPath("$.name").value(containsInAnyOrder("one.txt", "two.txt")));
+
+        MvcResult cbor = mockMvc.perform(get("/api/directory")
+                        .param("path", "encoded/")
+                        .accept("application/cbor")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andReturn();
+        JsonNode decoded = new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray());
+        assertEquals(2, decoded.size());
+
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "encoded/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void testUpload_compressesTextAtRest() throws Exception {
+        StringBuilder csv = new StringBuilder("id,name,amount\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append(i).append(",item-").append(i % 10).append(",100\n");
+        }
+        byte[] fileContent = csv.toString().getBytes();
+        MockMultipartFile mockFile = new MockMultipartFile("files", "report.csv", "text/csv", fileContent);
+        mockMvc.perform(multipart("/api/resource")
+                        .file(mockFile)
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        User user = userRepository.findByUsername(TEST_USERNAME).orElseThrow();
+        StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(getUserFilePath(user, "report.csv"))
+                .build());
+        assertEquals("gzip", MinioService.userMetadata(stat.userMetadata(), CompressionService.CODEC_METADATA));
+        assertTrue(stat.size() < fileContent.length);
+
+        mockMvc.perform(get("/api/resource")
+                        .param("path", "report.csv")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(fileContent.length));
+
+        MvcResult decoded = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "report.csv")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+        assertArrayEquals(fileContent, decoded.getResponse().getContentAsByteArray());
+
+        MvcResult passedThrough = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "report.csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(passedThrough.getResponse().getContentAsByteArray()))) {
+            assertArrayEquals(fileContent, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testDownload_isServedFromDiskCacheUntilFileChanges() throws Exception {
+        for (String content : new String[]{"first version", "second version"}) {
+            MockMultipartFile mockFile = new MockMultipartFile("files", "cached.txt", "text/plain", content.getBytes());
+            mockMvc.perform(multipart("/api/resource")
+                            .file(mockFile)
+                            .cookie(sessionCookie)
+                            .param("path", ""))
+                    .andExpect(status().isCreated());
+
+            for (int i = 0; i < 2; i++) {
+                MvcResult download = mockMvc.perform(get("/api/resource/download")
+                                .param("path", "cached.txt")
+                                .cookie(sessionCookie))
+                        .andExpect(status().isOk())
+                        .andReturn();
+                assertEquals(content, download.getResponse().getContentAsString());
+            }
+        }
+
+        for (String result : new String[]{"hit", "miss"}) {
+            mockMvc.perform(get("/actuator/metrics/disk.cache.requests")
+                            .param("tag", "result:" + result)
+                            .cookie(sessionCookie))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(2.0)));
+        }
+    }
 }
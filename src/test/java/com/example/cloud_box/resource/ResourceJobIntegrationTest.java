@@ -0,0 +1,198 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "jobs.stale-after-seconds=1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourceJobIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private Cookie sessionCookie;
+
+    private static final String TEST_USERNAME = "jobUser";
+    private static final String TEST_PASSWORD = "testPass123";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(TEST_USERNAME);
+        sessionCookie = registerAndLoginUser(TEST_USERNAME, TEST_PASSWORD);
+    }
+
+    @Test
+    void asyncFolderDelete_completesAndRemovesObjects() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockMultipartFile file = new MockMultipartFile(
+                    "files", "file" + i + ".txt", "text/plain", ("content " + i).getBytes());
+            mockMvc.perform(multipart("/api/resource")
+                            .file(file)
+                            .cookie(sessionCookie)
+                            .param("path", "big/"))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult accepted = mockMvc.perform(delete("/api/resource")
+                        .param("path", "big/")
+                        .param("async", "true")
+                        .cookie(sessionCookie))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("DELETE"))
+                .andReturn();
+
+        String jobId = objectMapper.readTree(accepted.getResponse().getContentAsString()).get("id").asText();
+        JsonNode job = waitForJob(jobId);
+
+        assertEquals("COMPLETED", job.get("status").asText());
+        assertEquals(3, job.get("processed").asLong());
+
+        User user = userRepository.findByUsername(TEST_USERNAME).orElseThrow();
+        Iterable<Result<Item>> remaining = minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(BUCKET)
+                .prefix("user-" + user.getId() + "-files/big/")
+                .recursive(true)
+                .build());
+        assertFalse(remaining.iterator().hasNext(), "Folder should be empty after the job completes");
+    }
+
+    @Test
+    void jobIsNotVisibleToOtherUsers() throws Exception {
+        MvcResult accepted = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "missing/")
+                        .param("async", "true")
+                        .cookie(sessionCookie))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        String jobId = objectMapper.readTree(accepted.getResponse().getContentAsString()).get("id").asText();
+
+        userRepository.deleteByUsername("otherJobUser");
+        Cookie otherCookie = registerAndLoginUser("otherJobUser", TEST_PASSWORD);
+
+        mockMvc.perform(get("/api/jobs/" + jobId).cookie(otherCookie))
+                .andExpect(status().isNotFound());
+        assertEquals("FAILED", waitForJob(jobId).get("status").asText());
+    }
+
+    @Test
+    void jobOfStoppedNode_isFailedByReaper() throws Exception {
+        User user = userRepository.findByUsername(TEST_USERNAME).orElseThrow();
+        String jobId = UUID.randomUUID().toString();
+        // a running job whose node died: nothing refreshes its heartbeat any more
+        redisTemplate.opsForHash().putAll("cloudbox:jobs:" + jobId, Map.of(
+                "userId", user.getId().toString(),
+                "type", "DELETE",
+                "status", "RUNNING",
+                "processed", "1",
+                "total", "10",
+                "path", "folder/",
+                "updatedAt", Instant.now().minusSeconds(60).toString()));
+
+        JsonNode job = waitForJob(jobId);
+        assertEquals("FAILED", job.get("status").asText());
+        assertTrue(job.get("error").asText().contains("interrupted"));
+    }
+
+    private JsonNode waitForJob(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            MvcResult result = mockMvc.perform(get("/api/jobs/" + jobId).cookie(sessionCookie))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode job = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = job.get("status").asText();
+            if (!status.equals("QUEUED") && !status.equals("RUNNING")) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        fail("Job did not finish in time: " + jobId);
+        return null;
+    }
+
+    private Cookie registerAndLoginUser(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    void clearMinioBucket() {
+        try {
+            Iterable<Result<Item>> results = minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build());
+
+            for (Result<Item> result : results) {
+                deleteObjectIfExists(result.get().objectName());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+
+    private void deleteObjectIfExists(String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(BUCKET)
+                    .object(objectName)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("Could not delete object: " + objectName);
+        }
+    }
+}
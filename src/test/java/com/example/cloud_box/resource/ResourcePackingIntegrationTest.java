@@ -0,0 +1,233 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.config.PackingProperties;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.model.User;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "packing.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourcePackingIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PackingProperties packingProperties;
+
+    private Cookie sessionCookie;
+    private static final String USERNAME = "packer";
+    private static final String PASSWORD = "pass1";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(USERNAME);
+        sessionCookie = registerAndLogin(USERNAME, PASSWORD);
+    }
+
+    private Cookie registerAndLogin(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    @Test
+    void testSmallFiles_arePackedIntoOneSegment() throws Exception {
+        byte[] first = "first packed file".getBytes();
+        byte[] second = "second packed file".getBytes();
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", "docs/a.txt", "text/plain", first))
+                        .file(new MockMultipartFile("files", "docs/b.txt", "text/plain", second))
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        List<String> objects = listObjects();
+        assertEquals(1, objects.stream().filter(name -> name.startsWith(".cloudbox/segments/")).count(),
+                "Both files should share one segment: " + objects);
+        User user = userRepository.findByUsername(USERNAME).orElseThrow();
+        String root = "user-" + user.getId() + "-files/";
+        assertTrue(objects.stream().noneMatch(name -> name.endsWith(".txt")),
+                "Packed files should not be stored as objects of their own: " + objects);
+
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'docs/')]").exists());
+        mockMvc.perform(get("/api/directory")
+                        .param("path", "docs/")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'a.txt' && @.size == " + first.length + ")]").exists())
+                .andExpect(jsonPath("$[?(@.name == 'b.txt')]").exists());
+
+        MvcResult download = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "docs/b.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"b.txt\""))
+                .andReturn();
+        assertArrayEquals(second, download.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/api/resource/move")
+                        .cookie(sessionCookie)
+                        .param("from", root + "docs/a.txt")
+                        .param("to", root + "docs/renamed.txt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("renamed.txt"));
+        MvcResult moved = mockMvc.perform(get("/api/resource/download")
+                        .param("path", "docs/renamed.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(first, moved.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(delete("/api/resource")
+                        .param("path", "docs/renamed.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/resource")
+                        .param("path", "docs/renamed.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/resource")
+                        .param("path", "docs/b.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testPackedFiles_stayVisibleAfterPackingIsTurnedOff() throws Exception {
+        byte[] content = "packed before".getBytes();
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", "kept/a.txt", "text/plain", content))
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+
+        packingProperties.setEnabled(false);
+        try {
+            mockMvc.perform(get("/api/directory")
+                            .param("path", "kept/")
+                            .cookie(sessionCookie))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.name == 'a.txt')]").exists());
+            MvcResult download = mockMvc.perform(get("/api/resource/download")
+                            .param("path", "kept/a.txt")
+                            .cookie(sessionCookie))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            assertArrayEquals(content, download.getResponse().getContentAsByteArray());
+
+            mockMvc.perform(delete("/api/resource")
+                            .param("path", "kept/a.txt")
+                            .cookie(sessionCookie))
+                    .andExpect(status().isNoContent());
+            mockMvc.perform(get("/api/resource")
+                            .param("path", "kept/a.txt")
+                            .cookie(sessionCookie))
+                    .andExpect(status().isNotFound());
+        } finally {
+            packingProperties.setEnabled(true);
+        }
+    }
+
+    @Test
+    void testPackedImage_hasThumbnail() throws Exception {
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        mockMvc.perform(multipart("/api/resource")
+                        .file(new MockMultipartFile("files", "photos/tiny.png", "image/png", png.toByteArray()))
+                        .cookie(sessionCookie)
+                        .param("path", ""))
+                .andExpect(status().isCreated());
+        assertTrue(listObjects().stream().noneMatch(name -> name.endsWith(".png")), "The image should be packed");
+
+        MvcResult result = mockMvc.perform(get("/api/resource/thumbnail")
+                        .param("path", "photos/tiny.png")
+                        .param("size", "128")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/jpeg"))
+                .andReturn();
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertEquals(40, thumbnail.getWidth());
+        assertEquals(20, thumbnail.getHeight());
+    }
+
+    private List<String> listObjects() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(
+                ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build())) {
+            names.add(result.get().objectName());
+        }
+        return names;
+    }
+
+    void clearMinioBucket() {
+        try {
+            for (String objectName : listObjects()) {
+                minioClient.removeObject(RemoveObjectArgs.builder().bucket(BUCKET).object(objectName).build());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+}
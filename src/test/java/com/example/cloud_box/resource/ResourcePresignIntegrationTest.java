@@ -0,0 +1,148 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.dto.PresignedUrlDTO;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "presign.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourcePresignIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Cookie sessionCookie;
+    private static final String USERNAME = "presigner";
+    private static final String PASSWORD = "pass1";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(USERNAME);
+        sessionCookie = registerAndLogin(USERNAME, PASSWORD);
+    }
+
+    private Cookie registerAndLogin(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    @Test
+    void testPresignedUpload_andDownloadBypassTheApp() throws Exception {
+        byte[] content = "uploaded straight to storage".getBytes();
+        HttpClient httpClient = HttpClient.newHttpClient();
+
+        MvcResult signedUpload = mockMvc.perform(post("/api/resource/upload-url")
+                        .param("path", "direct/file.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.method").value("PUT"))
+                .andReturn();
+        PresignedUrlDTO upload = objectMapper.readValue(signedUpload.getResponse().getContentAsString(), PresignedUrlDTO.class);
+        HttpResponse<Void> put = httpClient.send(HttpRequest.newBuilder(URI.create(upload.url()))
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                        .header("Content-Type", "text/plain")
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(200, put.statusCode());
+
+        mockMvc.perform(post("/api/resource/upload-complete")
+                        .param("path", "direct/file.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("file.txt"))
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        MvcResult signedDownload = mockMvc.perform(get("/api/resource/download-url")
+                        .param("path", "direct/file.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        PresignedUrlDTO download = objectMapper.readValue(signedDownload.getResponse().getContentAsString(), PresignedUrlDTO.class);
+        HttpResponse<byte[]> got = httpClient.send(HttpRequest.newBuilder(URI.create(download.url())).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, got.statusCode());
+        assertArrayEquals(content, got.body());
+        assertTrue(got.headers().firstValue("Content-Disposition").orElse("").contains("file.txt"));
+    }
+
+    @Test
+    void testCompleteUpload_withoutUploadedFile_returnsNotFound() throws Exception {
+        mockMvc.perform(post("/api/resource/upload-complete")
+                        .param("path", "missing.txt")
+                        .cookie(sessionCookie))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<String> listObjects() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(
+                ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build())) {
+            names.add(result.get().objectName());
+        }
+        return names;
+    }
+
+    void clearMinioBucket() {
+        try {
+            for (String objectName : listObjects()) {
+                minioClient.removeObject(RemoveObjectArgs.builder().bucket(BUCKET).object(objectName).build());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+}
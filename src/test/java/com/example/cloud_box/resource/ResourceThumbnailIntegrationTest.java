@@ -0,0 +1,160 @@
+package com.example.cloud_box.resource;
+
+import com.example.cloud_box.common.AbstractIntegrationTest;
+import com.example.cloud_box.dto.LoginRequestDTO;
+import com.example.cloud_box.dto.RegisterRequestDTO;
+import com.example.cloud_box.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResourceThumbnailIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    private Cookie sessionCookie;
+
+    private static final String TEST_USERNAME = "thumbUser";
+    private static final String TEST_PASSWORD = "testPass123";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearMinioBucket();
+        userRepository.deleteByUsername(TEST_USERNAME);
+        sessionCookie = registerAndLoginUser(TEST_USERNAME, TEST_PASSWORD);
+    }
+
+    @Test
+    void thumbnail_isScaledJpegAndRevalidatesWithEtag() throws Exception {
+        uploadImage("photos/", "wide.png", 800, 400);
+
+        MvcResult result = mockMvc.perform(get("/api/resource/thumbnail")
+                        .param("path", "photos/wide.png")
+                        .param("size", "128")
+                        .cookie(sessionCookie))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andReturn();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertEquals(128, thumbnail.getWidth());
+        assertEquals(64, thumbnail.getHeight());
+
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/resource/thumbnail")
+                        .param("path", "photos/wide.png")
+                        .param("size", "128")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .cookie(sessionCookie))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void thumbnail_rejectsUnsupportedSizeAndNonImages() throws Exception {
+        uploadImage("photos/", "small.png", 10, 10);
+        mockMvc.perform(get("/api/resource/thumbnail")
+                        .param("path", "photos/small.png")
+                        .param("size", "77")
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+
+        MockMultipartFile text = new MockMultipartFile("files", "notes.txt", "text/plain", "hello".getBytes());
+        mockMvc.perform(multipart("/api/resource").file(text).cookie(sessionCookie).param("path", "photos/"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/resource/thumbnail")
+                        .param("path", "photos/notes.txt")
+                        .param("size", "128")
+                        .cookie(sessionCookie))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void uploadImage(String folder, String name, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        MockMultipartFile file = new MockMultipartFile("files", name, "image/png", out.toByteArray());
+        mockMvc.perform(multipart("/api/resource").file(file).cookie(sessionCookie).param("path", folder))
+                .andExpect(status().isCreated());
+    }
+
+    private Cookie registerAndLoginUser(String username, String password) throws Exception {
+        mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RegisterRequestDTO(username, password))))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(username, password))))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    void clearMinioBucket() {
+        try {
+            Iterable<Result<Item>> results = minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(BUCKET).recursive(true).build());
+
+            for (Result<Item> result : results) {
+                deleteObjectIfExists(result.get().objectName());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to clear MinIO bucket before test: " + e.getMessage());
+        }
+    }
+
+    private void deleteObjectIfExists(String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(BUCKET)
+                    .object(objectName)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("Could not delete object: " + objectName);
+        }
+    }
+}